@@ -354,7 +354,7 @@ public class FileMover implements Callable<Boolean> {
             logger.log(Level.WARNING, "exception caught doing file move", e);
             // It's very likely that we already set a failure status, but make sure.
             if (episode.isSuccess()) {
-                logger.warning("Move status was " + episode.fileStatus
+                logger.warning("Move status was " + episode.getFileStatus()
                                + " despite exception; changing it to failure");
                 episode.setFailToMove();
             }
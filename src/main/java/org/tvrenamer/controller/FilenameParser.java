@@ -2,24 +2,31 @@ package org.tvrenamer.controller;
 
 import org.tvrenamer.controller.util.StringUtils;
 import org.tvrenamer.model.FileEpisode;
+import org.tvrenamer.model.ParsedFilename;
 import org.tvrenamer.model.ShowName;
 import org.tvrenamer.model.util.Constants;
 
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 
 public class FilenameParser {
     private static final Logger logger = Logger.getLogger(FilenameParser.class.getName());
 
-    private static final String FILENAME_BEGINS_WITH_SEASON
-        = "(([sS]\\d\\d?[eE]\\d\\d?)|([sS]?\\d\\d?[x.]?\\d\\d\\d?)).*";
-    private static final String DIR_LOOKS_LIKE_SEASON = "[sS][0-3]\\d";
+    private static final Pattern FILENAME_BEGINS_WITH_SEASON
+        = Pattern.compile("(([sS]\\d\\d?[eE]\\d\\d?)|([sS]?\\d\\d?[x.]?\\d\\d\\d?)).*");
+    private static final Pattern DIR_LOOKS_LIKE_SEASON = Pattern.compile("[sS][0-3]\\d");
 
     // We sometimes find folders like "MyShow.Season02"; in this case, we want to
     // strip away ".Season02" and be left with just "MyShow".
-    private static final String EXCESS_SEASON = "[^A-Za-z]Season[ _-]?\\d\\d?";
+    private static final Pattern EXCESS_SEASON = Pattern.compile("[^A-Za-z]Season[ _-]?\\d\\d?");
 
     private static final String RESOLUTION_REGEX = "\\D(\\d+[pk]).*";
 
@@ -74,6 +81,10 @@ public class FilenameParser {
         }
     }
 
+    // Parsing a name takes a few microseconds; it's not worth handing fewer than
+    // this many to other threads.
+    private static final int MIN_PARALLEL_PARSE = 16;
+
     private FilenameParser() {
         // singleton
     }
@@ -97,16 +108,136 @@ public class FilenameParser {
      *   the FileEpisode whose filename we are to try to parse
      */
     public static void parseFilename(final FileEpisode episode) {
-        Path filePath = episode.getPath();
-        String withShowName = insertShowNameIfNeeded(filePath);
-        String strippedName = stripJunk(withShowName);
+        applyParse(episode, parse(episode.getPath()));
+    }
+
+    /**
+     * Updates the FileEpisode with the result of parsing its filename, which may
+     * have been done earlier, or remembered from a previous run.
+     *
+     * @param episode
+     *   the FileEpisode whose filename was parsed
+     * @param parsed
+     *   the information found in the filename, or null if it could not be parsed
+     */
+    public static void applyParse(final FileEpisode episode, final ParsedFilename parsed) {
+        if (parsed == null) {
+            episode.setFailToParse();
+            return;
+        }
+        ShowName.mapShowName(parsed.filenameShow);
+
+        episode.setFilenameShow(parsed.filenameShow);
+        episode.setEpisodePlacement(parsed.seasonString, parsed.episodeString);
+        episode.setFilenameResolution(parsed.resolution);
+        episode.setParsed();
+    }
+
+    /**
+     * Extracts the episode-related information from the given path.<p>
+     *
+     * First gives the {@link FilenameRecognizer} a chance to handle the name in a
+     * single pass; if it can't, falls back to trying each of the regular expressions,
+     * in order.
+     *
+     * @param filePath
+     *   the path of the file whose name we are to try to parse
+     * @return the information found in the filename, or null if it could not be parsed
+     */
+    public static ParsedFilename parse(final Path filePath) {
+        return parse(filePath, null);
+    }
+
+    /**
+     * Extracts the episode-related information from the given path, remembering
+     * what we learn from its directory in the given map, so it can be used again
+     * for the other files in the same directory.
+     *
+     * @param filePath
+     *   the path of the file whose name we are to try to parse
+     * @param directoryShowNames
+     *   the show names already inferred from directories, by directory; may be null
+     * @return the information found in the filename, or null if it could not be parsed
+     */
+    private static ParsedFilename parse(final Path filePath,
+                                        final Map<Path, String> directoryShowNames)
+    {
+        String strippedName = prepareName(filePath, directoryShowNames);
+        if (!FilenameRecognizer.mightMatch(strippedName)) {
+            return null;
+        }
+        ParsedFilename parsed = FilenameRecognizer.recognize(strippedName);
+        if (parsed != null) {
+            return parsed;
+        }
+        return matchRegex(strippedName);
+    }
+
+    /**
+     * Extracts the episode-related information from each of the given paths.<p>
+     *
+     * The names are parsed in parallel, on the fork/join pool of the calling thread,
+     * if it's running in one (as it is when called from the
+     * {@link org.tvrenamer.controller.util.ParallelFileWalker}), and otherwise on the
+     * common pool.  Either way, a large batch goes faster the more processors there
+     * are.  Small batches are simply parsed on the calling thread.<p>
+     *
+     * When a filename doesn't include the show name, we look for it in the names of
+     * the directories above the file.  Within a batch, that's only done once for
+     * each directory, however many files there are in it.
+     *
+     * @param filePaths
+     *   the paths of the files whose names we are to try to parse
+     * @return the information found in each filename, in the same order as the paths;
+     *   an element is null if that filename could not be parsed
+     */
+    public static List<ParsedFilename> parseAll(final Collection<Path> filePaths) {
+        final Path[] paths = filePaths.toArray(new Path[filePaths.size()]);
+        final ParsedFilename[] parsed = new ParsedFilename[paths.length];
+        final Map<Path, String> directoryShowNames = new ConcurrentHashMap<>();
+        if (paths.length < MIN_PARALLEL_PARSE) {
+            for (int i = 0; i < paths.length; i++) {
+                parsed[i] = parse(paths[i], directoryShowNames);
+            }
+        } else {
+            IntStream.range(0, paths.length).parallel()
+                .forEach(i -> parsed[i] = parse(paths[i], directoryShowNames));
+        }
+        return Arrays.asList(parsed);
+    }
+
+    /**
+     * Gets the version of the filename that we actually try to parse: possibly with
+     * the show name inserted from the parent directory, and with some junk removed.
+     *
+     * @param filePath
+     *   the path of the file whose name we are to try to parse
+     * @return the name to be parsed
+     */
+    static String prepareName(final Path filePath) {
+        return prepareName(filePath, null);
+    }
+
+    private static String prepareName(final Path filePath,
+                                      final Map<Path, String> directoryShowNames)
+    {
+        String withShowName = insertShowNameIfNeeded(filePath, directoryShowNames);
+        return stripJunk(withShowName);
+    }
+
+    /**
+     * Tries each of the regular expressions, in order, against the given name.
+     *
+     * @param strippedName
+     *   the name to parse, as returned by prepareName
+     * @return the information found by the first expression that matched, or null
+     *   if none of them matched
+     */
+    static ParsedFilename matchRegex(final String strippedName) {
         Matcher matcher;
         for (Pattern patt : COMPILED_REGEX) {
             matcher = patt.matcher(strippedName);
             if (matcher.matches()) {
-                String foundName = StringUtils.trimFoundShow(matcher.group(1));
-                ShowName.mapShowName(foundName);
-
                 String resolution = "";
                 if (matcher.groupCount() == 4) {
                     resolution = matcher.group(4);
@@ -115,16 +246,12 @@ public class FilenameParser {
                     // an error if it does, but not important.
                     continue;
                 }
-                episode.setFilenameShow(foundName);
-                episode.setEpisodePlacement(matcher.group(2), matcher.group(3));
-                episode.setFilenameResolution(resolution);
-                episode.setParsed();
-
-                return;
+                return new ParsedFilename(StringUtils.trimFoundShow(matcher.group(1)),
+                                          matcher.group(2), matcher.group(3),
+                                          resolution);
             }
         }
-
-        episode.setFailToParse();
+        return null;
     }
 
     private static String stripJunk(String input) {
@@ -145,10 +272,33 @@ public class FilenameParser {
         }
 
         String parentName = parentPathname.toString();
-        return parentName.replaceFirst(EXCESS_SEASON, "");
+        return EXCESS_SEASON.matcher(parentName).replaceFirst("");
+    }
+
+    /**
+     * Finds the show name suggested by the directories above a file, skipping over
+     * directories that just indicate a season, or hold duplicates.
+     *
+     * @param directory
+     *   the directory the file is in
+     * @return the name of the first directory, going up, that looks like a show
+     */
+    private static String inferShowName(final Path directory) {
+        Path parent = directory;
+        String parentName = extractParentName(parent);
+        while (StringUtils.toLower(parentName).startsWith("season")
+               || DIR_LOOKS_LIKE_SEASON.matcher(parentName).matches()
+               || parentName.equals(Constants.DUPLICATES_DIRECTORY))
+        {
+            parent = parent.getParent();
+            parentName = extractParentName(parent);
+        }
+        return parentName;
     }
 
-    private static String insertShowNameIfNeeded(final Path filePath) {
+    private static String insertShowNameIfNeeded(final Path filePath,
+                                                 final Map<Path, String> directoryShowNames)
+    {
         if (filePath == null) {
             throw new IllegalArgumentException("insertShowNameIfNeeded received null argument.");
         }
@@ -160,15 +310,14 @@ public class FilenameParser {
 
         final String pName = justNamePath.toString();
         logger.fine("pName = " + pName);
-        if (pName.matches(FILENAME_BEGINS_WITH_SEASON)) {
-            Path parent = filePath.getParent();
-            String parentName = extractParentName(parent);
-            while (StringUtils.toLower(parentName).startsWith("season")
-                   || parentName.matches(DIR_LOOKS_LIKE_SEASON)
-                   || parentName.equals(Constants.DUPLICATES_DIRECTORY))
-            {
-                parent = parent.getParent();
-                parentName = extractParentName(parent);
+        if (FILENAME_BEGINS_WITH_SEASON.matcher(pName).matches()) {
+            final Path parent = filePath.getParent();
+            final String parentName;
+            if ((parent == null) || (directoryShowNames == null)) {
+                parentName = inferShowName(parent);
+            } else {
+                parentName = directoryShowNames.computeIfAbsent(parent,
+                                                                FilenameParser::inferShowName);
             }
             logger.fine("appending parent directory '" + parentName + "' to filename '" + pName + "'");
             return parentName + " " + pName;
@@ -0,0 +1,183 @@
+package org.tvrenamer.controller;
+
+import org.tvrenamer.controller.util.StringUtils;
+import org.tvrenamer.model.ParsedFilename;
+
+/**
+ * A hand-written, single-pass recognizer for the most common filename layouts.<p>
+ *
+ * The FilenameParser has an ordered list of regular expressions, and it tries each of
+ * them in turn, first with the resolution suffix and then without.  Most of them begin
+ * with a lazy, backtracking prefix, so a filename that doesn't match the early patterns
+ * pays for every attempt.  This class looks at the characters once and answers two
+ * questions, without any regular expressions:<ul>
+ * <li>could <em>any</em> of the parser's patterns possibly match this name?  If not,
+ *     there's no point in trying them.</li>
+ * <li>does the name have the "S01E02" layout, and if so, what would the parser's
+ *     patterns have extracted from it?</li></ul><p>
+ *
+ * The second question must be answered exactly the way the regular expressions would
+ * answer it, taking their precedence into account.  When we can't be certain of that --
+ * for example, because the name has something that looks like a resolution before the
+ * season and episode, which a later pattern might claim -- we say so by returning null,
+ * and the caller falls back to the regular expressions.<p>
+ *
+ * FilenameParserTest verifies that the two approaches agree.
+ */
+final class FilenameRecognizer {
+
+    private static boolean isDigit(char c) {
+        return (c >= '0') && (c <= '9');
+    }
+
+    // The regular expressions use [^a-zA-Z0-9], which is ASCII-only; we must do the same.
+    private static boolean isAlphanumeric(char c) {
+        return isDigit(c)
+            || ((c >= 'a') && (c <= 'z'))
+            || ((c >= 'A') && (c <= 'Z'));
+    }
+
+    private static boolean isSeasonMarker(char c) {
+        return (c == 's') || (c == 'S');
+    }
+
+    private static boolean isEpisodeMarker(char c) {
+        return (c == 'e') || (c == 'E');
+    }
+
+    private static boolean isResolutionMarker(char c) {
+        return (c == 'p') || (c == 'k');
+    }
+
+    private static int skipDigits(final String name, final int start) {
+        int pos = start;
+        while ((pos < name.length()) && isDigit(name.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Determine whether it is possible for any of the FilenameParser's patterns to
+     * match the given name.<p>
+     *
+     * Every one of the patterns requires the show name to be at least two characters
+     * long and to include a non-alphanumeric character (after the first character),
+     * followed by a season number and an episode number.  So if there are not at
+     * least two digits after the first non-alphanumeric character, the name cannot
+     * be parsed, no matter how many patterns we try.
+     *
+     * @param name
+     *    the (prepared) filename to check
+     * @return false if the name certainly cannot be parsed; true if it may be
+     */
+    static boolean mightMatch(final String name) {
+        int len = name.length();
+        int pos = 1;
+        while ((pos < len) && isAlphanumeric(name.charAt(pos))) {
+            pos++;
+        }
+        int digits = 0;
+        for (pos++; pos < len; pos++) {
+            if (isDigit(name.charAt(pos))) {
+                digits++;
+                if (digits >= 2) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find the resolution that the parser's "with resolution" suffix would find,
+     * searching from the given position.  That suffix is greedy, so it finds the
+     * last non-digit character which is followed by a run of digits and then a
+     * "p" or "k".
+     *
+     * @param name
+     *    the (prepared) filename to search
+     * @param from
+     *    the first position at which the non-digit may be found
+     * @return the resolution, such as "720p", or null if there is none
+     */
+    private static String findResolution(final String name, final int from) {
+        String found = null;
+        int len = name.length();
+        int pos = from;
+        while (pos < len - 2) {
+            if (isDigit(name.charAt(pos))) {
+                pos++;
+                continue;
+            }
+            int end = skipDigits(name, pos + 1);
+            if ((end > pos + 1) && (end < len) && isResolutionMarker(name.charAt(end))) {
+                found = name.substring(pos + 1, end + 1);
+            }
+            pos = (end > pos + 1) ? end : pos + 1;
+        }
+        return found;
+    }
+
+    /**
+     * Try to recognize the "S01E02" layout, in a single scan of the name.<p>
+     *
+     * This is equivalent to the parser's first pattern:
+     * <code>(.+?[^a-zA-Z0-9]\D*?)[sS](\d\d*)[eE](\d\d*).*</code>.  Because the
+     * show name is lazy, the pattern finds the earliest "S" for which:<ul>
+     * <li>it is followed by digits, an "E", and more digits, and</li>
+     * <li>somewhere between the second character and the "S" is a non-alphanumeric
+     *     character that is not followed by any digits before the "S".</li></ul>
+     *
+     * @param name
+     *    the (prepared) filename to recognize
+     * @return the information the regular expressions would have found, or null if
+     *    we can't be sure what they would have found
+     */
+    static ParsedFilename recognize(final String name) {
+        final int len = name.length();
+        boolean separatorSeen = false;
+        for (int pos = 0; pos < len; pos++) {
+            char c = name.charAt(pos);
+            if (separatorSeen && isSeasonMarker(c)) {
+                int seasonEnd = skipDigits(name, pos + 1);
+                if ((seasonEnd > pos + 1) && (seasonEnd < len)
+                    && isEpisodeMarker(name.charAt(seasonEnd)))
+                {
+                    int episodeEnd = skipDigits(name, seasonEnd + 1);
+                    if (episodeEnd > seasonEnd + 1) {
+                        return placementFound(name, pos, seasonEnd, episodeEnd);
+                    }
+                }
+            }
+            if (isDigit(c)) {
+                separatorSeen = false;
+            } else if ((pos > 0) && !isAlphanumeric(c)) {
+                separatorSeen = true;
+            }
+        }
+        return null;
+    }
+
+    private static ParsedFilename placementFound(final String name, final int showEnd,
+                                                 final int seasonEnd, final int episodeEnd)
+    {
+        String resolution = findResolution(name, episodeEnd);
+        if ((resolution == null) && (findResolution(name, 0) != null)) {
+            // There is something that looks like a resolution, but it comes before the
+            // placement.  One of the other "with resolution" patterns might take
+            // precedence over the basic version of this one, so let them decide.
+            return null;
+        }
+        return new ParsedFilename(StringUtils.trimFoundShow(name.substring(0, showEnd)),
+                                  name.substring(showEnd + 1, seasonEnd),
+                                  name.substring(seasonEnd + 1, episodeEnd),
+                                  resolution);
+    }
+
+    /**
+     * This is a utility class; prevent it from being instantiated.
+     *
+     */
+    private FilenameRecognizer() { }
+}
@@ -9,6 +9,7 @@ import org.tvrenamer.model.TVRenamerIOException;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.Reader;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -19,6 +20,30 @@ class HttpConnectionHandler {
     private static final int CONNECT_TIMEOUT_MS = 30000;
     private static final int READ_TIMEOUT_MS = 60000;
 
+    /**
+     * Something that can process the body of a response as it arrives, rather
+     * than waiting for the whole thing to be downloaded.
+     */
+    @FunctionalInterface
+    interface BodyReader {
+        void read(Reader body) throws IOException;
+    }
+
+    /**
+     * Like a BodyReader, but is also given the validators which can be used to ask
+     * the server, later, whether the contents have changed.  Either may be null.
+     */
+    @FunctionalInterface
+    interface ValidatedBodyReader {
+        void read(Reader body, String etag, String lastModified) throws IOException;
+    }
+
+    private static final int HTTP_NOT_MODIFIED = 304;
+    private static final String ETAG = "ETag";
+    private static final String LAST_MODIFIED = "Last-Modified";
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+
     private static final OkHttpClient CLIENT = new OkHttpClient.Builder()
         .connectTimeout(CONNECT_TIMEOUT_MS, TimeUnit.MILLISECONDS)
         .readTimeout(READ_TIMEOUT_MS, TimeUnit.MILLISECONDS)
@@ -91,4 +116,90 @@ class HttpConnectionHandler {
             return downloadUrlFailed(response, urlString, ioe);
         }
     }
+
+    /**
+     * Download the URL and pass its contents to the given BodyReader as a stream.<p>
+     *
+     * Unlike {@link #downloadUrl}, the contents are never held in memory all at once;
+     * the BodyReader processes them as they arrive.  The stream is closed when the
+     * BodyReader returns.
+     *
+     * @param urlString the URL as a String
+     * @param bodyReader the object to process the contents
+     * @throws TVRenamerIOException when there is an error connecting or reading the URL,
+     *   or if the BodyReader throws an exception
+     */
+    public void streamUrl(String urlString, BodyReader bodyReader) throws TVRenamerIOException {
+        streamUrlIfModified(urlString, null, null,
+                            (body, etag, lastModified) -> bodyReader.read(body));
+    }
+
+    /**
+     * Download the URL, unless it has not changed since we last downloaded it, and
+     * pass its contents to the given ValidatedBodyReader as a stream.<p>
+     *
+     * The validators are the values the server gave us when we last downloaded the
+     * URL.  If either is given, the request is conditional, and if the server says the
+     * contents have not been modified, the ValidatedBodyReader is not called at all.
+     *
+     * @param urlString the URL as a String
+     * @param etag the "ETag" header from the previous download, or null
+     * @param lastModified the "Last-Modified" header from the previous download, or null
+     * @param bodyReader the object to process the contents
+     * @return true if the contents were downloaded and processed; false if the server
+     *   told us they had not been modified
+     * @throws TVRenamerIOException when there is an error connecting or reading the URL,
+     *   or if the ValidatedBodyReader throws an exception; if it throws a
+     *   TVRenamerIOException, such as for a parsing error, that is passed on unchanged
+     */
+    public boolean streamUrlIfModified(String urlString, String etag, String lastModified,
+                                       ValidatedBodyReader bodyReader)
+        throws TVRenamerIOException
+    {
+        logger.fine("Streaming URL " + urlString);
+
+        Request.Builder request;
+        Response response = null;
+        boolean reading = false;
+        try {
+            request = new Request.Builder().url(urlString);
+            if (etag != null) {
+                request.header(IF_NONE_MATCH, etag);
+            }
+            if (lastModified != null) {
+                request.header(IF_MODIFIED_SINCE, lastModified);
+            }
+            response = CLIENT.newCall(request.build()).execute();
+            if (response != null) {
+                if (response.code() == HTTP_NOT_MODIFIED) {
+                    response.close();
+                    logger.fine("not modified: " + urlString);
+                    return false;
+                }
+                if (response.isSuccessful()) {
+                    try (ResponseBody body = response.body()) {
+                        if (body != null) {
+                            reading = true;
+                            bodyReader.read(body.charStream(), response.header(ETAG),
+                                            response.header(LAST_MODIFIED));
+                            return true;
+                        }
+                    }
+                } else if (response.code() == 404) {
+                    throw new FileNotFoundException(urlString);
+                }
+            }
+            throw new TVRenamerIOException(urlString);
+        } catch (TVRenamerIOException tve) {
+            if (reading) {
+                // The BodyReader's own failure, which it has already reported.
+                throw tve;
+            }
+            downloadUrlFailed(response, urlString, tve);
+            return false;
+        } catch (IOException ioe) {
+            downloadUrlFailed(response, urlString, ioe);
+            return false;
+        }
+    }
 }
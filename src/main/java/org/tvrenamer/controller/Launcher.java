@@ -33,7 +33,9 @@ class Launcher {
     private static void tvRenamerThreadShutdown() {
         MoveRunner.shutDown();
         ShowStore.cleanUp();
+        ShowSearchCache.cleanUp();
         ListingsLookup.cleanUp();
+        ScanIndex.cleanUp();
     }
 
     /**
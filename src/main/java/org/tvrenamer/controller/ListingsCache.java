@@ -0,0 +1,406 @@
+package org.tvrenamer.controller;
+
+import static org.tvrenamer.model.util.Constants.*;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.converters.reflection.PureJavaReflectionProvider;
+
+import org.tvrenamer.model.UserPreference;
+import org.tvrenamer.model.UserPreferences;
+
+import java.io.BufferedWriter;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ListingsCache -- keeps the listings documents we download from the provider on disk,
+ * so we don't have to download them again every time the program runs.<p>
+ *
+ * Most of the shows in a typical library have ended, and their listings never change.
+ * So each document is stored, as it was downloaded, in a directory under the
+ * configuration directory, keyed by the series ID and the language.  Alongside it, we
+ * keep a small metadata file recording when we downloaded it, and the validators
+ * ("ETag" and "Last-Modified") the server sent with it.<p>
+ *
+ * A document younger than the time-to-live, which the user can set in the preferences,
+ * is used without touching the network.  Once it is older, we ask the server for the
+ * document again, but conditionally; if it has not changed, the server tells us so
+ * without sending it, and we start the clock over.<p>
+ *
+ * We count the hits, misses and revalidations, so it's possible to see whether the
+ * cache is actually paying off.
+ */
+public class ListingsCache implements Observer {
+    private static final Logger logger = Logger.getLogger(ListingsCache.class.getName());
+
+    // Use reflection provider so the default constructor is called
+    private static final XStream xstream = new XStream(new PureJavaReflectionProvider());
+
+    static {
+        xstream.alias("cachedListing", CachedListing.class);
+    }
+
+    private static final String METADATA_SUFFIX = ".meta" + XML_SUFFIX;
+    private static final String TEMP_PREFIX = "download";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * What we know about a listings document which is stored on disk.
+     */
+    static class CachedListing {
+        private String seriesId;
+        private String language;
+        private long fetchedMillis;
+        private String etag;
+        private String lastModified;
+
+        private transient Path document;
+
+        CachedListing() {
+            // for XStream
+        }
+
+        CachedListing(String seriesId, String language, long fetchedMillis,
+                      String etag, String lastModified)
+        {
+            this.seriesId = seriesId;
+            this.language = language;
+            this.fetchedMillis = fetchedMillis;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        String getEtag() {
+            return etag;
+        }
+
+        String getLastModified() {
+            return lastModified;
+        }
+
+        long getFetchedMillis() {
+            return fetchedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "CachedListing [" + seriesId + "/" + language + ", fetched " + fetchedMillis
+                + ", etag " + etag + ", last modified " + lastModified + "]";
+        }
+    }
+
+    /**
+     * Copies everything that is read from a stream to a Writer, so that we can parse
+     * a document and save it at the same time.
+     */
+    private static class CopyingReader extends FilterReader {
+        private final Writer copy;
+
+        CopyingReader(Reader in, Writer copy) {
+            super(in);
+            this.copy = copy;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = in.read();
+            if (c != -1) {
+                copy.write(c);
+            }
+            return c;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            int count = in.read(cbuf, off, len);
+            if (count > 0) {
+                copy.write(cbuf, off, count);
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            char[] skipped = new char[(int) Math.min(n, 8192)];
+            int count = read(skipped, 0, skipped.length);
+            return (count < 0) ? 0 : count;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void mark(int readAheadLimit) throws IOException {
+            throw new IOException("mark not supported");
+        }
+
+        @Override
+        public void reset() throws IOException {
+            throw new IOException("reset not supported");
+        }
+    }
+
+    private static final ListingsCache INSTANCE = createInstance();
+
+    private final Path directory;
+    private volatile long timeToLiveMillis;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+
+    ListingsCache(final Path directory, final long timeToLiveMillis) {
+        this.directory = directory;
+        this.timeToLiveMillis = timeToLiveMillis;
+    }
+
+    private static ListingsCache createInstance() {
+        UserPreferences prefs = UserPreferences.getInstance();
+        ListingsCache cache = new ListingsCache(LISTINGS_CACHE_DIRECTORY,
+                                                hoursToMillis(prefs.getListingsCacheHours()));
+        prefs.addObserver(cache);
+        return cache;
+    }
+
+    /**
+     * @return the singleton ListingsCache instance for this application
+     */
+    public static ListingsCache getInstance() {
+        return INSTANCE;
+    }
+
+    private static long hoursToMillis(final int hours) {
+        return TimeUnit.HOURS.toMillis(Math.max(hours, 0));
+    }
+
+    private String baseName(final String seriesId, final String language) {
+        return seriesId + "-" + language;
+    }
+
+    private Path documentPath(final String seriesId, final String language) {
+        return directory.resolve(baseName(seriesId, language) + XML_SUFFIX);
+    }
+
+    private Path metadataPath(final String seriesId, final String language) {
+        return directory.resolve(baseName(seriesId, language) + METADATA_SUFFIX);
+    }
+
+    private static void moveIntoPlace(final Path source, final Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void writeMetadata(final CachedListing entry) throws IOException {
+        Path temp = Files.createTempFile(directory, TEMP_PREFIX, TEMP_SUFFIX);
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write(xstream.toXML(entry));
+        }
+        moveIntoPlace(temp, metadataPath(entry.seriesId, entry.language));
+    }
+
+    /**
+     * Look up the listings document for the given series and language.
+     *
+     * @param seriesId
+     *    the provider's ID for the series
+     * @param language
+     *    the language of the listings
+     * @return information about the document on disk, or null if we don't have one
+     */
+    CachedListing lookup(final String seriesId, final String language) {
+        Path metadata = metadataPath(seriesId, language);
+        Path document = documentPath(seriesId, language);
+        if (Files.notExists(metadata) || Files.notExists(document)) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(metadata)) {
+            CachedListing entry = (CachedListing) xstream.fromXML(in);
+            if (!seriesId.equals(entry.seriesId) || !language.equals(entry.language)) {
+                logger.warning("ignoring mismatched cache metadata in " + metadata);
+                return null;
+            }
+            entry.document = document;
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "unable to read cached listing metadata " + metadata, e);
+            return null;
+        }
+    }
+
+    /**
+     * Is the given document young enough to use without checking with the server?
+     *
+     * @param entry
+     *    the cached document
+     * @return true if the document may be used as it is
+     */
+    boolean isFresh(final CachedListing entry) {
+        long age = System.currentTimeMillis() - entry.fetchedMillis;
+        return (age >= 0) && (age < timeToLiveMillis);
+    }
+
+    /**
+     * Open the cached document for reading.
+     *
+     * @param entry
+     *    the cached document
+     * @return a Reader of the document, exactly as it was downloaded
+     * @throws IOException if the document can't be read
+     */
+    Reader openDocument(final CachedListing entry) throws IOException {
+        return Files.newBufferedReader(entry.document, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Create a file to hold a document while it's being downloaded.  The file
+     * is in the cache directory, so it can be moved into place cheaply.
+     *
+     * @return the path to a new, empty file
+     * @throws IOException if the file can't be created
+     */
+    Path createTempDocument() throws IOException {
+        Files.createDirectories(directory);
+        return Files.createTempFile(directory, TEMP_PREFIX, TEMP_SUFFIX);
+    }
+
+    /**
+     * Wrap the given stream so that everything read from it is also written to the
+     * given Writer.
+     *
+     * @param body
+     *    the stream being read
+     * @param copy
+     *    where to write the copy
+     * @return a Reader which returns the same contents as body
+     */
+    static Reader copying(final Reader body, final Writer copy) {
+        return new CopyingReader(body, copy);
+    }
+
+    /**
+     * Put a newly downloaded document into the cache, replacing whatever was there.
+     *
+     * @param seriesId
+     *    the provider's ID for the series
+     * @param language
+     *    the language of the listings
+     * @param tempDocument
+     *    the downloaded document, from {@link #createTempDocument}; it is moved
+     *    into the cache, or deleted if that fails
+     * @param etag
+     *    the "ETag" header sent with the document, or null
+     * @param lastModified
+     *    the "Last-Modified" header sent with the document, or null
+     */
+    void store(final String seriesId, final String language, final Path tempDocument,
+               final String etag, final String lastModified)
+    {
+        try {
+            moveIntoPlace(tempDocument, documentPath(seriesId, language));
+            writeMetadata(new CachedListing(seriesId, language, System.currentTimeMillis(),
+                                            etag, lastModified));
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "unable to cache listings for " + seriesId, e);
+            discard(tempDocument);
+        }
+    }
+
+    /**
+     * Discard a temporary file that will not be used.
+     *
+     * @param tempDocument
+     *    the file to delete
+     */
+    void discard(final Path tempDocument) {
+        try {
+            Files.deleteIfExists(tempDocument);
+        } catch (IOException e) {
+            logger.log(Level.FINE, "unable to delete " + tempDocument, e);
+        }
+    }
+
+    /**
+     * Record that the server has told us the given document has not changed,
+     * so it is fresh again.
+     *
+     * @param entry
+     *    the cached document
+     */
+    void revalidated(final CachedListing entry) {
+        revalidations.incrementAndGet();
+        entry.fetchedMillis = System.currentTimeMillis();
+        try {
+            writeMetadata(entry);
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "unable to update cached listing " + entry, e);
+        }
+    }
+
+    void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    /**
+     * @return how many times a listing was served from the cache without any
+     *    network access
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return how many times a listing had to be downloaded in full
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return how many times the server told us a stale listing was still good
+     */
+    public long getRevalidationCount() {
+        return revalidations.get();
+    }
+
+    @Override
+    public void update(Observable observable, Object value) {
+        if ((value == UserPreference.LISTINGS_CACHE_TTL) && (observable instanceof UserPreferences)) {
+            timeToLiveMillis = hoursToMillis(((UserPreferences) observable).getListingsCacheHours());
+        }
+    }
+
+    /**
+     * Standard object method to represent this ListingsCache as a string.
+     *
+     * @return string version of this; gives the counts
+     */
+    @Override
+    public String toString() {
+        return "{ListingsCache: " + hits.get() + " hits, " + misses.get() + " misses, "
+            + revalidations.get() + " revalidations}";
+    }
+}
@@ -1,5 +1,6 @@
 package org.tvrenamer.controller;
 
+import org.tvrenamer.controller.ProviderScheduler.RequestKind;
 import org.tvrenamer.model.Series;
 import org.tvrenamer.model.TVRenamerIOException;
 
@@ -20,18 +21,26 @@ public class ListingsLookup {
     private static final Logger logger = Logger.getLogger(ListingsLookup.class.getName());
 
     /**
-     * A pool of low-priority threads to execute the listings lookups.
+     * Runs the listings lookups, sharing the limits on requests to the provider
+     * with the show searches.
      */
-    private static final ExecutorService THREAD_POOL
-        = Executors.newCachedThreadPool(r -> {
-            Thread t = new Thread(r);
-            t.setPriority(Thread.MIN_PRIORITY);
+    private static final ProviderScheduler SCHEDULER = ProviderScheduler.getInstance();
+
+    /**
+     * Reads listings which are fresh in the cache.  That doesn't involve the provider,
+     * so it isn't held to the provider's limits; only if the cached copy won't do is
+     * the download handed to the SCHEDULER.
+     */
+    private static final ExecutorService CACHE_READER
+        = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+            Thread t = new Thread(r, "listings-cache");
             t.setDaemon(true);
             return t;
         });
 
     /**
-     * Spawn a thread to ask the provider to look up the listings for the given Series.
+     * Queue a task to get the listings for the given Series: from the cache, if it has
+     * a fresh copy, or else from the provider.
      *
      * This is public so it can be called from the Series class.  No one else should
      * call it.  Other classes which are interested in series listings should call
@@ -63,8 +72,30 @@ public class ListingsLookup {
                 return false;
             }
         };
+        Runnable cacheReader = () -> {
+            try {
+                if (TheTVDBProvider.getCachedSeriesListing(series)) {
+                    return;
+                }
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "exception reading cached listings for "
+                           + series, e);
+            }
+            submitDownload(series, listingsFetcher);
+        };
+        try {
+            CACHE_READER.execute(cacheReader);
+        } catch (RejectedExecutionException e) {
+            logger.log(Level.WARNING, "unable to submit listings task ("
+                       + series.getName() + ") for execution", e);
+        }
+    }
+
+    private static void submitDownload(final Series series,
+                                       final Callable<Boolean> listingsFetcher)
+    {
         try {
-            Future<Boolean> future = THREAD_POOL.submit(listingsFetcher);
+            Future<Boolean> future = SCHEDULER.submit(RequestKind.LISTINGS, listingsFetcher);
             logger.fine("successfully submitted task " + future);
         } catch (RejectedExecutionException | NullPointerException e) {
             logger.log(Level.WARNING, "unable to submit listings download task ("
@@ -77,7 +108,10 @@ public class ListingsLookup {
      *
      */
     public static void cleanUp() {
-        THREAD_POOL.shutdownNow();
+        CACHE_READER.shutdownNow();
+        SCHEDULER.shutDownNow();
+        logger.info(ListingsCache.getInstance().toString());
+        logger.info(SCHEDULER.toString());
     }
 
     /**
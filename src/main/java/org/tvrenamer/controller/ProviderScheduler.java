@@ -0,0 +1,428 @@
+package org.tvrenamer.controller;
+
+import org.tvrenamer.model.UserPreference;
+import org.tvrenamer.model.UserPreferences;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ProviderScheduler -- runs every request we make to the provider, both show searches
+ * and listings downloads, within limits.<p>
+ *
+ * Each of those used to get a thread of its own, from an unbounded pool.  Adding a few
+ * thousand files, for a few hundred shows, would start hundreds of requests at the same
+ * moment.  The provider could not keep up, and many of them timed out, which we then
+ * reported to the user as shows we could not find.<p>
+ *
+ * Instead, requests wait in a queue here, and are started only while fewer than a fixed
+ * number are running, and no faster than a fixed average rate (enforced by a token
+ * bucket, which allows a small burst).  Both limits come from the user preferences.  A
+ * request only takes one of the places to run once it has its token; while the rate
+ * limit makes it wait, it waits in the queue, and doesn't keep anything else from
+ * running.<p>
+ *
+ * Searches and listings downloads are queued separately, and when both are waiting, we
+ * take from each in turn.  Otherwise, a long run of searches would hold up the listings
+ * of the shows already found, and vice versa.<p>
+ *
+ * We keep track of the queue depth and how long requests wait to start, so it's possible
+ * to see whether the limits are set sensibly.
+ */
+public class ProviderScheduler implements Observer {
+    private static final Logger logger = Logger.getLogger(ProviderScheduler.class.getName());
+
+    /**
+     * The kinds of requests we make to the provider.
+     */
+    public enum RequestKind {
+        SEARCH,
+        LISTINGS
+    }
+
+    /**
+     * A token bucket: permits are added continuously at a fixed rate, up to a limit,
+     * and each request uses one.  When the bucket is empty, a request must wait until
+     * a permit has been added.<p>
+     *
+     * Rather than each caller polling, a caller reserves the next permit, which may be
+     * in the future, and is told how long to wait for it.  That way, callers who are
+     * waiting at the same time are spaced out correctly.
+     */
+    static class TokenBucket {
+        private final long burst;
+        private long nanosPerPermit;
+        private long available;
+        private long lastRefill;
+
+        TokenBucket(final int permitsPerSecond, final int burst) {
+            this.burst = Math.max(burst, 1);
+            setRate(permitsPerSecond);
+            available = this.burst;
+            lastRefill = System.nanoTime();
+        }
+
+        /**
+         * Change the rate at which permits are added.
+         *
+         * @param permitsPerSecond
+         *    the number of permits to add each second; zero or less means there
+         *    is no limit
+         */
+        synchronized void setRate(final int permitsPerSecond) {
+            nanosPerPermit = (permitsPerSecond > 0)
+                ? (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond)
+                : 0;
+        }
+
+        /**
+         * Reserve a permit.
+         *
+         * @return the number of nanoseconds the caller must wait before using it;
+         *    zero if it may be used right away
+         */
+        synchronized long reserve() {
+            if (nanosPerPermit == 0) {
+                return 0;
+            }
+            long now = System.nanoTime();
+            long added = (now - lastRefill) / nanosPerPermit;
+            if (added > 0) {
+                available = Math.min(burst, available + added);
+                lastRefill += added * nanosPerPermit;
+                if (available == burst) {
+                    lastRefill = now;
+                }
+            }
+            // "available" goes negative when permits have been reserved in advance.
+            available--;
+            if (available >= 0) {
+                return 0;
+            }
+            return (-available * nanosPerPermit) - (now - lastRefill);
+        }
+    }
+
+    /**
+     * A request which is waiting to run.
+     */
+    private static class Request {
+        final RequestKind kind;
+        final FutureTask<?> task;
+        final long queuedNanos = System.nanoTime();
+
+        Request(RequestKind kind, FutureTask<?> task) {
+            this.kind = kind;
+            this.task = task;
+        }
+    }
+
+    private static final int BURST = 4;
+
+    private static final ProviderScheduler INSTANCE = createInstance();
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService pacer;
+    private final TokenBucket tokens;
+    private final Map<RequestKind, Queue<Request>> queues = new EnumMap<>(RequestKind.class);
+
+    // All guarded by "this"
+    private int concurrency;
+    private int running = 0;
+    private int queued = 0;
+    private RequestKind lastKind = RequestKind.LISTINGS;
+    private boolean shutDown = false;
+    // A permit reserved from the token bucket, for the next request to start
+    private boolean permitReserved = false;
+    private long permitNanos;
+    private boolean dispatchScheduled = false;
+
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    ProviderScheduler(final int concurrency, final int requestsPerSecond) {
+        this.concurrency = Math.max(concurrency, 1);
+        tokens = new TokenBucket(requestsPerSecond, BURST);
+        for (RequestKind kind : RequestKind.values()) {
+            queues.put(kind, new ArrayDeque<>());
+        }
+        // The pool never has more threads than the concurrency limit, because we
+        // never give it more tasks than that.
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "provider-request");
+            t.setDaemon(true);
+            return t;
+        });
+        // Starts requests when the rate limit allows; see dispatch().
+        pacer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "provider-pacer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static ProviderScheduler createInstance() {
+        UserPreferences prefs = UserPreferences.getInstance();
+        ProviderScheduler scheduler = new ProviderScheduler(prefs.getProviderConcurrency(),
+                                                            prefs.getProviderRequestsPerSecond());
+        prefs.addObserver(scheduler);
+        return scheduler;
+    }
+
+    /**
+     * @return the singleton ProviderScheduler instance for this application
+     */
+    public static ProviderScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Queue a request to the provider.  It will be run when the limits allow.
+     *
+     * @param kind
+     *    what kind of request this is
+     * @param request
+     *    the code which makes the request
+     * @param <T>
+     *    the type of result the request produces
+     * @return a Future for the result of the request
+     * @throws RejectedExecutionException if the scheduler has been shut down
+     */
+    public <T> Future<T> submit(final RequestKind kind, final Callable<T> request) {
+        FutureTask<T> task = new FutureTask<>(request);
+        synchronized (this) {
+            if (shutDown) {
+                throw new RejectedExecutionException("provider scheduler has been shut down");
+            }
+            queues.get(kind).add(new Request(kind, task));
+            queued++;
+            if (queued > maxQueueDepth.get()) {
+                maxQueueDepth.set(queued);
+            }
+            dispatch();
+        }
+        return task;
+    }
+
+    /**
+     * Take the next request, alternating between the kinds of request when more
+     * than one kind is waiting.
+     *
+     * Must be called while holding the lock.
+     */
+    private Request nextRequest() {
+        RequestKind[] kinds = RequestKind.values();
+        for (int i = 1; i <= kinds.length; i++) {
+            RequestKind kind = kinds[(lastKind.ordinal() + i) % kinds.length];
+            Request request = queues.get(kind).poll();
+            if (request != null) {
+                lastKind = kind;
+                queued--;
+                return request;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Hand waiting requests to the executor while we are below the concurrency limit,
+     * and the rate limit allows.  If a request has to wait for a permit from the token
+     * bucket, it waits in the queue, and we arrange to be called again when the permit
+     * can be used.
+     *
+     * Must be called while holding the lock.
+     */
+    private void dispatch() {
+        while (!shutDown && (running < concurrency) && (queued > 0)) {
+            if (!permitReserved) {
+                permitNanos = System.nanoTime() + tokens.reserve();
+                permitReserved = true;
+            }
+            long delay = permitNanos - System.nanoTime();
+            if (delay > 0) {
+                scheduleDispatch(delay);
+                return;
+            }
+            permitReserved = false;
+            Request request = nextRequest();
+            running++;
+            try {
+                executor.execute(() -> run(request));
+            } catch (RejectedExecutionException e) {
+                running--;
+                request.task.cancel(false);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Call dispatch() again after the given delay, unless that's already arranged.
+     *
+     * Must be called while holding the lock.
+     */
+    private void scheduleDispatch(final long delayNanos) {
+        if (dispatchScheduled) {
+            return;
+        }
+        dispatchScheduled = true;
+        try {
+            pacer.schedule(() -> {
+                synchronized (this) {
+                    dispatchScheduled = false;
+                    dispatch();
+                }
+            }, delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            dispatchScheduled = false;
+        }
+    }
+
+    private void run(final Request request) {
+        try {
+            long waited = System.nanoTime() - request.queuedNanos;
+            started.incrementAndGet();
+            totalWaitNanos.addAndGet(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            request.task.run();
+        } catch (RuntimeException e) {
+            // FutureTask captures anything the request throws, so this is unexpected.
+            logger.log(Level.WARNING, "unexpected exception running " + request.kind
+                       + " request", e);
+        } finally {
+            synchronized (this) {
+                running--;
+                dispatch();
+            }
+        }
+    }
+
+    /**
+     * Change the limits.  Requests already running are not affected.
+     *
+     * @param newConcurrency
+     *    the maximum number of requests to run at once
+     * @param requestsPerSecond
+     *    the maximum average rate at which to start requests; zero or less
+     *    means no limit
+     */
+    void setLimits(final int newConcurrency, final int requestsPerSecond) {
+        tokens.setRate(requestsPerSecond);
+        synchronized (this) {
+            concurrency = Math.max(newConcurrency, 1);
+            dispatch();
+        }
+    }
+
+    /**
+     * Discard any waiting requests and interrupt any running ones, so the
+     * program can shut down.
+     */
+    public void shutDownNow() {
+        synchronized (this) {
+            shutDown = true;
+            for (Queue<Request> queue : queues.values()) {
+                for (Request request : queue) {
+                    request.task.cancel(false);
+                }
+                queue.clear();
+            }
+            queued = 0;
+        }
+        pacer.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return the number of requests waiting to start
+     */
+    public synchronized int getQueueDepth() {
+        return queued;
+    }
+
+    /**
+     * @param kind
+     *    the kind of request
+     * @return the number of requests of the given kind waiting to start
+     */
+    public synchronized int getQueueDepth(final RequestKind kind) {
+        return queues.get(kind).size();
+    }
+
+    /**
+     * @return the largest number of requests that have been waiting at once
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * @return the number of requests currently running
+     */
+    public synchronized int getRunningCount() {
+        return running;
+    }
+
+    /**
+     * @return the number of requests which have been started
+     */
+    public long getStartedCount() {
+        return started.get();
+    }
+
+    /**
+     * @return the average time, in milliseconds, requests have waited to start
+     */
+    public long getAverageWaitMillis() {
+        long count = started.get();
+        if (count == 0) {
+            return 0;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / count);
+    }
+
+    /**
+     * @return the longest time, in milliseconds, any request has waited to start
+     */
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+
+    @Override
+    public void update(Observable observable, Object value) {
+        if ((value == UserPreference.PROVIDER_LIMITS) && (observable instanceof UserPreferences)) {
+            UserPreferences prefs = (UserPreferences) observable;
+            setLimits(prefs.getProviderConcurrency(), prefs.getProviderRequestsPerSecond());
+        }
+    }
+
+    /**
+     * Standard object method to represent this ProviderScheduler as a string.
+     *
+     * @return string version of this; gives the metrics
+     */
+    @Override
+    public String toString() {
+        return "{ProviderScheduler: " + getStartedCount() + " requests started, "
+            + getQueueDepth() + " waiting (max " + getMaxQueueDepth() + "), wait "
+            + getAverageWaitMillis() + "ms average, " + getMaxWaitMillis() + "ms max}";
+    }
+}
@@ -0,0 +1,414 @@
+package org.tvrenamer.controller;
+
+import static org.tvrenamer.model.util.Constants.*;
+
+import org.tvrenamer.model.ParsedFilename;
+import org.tvrenamer.model.ShowName;
+import org.tvrenamer.model.ShowOption;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * ScanIndex -- remembers, across runs, what we learned about each file we've seen, so
+ * that when we see the same file again, we don't have to work it out again.<p>
+ *
+ * For each file, keyed by its absolute path, we store its size, modification time and
+ * file key (on systems which have one, something like the inode number), along with
+ * the result of parsing its name, and the ID and name of the series it was resolved
+ * to, if it was.  When a file is added, and its attributes (which we've read anyway)
+ * all match what we stored, we use the stored parse instead of parsing the name again,
+ * and, if we have it, the stored series, instead of searching for it.  If any of the
+ * attributes differ, the entry is simply dropped, and the file treated as new.<p>
+ *
+ * Libraries can be large, so rather than using XStream, like the other caches, the
+ * index is saved in a binary format: strings which are shared by many entries (the
+ * directory, the show name, the season and episode, the resolution, and the series)
+ * are written once, to a table, and referred to by number, and the whole thing is
+ * compressed.  A library of half a million files takes a few megabytes.<p>
+ *
+ * The index is not read until it's first needed, which will be on a scanning thread,
+ * not the UI thread.  It's written when the program exits.  Entries that haven't been
+ * seen for {@link org.tvrenamer.model.util.Constants#SCAN_INDEX_RETENTION_DAYS} days
+ * are dropped at that time.<p>
+ *
+ * If the way filenames are parsed changes, {@link #FORMAT_VERSION} must be increased,
+ * so that results from the old parser are discarded.
+ */
+public class ScanIndex {
+    private static final Logger logger = Logger.getLogger(ScanIndex.class.getName());
+
+    private static final int MAGIC = 0x54565249; // "TVRI"
+    static final int FORMAT_VERSION = 2;
+    private static final int NONE = -1;
+
+    /**
+     * What we know about a single file.
+     */
+    public static class Entry {
+        final long size;
+        final long modifiedMillis;
+        final String fileKey;
+        final ParsedFilename parsed;
+        volatile String seriesId;
+        volatile String seriesName;
+        volatile int lastSeenDay;
+
+        Entry(long size, long modifiedMillis, String fileKey, ParsedFilename parsed,
+              String seriesId, String seriesName, int lastSeenDay)
+        {
+            this.size = size;
+            this.modifiedMillis = modifiedMillis;
+            this.fileKey = fileKey;
+            this.parsed = parsed;
+            this.seriesId = seriesId;
+            this.seriesName = seriesName;
+            this.lastSeenDay = lastSeenDay;
+        }
+
+        boolean matches(final BasicFileAttributes attributes) {
+            return (attributes.size() == size)
+                && (attributes.lastModifiedTime().toMillis() == modifiedMillis)
+                && fileKey.equals(fileKeyString(attributes));
+        }
+
+        /**
+         * @return the result of parsing the file's name, or null if it could not be parsed
+         */
+        public ParsedFilename getParsedFilename() {
+            return parsed;
+        }
+
+        /**
+         * @return the ID of the series the file was resolved to, or null if it wasn't
+         */
+        public String getSeriesId() {
+            return seriesId;
+        }
+
+        /**
+         * @return the name of the series the file was resolved to, or null if it wasn't
+         */
+        public String getSeriesName() {
+            return seriesName;
+        }
+    }
+
+    private static volatile ScanIndex instance = null;
+
+    private final Path path;
+    private final int retentionDays;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty = false;
+
+    /**
+     * Create an index kept in the given file, reading it if it exists.  The
+     * application's index is obtained from {@link #getInstance}.
+     *
+     * @param path
+     *    the file the index is read from and saved to
+     * @param retentionDays
+     *    how many days an entry is kept after its file was last seen
+     */
+    public ScanIndex(final Path path, final int retentionDays) {
+        this.path = path;
+        this.retentionDays = retentionDays;
+        load();
+    }
+
+    /**
+     * Get the index, reading it from disk if this is the first time it's been asked for.
+     *
+     * @return the singleton ScanIndex instance for this application
+     */
+    public static ScanIndex getInstance() {
+        ScanIndex index = instance;
+        if (index == null) {
+            synchronized (ScanIndex.class) {
+                index = instance;
+                if (index == null) {
+                    index = new ScanIndex(SCAN_INDEX_FILE, SCAN_INDEX_RETENTION_DAYS);
+                    instance = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Save the index, if it was ever read, and has changed.  Called when the program exits.
+     */
+    public static void cleanUp() {
+        ScanIndex index = instance;
+        if (index != null) {
+            index.save();
+        }
+    }
+
+    private static String fileKeyString(final BasicFileAttributes attributes) {
+        Object key = attributes.fileKey();
+        return (key == null) ? "" : key.toString();
+    }
+
+    private static int today() {
+        return (int) TimeUnit.MILLISECONDS.toDays(System.currentTimeMillis());
+    }
+
+    /**
+     * Look up a file in the index.
+     *
+     * @param file
+     *    the absolute path of the file
+     * @param attributes
+     *    the file's current attributes
+     * @return what we know about the file, or null if we don't know anything about
+     *    it, or what we knew was about a different version of the file
+     */
+    public Entry lookup(final Path file, final BasicFileAttributes attributes) {
+        String key = file.toString();
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.matches(attributes)) {
+            logger.fine("file has changed since it was indexed: " + key);
+            entries.remove(key, entry);
+            dirty = true;
+            return null;
+        }
+        int day = today();
+        if (entry.lastSeenDay != day) {
+            entry.lastSeenDay = day;
+            dirty = true;
+        }
+        return entry;
+    }
+
+    /**
+     * Remember the result of parsing a file's name.
+     *
+     * @param file
+     *    the absolute path of the file
+     * @param attributes
+     *    the file's current attributes
+     * @param parsed
+     *    the result of parsing the file's name; null if it could not be parsed
+     */
+    public void put(final Path file, final BasicFileAttributes attributes,
+                    final ParsedFilename parsed)
+    {
+        entries.put(file.toString(),
+                    new Entry(attributes.size(), attributes.lastModifiedTime().toMillis(),
+                              fileKeyString(attributes), parsed, null, null, today()));
+        dirty = true;
+    }
+
+    /**
+     * Fill in the series of each entry whose show name has been resolved during this
+     * run.  We don't track which file was resolved to which series as it happens; the
+     * ShowName already knows, and we only need to know when we save.
+     */
+    private void updateSeries() {
+        Map<String, ShowOption> resolved = new HashMap<>();
+        for (Entry entry : entries.values()) {
+            if (entry.parsed == null) {
+                continue;
+            }
+            ShowOption option = resolved.computeIfAbsent(entry.parsed.filenameShow, show -> {
+                ShowName showName = ShowName.findShowName(show);
+                return (showName == null) ? null : showName.getMatchedShow();
+            });
+            if ((option != null) && !option.isFailedShow()
+                && !option.getIdString().equals(entry.seriesId))
+            {
+                entry.seriesId = option.getIdString();
+                entry.seriesName = option.getName();
+                dirty = true;
+            }
+        }
+    }
+
+    /*
+     * The file format: a header, the string table, and then the entries.  Strings
+     * shared between entries are written as indices into the string table, with
+     * NONE for null.
+     */
+
+    private void load() {
+        if (Files.notExists(path)) {
+            return;
+        }
+        long start = System.nanoTime();
+        try (DataInputStream in
+             = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(path)))))
+        {
+            if ((in.readInt() != MAGIC) || (in.readInt() != FORMAT_VERSION)) {
+                logger.info("scan index " + path + " is from a different version; ignoring it");
+                return;
+            }
+            String[] strings = new String[in.readInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = in.readUTF();
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String directory = strings[in.readInt()];
+                String filename = in.readUTF();
+                long size = in.readLong();
+                long modified = in.readLong();
+                String fileKey = in.readUTF();
+                ParsedFilename parsed = null;
+                if (in.readBoolean()) {
+                    String show = strings[in.readInt()];
+                    String season = strings[in.readInt()];
+                    String episode = strings[in.readInt()];
+                    String resolution = strings[in.readInt()];
+                    parsed = new ParsedFilename(show, season, episode, resolution);
+                }
+                int seriesId = in.readInt();
+                int seriesName = in.readInt();
+                int lastSeen = in.readInt();
+                entries.put(directory + filename,
+                            new Entry(size, modified, fileKey, parsed,
+                                      (seriesId == NONE) ? null : strings[seriesId],
+                                      (seriesName == NONE) ? null : strings[seriesName],
+                                      lastSeen));
+            }
+            logger.fine("loaded " + count + " indexed files in "
+                        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "unable to read scan index " + path
+                       + "; starting with an empty index", e);
+            entries.clear();
+        }
+    }
+
+    /**
+     * Assigns each distinct string a number, in the order they're first seen.
+     */
+    private static class StringTable {
+        final Map<String, Integer> indices = new HashMap<>();
+        final List<String> strings = new ArrayList<>();
+
+        int indexOf(final String string) {
+            if (string == null) {
+                return NONE;
+            }
+            return indices.computeIfAbsent(string, s -> {
+                strings.add(s);
+                return strings.size() - 1;
+            });
+        }
+    }
+
+    /**
+     * Write the index to disk, if it has changed since it was read.
+     */
+    public synchronized void save() {
+        updateSeries();
+        int oldest = today() - retentionDays;
+        if (entries.values().removeIf(entry -> entry.lastSeenDay < oldest)) {
+            dirty = true;
+        }
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        long start = System.nanoTime();
+
+        // Make one pass to build the string table, which has to be written first.
+        StringTable table = new StringTable();
+        List<Map.Entry<String, Entry>> snapshot = new ArrayList<>(entries.entrySet());
+        List<String> filenames = new ArrayList<>(snapshot.size());
+        int[] directories = new int[snapshot.size()];
+        for (int i = 0; i < snapshot.size(); i++) {
+            String key = snapshot.get(i).getKey();
+            int split = Math.max(key.lastIndexOf('/'), key.lastIndexOf('\\')) + 1;
+            directories[i] = table.indexOf(key.substring(0, split));
+            filenames.add(key.substring(split));
+            Entry entry = snapshot.get(i).getValue();
+            if (entry.parsed != null) {
+                table.indexOf(entry.parsed.filenameShow);
+                table.indexOf(entry.parsed.seasonString);
+                table.indexOf(entry.parsed.episodeString);
+                table.indexOf(entry.parsed.resolution);
+            }
+            table.indexOf(entry.seriesId);
+            table.indexOf(entry.seriesName);
+        }
+
+        try {
+            Files.createDirectories(path.getParent());
+            Path temp = Files.createTempFile(path.getParent(), "scanindex", ".tmp");
+            try (DataOutputStream out
+                 = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temp)))))
+            {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(table.strings.size());
+                for (String string : table.strings) {
+                    out.writeUTF(string);
+                }
+                out.writeInt(snapshot.size());
+                for (int i = 0; i < snapshot.size(); i++) {
+                    Entry entry = snapshot.get(i).getValue();
+                    out.writeInt(directories[i]);
+                    out.writeUTF(filenames.get(i));
+                    out.writeLong(entry.size);
+                    out.writeLong(entry.modifiedMillis);
+                    out.writeUTF(entry.fileKey);
+                    ParsedFilename parsed = entry.parsed;
+                    out.writeBoolean(parsed != null);
+                    if (parsed != null) {
+                        out.writeInt(table.indexOf(parsed.filenameShow));
+                        out.writeInt(table.indexOf(parsed.seasonString));
+                        out.writeInt(table.indexOf(parsed.episodeString));
+                        out.writeInt(table.indexOf(parsed.resolution));
+                    }
+                    out.writeInt(table.indexOf(entry.seriesId));
+                    out.writeInt(table.indexOf(entry.seriesName));
+                    out.writeInt(entry.lastSeenDay);
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            logger.fine("saved " + snapshot.size() + " indexed files in "
+                        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "unable to write scan index " + path, e);
+        }
+    }
+
+    /**
+     * @return the number of files in the index
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Standard object method to represent this ScanIndex as a string.
+     *
+     * @return string version of this; just says how many files are indexed
+     */
+    @Override
+    public String toString() {
+        return "{ScanIndex with " + entries.size() + " files}";
+    }
+}
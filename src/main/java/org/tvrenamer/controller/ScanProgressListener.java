@@ -0,0 +1,34 @@
+package org.tvrenamer.controller;
+
+/**
+ * Told how a request to add files, such as a folder or the preload folder, is going.<p>
+ *
+ * Neither method is called on the UI thread, so a listener which updates the UI
+ * must hand the work over to it (with Display.asyncExec).  For any one request, the
+ * calls never overlap, and scanFinished is always the last call.
+ */
+public interface ScanProgressListener {
+    /**
+     * Called from the EpisodeDb's publishing timer, every so often while the request
+     * is running, if more files have been found since the last call.
+     *
+     * @param description
+     *    what is being added, for showing to the user
+     * @param filesFound
+     *    how many files have been found so far
+     */
+    void scanProgress(String description, long filesFound);
+
+    /**
+     * Called from the EpisodeDb's scanning thread once the request is done, and the
+     * last of its files has been published, whether it completed or was cancelled.
+     *
+     * @param description
+     *    what was being added, for showing to the user
+     * @param filesFound
+     *    how many files were found in all
+     * @param cancelled
+     *    true if the request was cancelled before it completed
+     */
+    void scanFinished(String description, long filesFound, boolean cancelled);
+}
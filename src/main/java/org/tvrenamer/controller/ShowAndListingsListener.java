@@ -0,0 +1,9 @@
+package org.tvrenamer.controller;
+
+/**
+ * A listener for both stages of looking up a show: finding out which show a name
+ * refers to, and then getting that show's listings.  See
+ * {@link org.tvrenamer.model.ShowStore#mapStringToShowAndListings}.
+ */
+public interface ShowAndListingsListener extends ShowInformationListener, ShowListingsListener {
+}
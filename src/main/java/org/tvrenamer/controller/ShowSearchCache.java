@@ -0,0 +1,366 @@
+package org.tvrenamer.controller;
+
+import static org.tvrenamer.model.util.Constants.*;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.converters.reflection.PureJavaReflectionProvider;
+
+import org.tvrenamer.model.ShowOption;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ShowSearchCache -- remembers, across runs, what the provider told us when we searched
+ * for a query string, and which of the options we chose.<p>
+ *
+ * Libraries tend to contain the same few hundred shows, and every run used to search for
+ * every one of them again.  With this cache, ShowStore can resolve a query string it has
+ * seen before immediately, without any network access.<p>
+ *
+ * The cache is keyed by the query string (see
+ * {@link org.tvrenamer.controller.util.StringUtils#makeQueryString}), and for each one,
+ * stores the ID and name of each option, and the ID of the option that was chosen.  It is
+ * saved to a single file in the configuration directory.  Rewriting the whole file for
+ * every new search result would make a large batch cost time proportional to the square
+ * of its size, so changes only mark the cache as changed; the file is written by a
+ * background timer, at most once every
+ * {@link org.tvrenamer.model.util.Constants#SEARCH_CACHE_FLUSH_SECONDS} seconds, and
+ * when the program exits.<p>
+ *
+ * We also remember searches that failed, so that a name the provider doesn't know --
+ * which often comes from sample files and extras, in bulk -- doesn't cost a network call
+ * every time we see it.  Unlike successful results, which we keep indefinitely, failures
+ * expire: a search which returned no options is remembered for a while, since the
+ * provider's database does change, while a search which timed out is only remembered
+ * briefly, since it likely says more about the network than about the name.  Failures
+ * are saved the same way as successful results, so a folder full of names the provider
+ * doesn't know costs no more than a single write of the file.
+ */
+public class ShowSearchCache {
+    private static final Logger logger = Logger.getLogger(ShowSearchCache.class.getName());
+
+    // Use reflection provider so the default constructor is called
+    private static final XStream xstream = new XStream(new PureJavaReflectionProvider());
+
+    /**
+     * Writes changed caches to disk, a while after they change.
+     */
+    private static final ScheduledExecutorService FLUSH_TIMER
+        = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "search-cache-flush");
+            t.setDaemon(true);
+            return t;
+        });
+
+    static {
+        xstream.alias("searches", ArrayList.class);
+        xstream.alias("search", CachedSearch.class);
+        xstream.alias("option", CachedOption.class);
+    }
+
+    /**
+     * The ways a search can fail that are worth remembering.
+     */
+    public enum Failure {
+        NO_OPTIONS,
+        TIMEOUT
+    }
+
+    /**
+     * One of the options the provider gave us for a query string.
+     */
+    public static class CachedOption {
+        private String id;
+        private String name;
+
+        CachedOption() {
+            // for XStream
+        }
+
+        CachedOption(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * The result of searching for a query string: the options, in the order the
+     * provider gave them to us, and the ID of the one we chose; or, if the search
+     * failed, how it failed.
+     */
+    public static class CachedSearch {
+        private String queryString;
+        private List<CachedOption> options;
+        private String chosenId;
+        private long fetchedMillis;
+        private Failure failure;
+
+        CachedSearch() {
+            // for XStream
+        }
+
+        CachedSearch(String queryString, List<CachedOption> options, String chosenId,
+                     long fetchedMillis)
+        {
+            this.queryString = queryString;
+            this.options = options;
+            this.chosenId = chosenId;
+            this.fetchedMillis = fetchedMillis;
+        }
+
+        public String getQueryString() {
+            return queryString;
+        }
+
+        public List<CachedOption> getOptions() {
+            return Collections.unmodifiableList(options);
+        }
+
+        public String getChosenId() {
+            return chosenId;
+        }
+
+        public long getFetchedMillis() {
+            return fetchedMillis;
+        }
+
+        /**
+         * @return how the search failed, or null if it succeeded
+         */
+        public Failure getFailure() {
+            return failure;
+        }
+
+        public boolean isFailure() {
+            return (failure != null);
+        }
+    }
+
+    private static final ShowSearchCache INSTANCE
+        = new ShowSearchCache(SHOW_SEARCH_CACHE_FILE,
+                              TimeUnit.HOURS.toMillis(NO_OPTIONS_CACHE_HOURS),
+                              TimeUnit.MINUTES.toMillis(TIMEOUT_CACHE_MINUTES),
+                              TimeUnit.SECONDS.toMillis(SEARCH_CACHE_FLUSH_SECONDS));
+
+    private final Path path;
+    private final long noOptionsTtlMillis;
+    private final long timeoutTtlMillis;
+    private final long flushDelayMillis;
+    private final Map<String, CachedSearch> searches = new ConcurrentHashMap<>();
+    private volatile boolean dirty = false;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    /**
+     * Create a cache kept in the given file, reading it if it exists.  The
+     * application's cache is obtained from {@link #getInstance}.
+     *
+     * @param path
+     *    the file the cache is read from and saved to
+     * @param noOptionsTtlMillis
+     *    how long to remember that a search found no options
+     * @param timeoutTtlMillis
+     *    how long to remember that a search timed out
+     * @param flushDelayMillis
+     *    how long after a change the cache is written
+     */
+    public ShowSearchCache(final Path path, final long noOptionsTtlMillis,
+                           final long timeoutTtlMillis, final long flushDelayMillis)
+    {
+        this.path = path;
+        this.noOptionsTtlMillis = noOptionsTtlMillis;
+        this.timeoutTtlMillis = timeoutTtlMillis;
+        this.flushDelayMillis = flushDelayMillis;
+        load();
+    }
+
+    /**
+     * @return the singleton ShowSearchCache instance for this application
+     */
+    public static ShowSearchCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Save the cache, if it has changed.  Called when the program exits.
+     */
+    public static void cleanUp() {
+        INSTANCE.save();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void load() {
+        if (Files.notExists(path)) {
+            return;
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            List<CachedSearch> stored = (List<CachedSearch>) xstream.fromXML(in);
+            for (CachedSearch search : stored) {
+                if ((search.queryString != null) && (search.options != null)) {
+                    searches.put(search.queryString, search);
+                }
+            }
+            logger.fine("loaded " + searches.size() + " cached show searches");
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "unable to read show search cache " + path
+                       + "; starting with an empty cache", e);
+            searches.clear();
+        }
+    }
+
+    /**
+     * Note that the cache has changed, and make sure it will be written before long.
+     */
+    private void changed() {
+        dirty = true;
+        if (flushScheduled.compareAndSet(false, true)) {
+            FLUSH_TIMER.schedule(() -> {
+                flushScheduled.set(false);
+                save();
+            }, flushDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Write the cache to disk, if it has changed since it was read or last written.
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        // Sort by query string, so the file is stable and readable.
+        List<CachedSearch> stored = new ArrayList<>(new TreeMap<>(searches).values());
+        try {
+            Files.createDirectories(path.getParent());
+            Path temp = Files.createTempFile(path.getParent(), "searches", ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(xstream.toXML(stored));
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "unable to write show search cache " + path, e);
+            dirty = true;
+        }
+    }
+
+    /**
+     * Look up the search result for the given query string.
+     *
+     * @param queryString
+     *    the query string, as produced by makeQueryString
+     * @return the cached result, or null if we have not cached one
+     */
+    public CachedSearch lookup(final String queryString) {
+        CachedSearch cached = searches.get(queryString);
+        if ((cached != null) && isExpired(cached)) {
+            logger.fine("cached failure for \"" + queryString + "\" has expired");
+            if (searches.remove(queryString, cached)) {
+                changed();
+            }
+            return null;
+        }
+        return cached;
+    }
+
+    private boolean isExpired(final CachedSearch cached) {
+        if (cached.failure == null) {
+            return false;
+        }
+        long ttl = (cached.failure == Failure.TIMEOUT) ? timeoutTtlMillis : noOptionsTtlMillis;
+        long age = System.currentTimeMillis() - cached.fetchedMillis;
+        return (age < 0) || (age >= ttl);
+    }
+
+    /**
+     * Remember the result of searching for the given query string.
+     *
+     * @param queryString
+     *    the query string, as produced by makeQueryString
+     * @param options
+     *    the options the provider gave us, in order
+     * @param chosen
+     *    the option we chose; expected to be one of the options
+     */
+    public void put(final String queryString, final List<ShowOption> options,
+                    final ShowOption chosen)
+    {
+        List<CachedOption> cachedOptions = new ArrayList<>(options.size());
+        for (ShowOption option : options) {
+            cachedOptions.add(new CachedOption(option.getIdString(), option.getName()));
+        }
+        searches.put(queryString, new CachedSearch(queryString, cachedOptions,
+                                                   chosen.getIdString(),
+                                                   System.currentTimeMillis()));
+        changed();
+    }
+
+    /**
+     * Remember that searching for the given query string failed.  The failure will
+     * be forgotten after a time which depends on the kind of failure.
+     *
+     * @param queryString
+     *    the query string, as produced by makeQueryString
+     * @param failure
+     *    how the search failed
+     */
+    public void putFailure(final String queryString, final Failure failure) {
+        CachedSearch cached = new CachedSearch(queryString, new ArrayList<>(), null,
+                                               System.currentTimeMillis());
+        cached.failure = failure;
+        searches.put(queryString, cached);
+        changed();
+    }
+
+    /**
+     * Forget the search result for the given query string, if there is one.  This
+     * applies to both successful and failed searches.  This is useful when the user
+     * has given us information which should change the outcome, such as an override.
+     *
+     * @param queryString
+     *    the query string, as produced by makeQueryString
+     * @return true if there was a result to forget
+     */
+    public boolean evict(final String queryString) {
+        boolean removed = (searches.remove(queryString) != null);
+        if (removed) {
+            changed();
+        }
+        return removed;
+    }
+
+    /**
+     * Standard object method to represent this ShowSearchCache as a string.
+     *
+     * @return string version of this; just says how many searches are cached
+     */
+    @Override
+    public String toString() {
+        return "{ShowSearchCache with " + searches.size() + " searches}";
+    }
+}
@@ -4,6 +4,8 @@ import static org.tvrenamer.controller.util.XPathUtilities.nodeListValue;
 import static org.tvrenamer.controller.util.XPathUtilities.nodeTextValue;
 import static org.tvrenamer.model.util.Constants.*;
 
+import org.tvrenamer.controller.ListingsCache.CachedListing;
+import org.tvrenamer.controller.util.EntityFixupReader;
 import org.tvrenamer.controller.util.StringUtils;
 import org.tvrenamer.model.DiscontinuedApiException;
 import org.tvrenamer.model.EpisodeInfo;
@@ -20,13 +22,25 @@ import org.xml.sax.SAXException;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.StringReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.xpath.XPathExpressionException;
 
 public class TheTVDBProvider {
@@ -58,48 +72,36 @@ public class TheTVDBProvider {
 
     // These are the tags that we use to extract the episode information
     // from the listings document.
-    private static final String XPATH_EPISODE_LIST = "/Data/Episode";
-    private static final String XPATH_EPISODE_ID = "id";
-    private static final String XPATH_SEASON_NUM = "SeasonNumber";
-    private static final String XPATH_EPISODE_NUM = "EpisodeNumber";
-    private static final String XPATH_EPISODE_NAME = "EpisodeName";
-    private static final String XPATH_AIRDATE = "FirstAired";
-    // private static final String XPATH_EPISODE_SERIES_ID = "seriesid";
-    private static final String XPATH_DVD_SEASON_NUM = "DVD_season";
-    private static final String XPATH_DVD_EPISODE_NUM = "DVD_episodenumber";
-    // private static final String XPATH_EPISODE_NUM_ABS = "absolute_number";
-
-    private static String getShowSearchXml(final String queryString)
-        throws TVRenamerIOException, DiscontinuedApiException
-    {
-        if (apiIsDeprecated) {
-            throw new DiscontinuedApiException();
-        }
-
-        String searchURL = BASE_SEARCH_URL + StringUtils.encodeUrlCharacters(queryString);
-
-        logger.fine("About to download search results from " + searchURL);
-
-        String content = new HttpConnectionHandler().downloadUrl(searchURL);
-
-        return StringUtils.encodeSpecialCharacters(content);
+    private static final String TAG_LISTINGS = "Data";
+    private static final String TAG_EPISODE = "Episode";
+    private static final String TAG_EPISODE_ID = "id";
+    private static final String TAG_SEASON_NUM = "SeasonNumber";
+    private static final String TAG_EPISODE_NUM = "EpisodeNumber";
+    private static final String TAG_EPISODE_NAME = "EpisodeName";
+    private static final String TAG_AIRDATE = "FirstAired";
+    // private static final String TAG_EPISODE_SERIES_ID = "seriesid";
+    private static final String TAG_DVD_SEASON_NUM = "DVD_season";
+    private static final String TAG_DVD_EPISODE_NUM = "DVD_episodenumber";
+    // private static final String TAG_EPISODE_NUM_ABS = "absolute_number";
+
+    private static final ListingsCache LISTINGS_CACHE = ListingsCache.getInstance();
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        // The listings are plain data; we have no use for DTDs or external entities.
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
     }
 
-    private static String getSeriesListingXml(final Series series)
-        throws TVRenamerIOException, DiscontinuedApiException
+    private static String getShowSearchUrl(final String queryString)
+        throws DiscontinuedApiException
     {
         if (apiIsDeprecated) {
             throw new DiscontinuedApiException();
         }
 
-        int seriesId = series.getId();
-        String seriesURL = BASE_LIST_URL + seriesId + BASE_LIST_FILENAME;
-
-        logger.fine("Downloading episode listing from " + seriesURL);
-
-        String content = new HttpConnectionHandler().downloadUrl(seriesURL);
-
-        return StringUtils.encodeSpecialCharacters(content);
+        return BASE_SEARCH_URL + StringUtils.encodeUrlCharacters(queryString);
     }
 
     private static void collectShowOptions(final NodeList shows, final ShowName showName)
@@ -169,13 +171,16 @@ public class TheTVDBProvider {
             throw new TVRenamerIOException(ERROR_PARSING_XML, e);
         }
 
-        String searchXml = "";
+        String searchURL = getShowSearchUrl(showName.getQueryString());
+        logger.fine("About to download search results from " + searchURL);
         try {
-            searchXml = getShowSearchXml(showName.getQueryString());
-            InputSource source = new InputSource(new StringReader(searchXml));
-            readShowsFromInputSource(bld, source, showName);
+            // The search results are parsed as they arrive, never held as a String.
+            new HttpConnectionHandler().streamUrl(searchURL, body -> {
+                InputSource source = new InputSource(new EntityFixupReader(body));
+                readShowsFromInputSource(bld, source, showName);
+            });
         } catch (TVRenamerIOException tve) {
-            String msg  = "error parsing XML from " + searchXml + " for series "
+            String msg  = "error parsing XML from " + searchURL + " for series "
                 + showName.getExampleFilename();
             if (isApiDiscontinuedError(tve)) {
                 throw new DiscontinuedApiException();
@@ -186,57 +191,201 @@ public class TheTVDBProvider {
         }
     }
 
-    private static EpisodeInfo createEpisodeInfo(final Node eNode) {
-        try {
-            return new EpisodeInfo.Builder()
-                .episodeId(nodeTextValue(XPATH_EPISODE_ID, eNode))
-                .seasonNumber(nodeTextValue(XPATH_SEASON_NUM, eNode))
-                .episodeNumber(nodeTextValue(XPATH_EPISODE_NUM, eNode))
-                .episodeName(nodeTextValue(XPATH_EPISODE_NAME, eNode))
-                .firstAired(nodeTextValue(XPATH_AIRDATE, eNode))
-                .dvdSeason(nodeTextValue(XPATH_DVD_SEASON_NUM, eNode))
-                .dvdEpisodeNumber(nodeTextValue(XPATH_DVD_EPISODE_NUM, eNode))
-                .build();
-        } catch (Exception e) {
-            logger.log(Level.WARNING, "exception parsing episode", e);
-        }
-        return null;
+    private static EpisodeInfo createEpisodeInfo(final Map<String, String> fields) {
+        return new EpisodeInfo.Builder()
+            .episodeId(fields.get(TAG_EPISODE_ID))
+            .seasonNumber(fields.get(TAG_SEASON_NUM))
+            .episodeNumber(fields.get(TAG_EPISODE_NUM))
+            .episodeName(fields.get(TAG_EPISODE_NAME))
+            .firstAired(fields.get(TAG_AIRDATE))
+            .dvdSeason(fields.get(TAG_DVD_SEASON_NUM))
+            .dvdEpisodeNumber(fields.get(TAG_DVD_EPISODE_NUM))
+            .build();
     }
 
-    private static NodeList getEpisodeList(final Series series)
-        throws TVRenamerIOException
+    /**
+     * Read the episodes from a listings document, as a stream.<p>
+     *
+     * We are looking for the <code>/Data/Episode</code> elements, and within each of
+     * those, the text of the first child element with each name.  Each EpisodeInfo is
+     * created as soon as the end of its element is read, so nothing is kept from the
+     * document except the information we actually use.<p>
+     *
+     * The EpisodeInfos are collected, though, and none is handed on until the whole
+     * document has been read; see {@link #addEpisodes} for why.
+     *
+     * @param listingsXml
+     *   the listings document
+     * @return a list of the EpisodeInfos found in the document, in document order
+     * @throws XMLStreamException if the document cannot be parsed
+     */
+    static List<EpisodeInfo> readEpisodeInfos(final Reader listingsXml)
+        throws XMLStreamException
     {
-        NodeList episodeList;
-
-        DocumentBuilder dbf;
+        List<EpisodeInfo> infos = new ArrayList<>();
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(listingsXml);
         try {
-            dbf = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-        } catch (ParserConfigurationException e) {
-            logger.log(Level.WARNING, "could not create DocumentBuilder: " + e.getMessage(), e);
-            throw new TVRenamerIOException(ERROR_PARSING_XML, e);
+            boolean inListings = false;
+            Map<String, String> fields = null;
+            String field = null;
+            StringBuilder text = new StringBuilder();
+            int depth = 0;
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        depth++;
+                        String tag = reader.getLocalName();
+                        if (depth == 1) {
+                            inListings = TAG_LISTINGS.equals(tag);
+                        } else if ((depth == 2) && inListings && TAG_EPISODE.equals(tag)) {
+                            fields = new HashMap<>();
+                        } else if ((depth == 3) && (fields != null) && !fields.containsKey(tag)) {
+                            field = tag;
+                            text.setLength(0);
+                        }
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        if (field != null) {
+                            text.append(reader.getText());
+                        }
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        if ((depth == 3) && (field != null)) {
+                            fields.put(field, text.toString());
+                            field = null;
+                        } else if ((depth == 2) && (fields != null)) {
+                            infos.add(createEpisodeInfo(fields));
+                            fields = null;
+                        }
+                        depth--;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } finally {
+            reader.close();
         }
+        return infos;
+    }
 
+    /**
+     * Read the episodes from the given listings document, and add them to the Series.<p>
+     *
+     * Nothing is added unless the whole document can be read.  If a download fails
+     * part way through, {@link #getSeriesListing} falls back on the cached copy, and
+     * that should be added to a Series which has none of the downloaded episodes.
+     *
+     * @param series
+     *   the Series the listings are for
+     * @param listingsXml
+     *   the listings document, as it came from the provider
+     * @throws TVRenamerIOException if the document cannot be parsed
+     */
+    private static void addEpisodes(final Series series, final Reader listingsXml)
+        throws TVRenamerIOException
+    {
+        List<EpisodeInfo> infos;
         try {
-            String listingsXml = getSeriesListingXml(series);
-            InputSource listingsXmlSource = new InputSource(new StringReader(listingsXml));
-            Document doc = dbf.parse(listingsXmlSource);
-            episodeList = nodeListValue(XPATH_EPISODE_LIST, doc);
-        } catch (XPathExpressionException | SAXException | DOMException e) {
+            infos = readEpisodeInfos(new EntityFixupReader(listingsXml));
+        } catch (XMLStreamException e) {
             logger.log(Level.WARNING, "exception parsing episodes for " + series + ": "
                        + e.getMessage(), e);
             throw new TVRenamerIOException(ERROR_PARSING_XML, e);
+        }
+        try {
+            series.addEpisodeInfos(infos.toArray(new EpisodeInfo[infos.size()]));
         } catch (NumberFormatException nfe) {
             logger.log(Level.WARNING, nfe.getMessage(), nfe);
             throw new TVRenamerIOException(ERROR_PARSING_NUMBERS, nfe);
+        }
+    }
+
+    /**
+     * Add the episodes from the cached listings document to the Series.
+     *
+     * @return true if the episodes were added; false if the cached document
+     *   could not be read
+     */
+    private static boolean addCachedEpisodes(final Series series, final CachedListing cached) {
+        try (Reader listingsXml = LISTINGS_CACHE.openDocument(cached)) {
+            addEpisodes(series, listingsXml);
+            return true;
         } catch (IOException ioe) {
-            logger.log(Level.WARNING, ioe.getMessage(), ioe);
-            throw new TVRenamerIOException(DOWNLOADING_FAILED_MESSAGE, ioe);
+            logger.log(Level.WARNING, "unable to use cached listings " + cached, ioe);
+            return false;
+        }
+    }
+
+    /**
+     * Download the listings document, unless the cached version is still good, and add
+     * the episodes to the series.  Saves the downloaded document in the cache.
+     *
+     * @return true if the document was downloaded; false if the server told us the
+     *   cached version had not changed
+     */
+    private static boolean downloadEpisodes(final Series series, final String seriesId,
+                                            final CachedListing cached)
+        throws TVRenamerIOException
+    {
+        String seriesURL = BASE_LIST_URL + seriesId + BASE_LIST_FILENAME;
+        logger.fine("Downloading episode listing from " + seriesURL);
+
+        String etag = (cached == null) ? null : cached.getEtag();
+        String lastModified = (cached == null) ? null : cached.getLastModified();
+        return new HttpConnectionHandler().streamUrlIfModified(seriesURL, etag, lastModified,
+            (body, newEtag, newLastModified) -> {
+                Path download = LISTINGS_CACHE.createTempDocument();
+                boolean added = false;
+                try {
+                    try (Writer copy = Files.newBufferedWriter(download, StandardCharsets.UTF_8)) {
+                        addEpisodes(series, ListingsCache.copying(body, copy));
+                    }
+                    added = true;
+                } finally {
+                    if (added) {
+                        LISTINGS_CACHE.store(seriesId, DEFAULT_LANGUAGE, download,
+                                             newEtag, newLastModified);
+                    } else {
+                        LISTINGS_CACHE.discard(download);
+                    }
+                }
+            });
+    }
+
+    /**
+     * Add the episodes to the given Series from the cached listings, if we have a copy
+     * which is still fresh, without going to the network at all.  This is separate from
+     * {@link #getSeriesListing} so that it can be done without waiting for the limits on
+     * requests to the provider.
+     *
+     * @param series
+     *   the Series to add the episode listings to
+     * @return true if the listings were added from the cache; false if there is no
+     *   fresh copy, or it could not be read
+     */
+    public static boolean getCachedSeriesListing(final Series series) {
+        String seriesId = String.valueOf(series.getId());
+        CachedListing cached = LISTINGS_CACHE.lookup(seriesId, DEFAULT_LANGUAGE);
+        if ((cached != null) && (apiIsDeprecated || LISTINGS_CACHE.isFresh(cached))
+            && addCachedEpisodes(series, cached))
+        {
+            LISTINGS_CACHE.recordHit();
+            series.listingsSucceeded();
+            return true;
         }
-        return episodeList;
+        return false;
     }
 
     /**
-     * Fetch the episode listings from the provider, for the given Series.
+     * Fetch the episode listings from the provider, for the given Series.<p>
+     *
+     * If we have a cached copy of the listings which is still fresh, we use it
+     * without going to the network at all.  Otherwise, the listings are parsed as
+     * they are downloaded, and saved in the cache.  If the download fails but we
+     * have a stale copy, we use that rather than failing.
      *
      * @param series
      *   the Series to fetch the episode listings for
@@ -247,25 +396,38 @@ public class TheTVDBProvider {
     public static void getSeriesListing(final Series series)
         throws TVRenamerIOException
     {
-        try {
-            NodeList episodes = getEpisodeList(series);
-            int episodeCount = episodes.getLength();
+        String seriesId = String.valueOf(series.getId());
+        CachedListing cached = LISTINGS_CACHE.lookup(seriesId, DEFAULT_LANGUAGE);
+        if ((cached != null) && (apiIsDeprecated || LISTINGS_CACHE.isFresh(cached))) {
+            if (addCachedEpisodes(series, cached)) {
+                LISTINGS_CACHE.recordHit();
+                series.listingsSucceeded();
+                return;
+            }
+            cached = null;
+        }
+        if (apiIsDeprecated) {
+            throw new DiscontinuedApiException();
+        }
 
-            EpisodeInfo[] episodeInfos = new EpisodeInfo[episodeCount];
-            for (int i = 0; i < episodeCount; i++) {
-                episodeInfos[i] = createEpisodeInfo(episodes.item(i));
+        boolean downloaded;
+        try {
+            downloaded = downloadEpisodes(series, seriesId, cached);
+        } catch (TVRenamerIOException tve) {
+            if ((cached == null) || !addCachedEpisodes(series, cached)) {
+                throw tve;
             }
-            series.addEpisodeInfos(episodeInfos);
+            logger.warning("unable to refresh listings for " + series + "; using cached version");
             series.listingsSucceeded();
-        } catch (DOMException dom) {
-            logger.log(Level.WARNING, dom.getMessage(), dom);
-            throw new TVRenamerIOException(ERROR_PARSING_XML, dom);
-        } catch (NumberFormatException nfe) {
-            logger.log(Level.WARNING, nfe.getMessage(), nfe);
-            throw new TVRenamerIOException(ERROR_PARSING_NUMBERS, nfe);
-        } catch (IOException ioe) {
-            logger.warning(ioe.getMessage());
-            throw new TVRenamerIOException(DOWNLOADING_FAILED_MESSAGE, ioe);
+            return;
+        }
+        if (downloaded) {
+            LISTINGS_CACHE.recordMiss();
+        } else if ((cached != null) && addCachedEpisodes(series, cached)) {
+            LISTINGS_CACHE.revalidated(cached);
+        } else {
+            throw new TVRenamerIOException(ERROR_PARSING_XML);
         }
+        series.listingsSucceeded();
     }
 }
@@ -0,0 +1,186 @@
+package org.tvrenamer.controller.util;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * EntityFixupReader -- does the same fixup as {@link StringUtils#encodeSpecialCharacters},
+ * but on a stream, so a downloaded document never needs to be held in memory.<p>
+ *
+ * An ampersand followed by a space is not legal XML, but the provider sometimes sends
+ * one anyway; it becomes "&amp;amp; ".  And, as with encodeSpecialCharacters, if the
+ * text does not begin with an XML declaration, every space becomes "%20".<p>
+ *
+ * The text is read from the underlying Reader in blocks, and fixed up a block at a
+ * time.  Only the first few characters need to be seen before the first block can be
+ * passed on, and an ampersand at the very end of a block is held back until we know
+ * what follows it.
+ */
+public class EntityFixupReader extends FilterReader {
+
+    private static final String XML_DECLARATION = "<?xml";
+    private static final String ESCAPED_AMPERSAND = "&amp;";
+    private static final String ENCODED_SPACE = "%20";
+    private static final int BLOCK_SIZE = 8192;
+
+    // Text read from the underlying reader, not yet fixed up.
+    private final char[] raw = new char[BLOCK_SIZE];
+    private int rawStart = 0;
+    private int rawEnd = 0;
+    private boolean endOfInput = false;
+
+    // Fixed up text, not yet read from us.  Each raw character becomes at most four.
+    private final char[] fixed = new char[4 * BLOCK_SIZE];
+    private int fixedStart = 0;
+    private int fixedEnd = 0;
+
+    // Null until we've seen enough to know whether the text begins with an XML declaration.
+    private Boolean encodeSpaces = null;
+
+    /**
+     * Create a reader which fixes up the text from the given reader.
+     *
+     * @param in
+     *    the reader to fix up the text of
+     */
+    public EntityFixupReader(final Reader in) {
+        super(in);
+    }
+
+    /**
+     * Read more text from the underlying reader, if there is any, without losing
+     * the text already read and not yet fixed up.
+     */
+    private void readRaw() throws IOException {
+        if (rawStart > 0) {
+            System.arraycopy(raw, rawStart, raw, 0, rawEnd - rawStart);
+            rawEnd -= rawStart;
+            rawStart = 0;
+        }
+        int count = 0;
+        while (count == 0) {
+            count = in.read(raw, rawEnd, raw.length - rawEnd);
+        }
+        if (count < 0) {
+            endOfInput = true;
+        } else {
+            rawEnd += count;
+        }
+    }
+
+    private void appendFixed(final String text) {
+        text.getChars(0, text.length(), fixed, fixedEnd);
+        fixedEnd += text.length();
+    }
+
+    private void appendSpace() {
+        if (encodeSpaces) {
+            appendFixed(ENCODED_SPACE);
+        } else {
+            fixed[fixedEnd++] = ' ';
+        }
+    }
+
+    /**
+     * Fix up the next block of text.
+     *
+     * @return false if there is no more text to fix up
+     */
+    private boolean fixNextBlock() throws IOException {
+        fixedStart = 0;
+        fixedEnd = 0;
+
+        // To make progress, we need to be able to see what follows an ampersand;
+        // and, at the start, whether there is an XML declaration.
+        int needed = (encodeSpaces == null) ? XML_DECLARATION.length() : 2;
+        while (!endOfInput && ((rawEnd - rawStart) < needed)) {
+            readRaw();
+        }
+        if (encodeSpaces == null) {
+            encodeSpaces = !new String(raw, rawStart, rawEnd - rawStart)
+                .startsWith(XML_DECLARATION);
+        }
+        if (rawStart == rawEnd) {
+            return false;
+        }
+
+        int i = rawStart;
+        while (i < rawEnd) {
+            char c = raw[i];
+            if ((c == '&') && (i + 1 == rawEnd) && !endOfInput) {
+                // Wait until we know what comes next.  Since we have at least two
+                // characters, something has been fixed up already.
+                break;
+            } else if ((c == '&') && (i + 1 < rawEnd) && (raw[i + 1] == ' ')) {
+                appendFixed(ESCAPED_AMPERSAND);
+                appendSpace();
+                i += 2;
+            } else if (c == ' ') {
+                appendSpace();
+                i++;
+            } else {
+                fixed[fixedEnd++] = c;
+                i++;
+            }
+        }
+        rawStart = i;
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if ((fixedStart == fixedEnd) && !fixNextBlock()) {
+            return -1;
+        }
+        return fixed[fixedStart++];
+    }
+
+    @Override
+    public int read(final char[] cbuf, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if ((fixedStart == fixedEnd) && !fixNextBlock()) {
+            return -1;
+        }
+        int count = Math.min(len, fixedEnd - fixedStart);
+        System.arraycopy(fixed, fixedStart, cbuf, off, count);
+        fixedStart += count;
+        return count;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n) {
+            if ((fixedStart == fixedEnd) && !fixNextBlock()) {
+                break;
+            }
+            int count = (int) Math.min(n - skipped, fixedEnd - fixedStart);
+            fixedStart += count;
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean ready() throws IOException {
+        return (fixedStart < fixedEnd) || in.ready();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(final int readAheadLimit) throws IOException {
+        throw new IOException("mark not supported");
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("reset not supported");
+    }
+}
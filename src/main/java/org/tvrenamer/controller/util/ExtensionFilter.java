@@ -0,0 +1,89 @@
+package org.tvrenamer.controller.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * ExtensionFilter -- decides, from nothing but a file's name, whether the file is
+ * worth looking at.<p>
+ *
+ * Folders of downloaded episodes are full of other things: .nfo files, subtitles,
+ * cover images, checksums, and partial downloads.  Creating a FileEpisode for each
+ * of those costs a look at the disk and a full parse of the name, only to end up
+ * with a row that can't be renamed.  This check is done first, and costs almost
+ * nothing.<p>
+ *
+ * There are two lists.  If the list of media extensions is not empty, only files
+ * with one of those extensions are accepted.  Files with an extension on the list of
+ * skipped extensions are never accepted.  Extensions are compared without the dot,
+ * and without regard to case.  A file with no extension is accepted only if the list
+ * of media extensions is empty.<p>
+ *
+ * An ExtensionFilter is immutable, and may be used from any number of threads at once.
+ */
+public class ExtensionFilter {
+
+    private final Set<String> mediaExtensions;
+    private final Set<String> skippedExtensions;
+
+    /**
+     * Build a filter from the given lists.
+     *
+     * @param mediaExtensions
+     *    the extensions to accept; if empty, accept any extension that isn't skipped
+     * @param skippedExtensions
+     *    the extensions never to accept
+     */
+    public ExtensionFilter(final Collection<String> mediaExtensions,
+                           final Collection<String> skippedExtensions)
+    {
+        this.mediaExtensions = normalize(mediaExtensions);
+        this.skippedExtensions = normalize(skippedExtensions);
+    }
+
+    private static Set<String> normalize(final Collection<String> extensions) {
+        Set<String> normalized = new HashSet<>();
+        for (String extension : extensions) {
+            String trimmed = extension.trim();
+            if (trimmed.startsWith(".")) {
+                trimmed = trimmed.substring(1);
+            }
+            if (!trimmed.isEmpty()) {
+                normalized.add(trimmed.toLowerCase(Locale.ROOT));
+            }
+        }
+        return Collections.unmodifiableSet(normalized);
+    }
+
+    /**
+     * Decide whether a file should be looked at.
+     *
+     * @param fileName
+     *    the name of the file; just the last element of the path
+     * @return true if the file's extension is acceptable
+     */
+    public boolean accepts(final String fileName) {
+        String extension = StringUtils.getExtension(fileName);
+        if (extension.isEmpty()) {
+            return mediaExtensions.isEmpty();
+        }
+        extension = extension.substring(1).toLowerCase(Locale.ROOT);
+        if (skippedExtensions.contains(extension)) {
+            return false;
+        }
+        return mediaExtensions.isEmpty() || mediaExtensions.contains(extension);
+    }
+
+    /**
+     * Standard object method to represent this ExtensionFilter as a string.
+     *
+     * @return string version of this; gives the two lists
+     */
+    @Override
+    public String toString() {
+        return "{ExtensionFilter: media " + mediaExtensions + ", skipped " + skippedExtensions + "}";
+    }
+}
@@ -0,0 +1,372 @@
+package org.tvrenamer.controller.util;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * FolderWatcher -- notices files as they arrive in a folder, and tells the listener
+ * about them once they have finished arriving.<p>
+ *
+ * A file copied (or downloaded) into the folder shows up as soon as it's created,
+ * and then grows for however long the copy takes.  So, when we hear about a new or
+ * changed file, we don't pass it on right away; we note its size and modification
+ * time, and pass it on only once neither has changed for a "quiet" period.<p>
+ *
+ * Only the entries we hear about are looked at; the tree is not rescanned.  The
+ * exceptions are a new subdirectory, whose contents may have arrived before we
+ * started watching it, and an overflow, where the operating system tells us it
+ * dropped some events; in those cases, we look at that one directory.  (After an
+ * overflow, any subdirectory we aren't yet watching is new, and is looked at as a
+ * new subdirectory; the ones we are watching are left alone.)<p>
+ *
+ * All the directories are registered with a single WatchService, and a single
+ * thread waits on it, so watching thousands of directories costs one thread.  On
+ * Linux, each directory uses up one inotify watch; if the system runs out of those,
+ * we log it, and carry on watching the directories we were able to register.
+ */
+public class FolderWatcher {
+    private static final Logger logger = Logger.getLogger(FolderWatcher.class.getName());
+
+    /**
+     * Receives the files the watcher finds.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * Called from the watcher's thread with the files that have arrived and are
+         * no longer changing.
+         *
+         * @param files
+         *    the new files, with the attributes they had when they were judged
+         *    complete
+         */
+        void filesArrived(Map<Path, BasicFileAttributes> files);
+    }
+
+    /**
+     * What we last saw of a file which has not yet been quiet long enough.
+     */
+    private static class Pending {
+        long size;
+        FileTime modified;
+        long changedNanos;
+
+        Pending(final BasicFileAttributes attributes, final long now) {
+            size = attributes.size();
+            modified = attributes.lastModifiedTime();
+            changedNanos = now;
+        }
+
+        /**
+         * @return true if the file is the same as when we last looked
+         */
+        boolean update(final BasicFileAttributes attributes, final long now) {
+            if ((attributes.size() == size) && attributes.lastModifiedTime().equals(modified)) {
+                return true;
+            }
+            size = attributes.size();
+            modified = attributes.lastModifiedTime();
+            changedNanos = now;
+            return false;
+        }
+    }
+
+    private final Path root;
+    private final boolean recursive;
+    private final long quietNanos;
+    private final Listener listener;
+
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watched = new HashMap<>();
+    private final Set<Path> watchedDirectories = new HashSet<>();
+    private final Map<Path, Pending> pending = new LinkedHashMap<>();
+    private final Thread thread;
+    private boolean registrationFailed = false;
+    private volatile boolean closed = false;
+
+    /**
+     * Create a watcher.  It does nothing until {@link #start} is called.
+     *
+     * @param root
+     *    the folder to watch
+     * @param recursive
+     *    whether to watch the folder's subdirectories, too
+     * @param quietMillis
+     *    how long, in milliseconds, a file's size and modification time must stay
+     *    the same before we consider it complete
+     * @param listener
+     *    what to tell about new files
+     * @throws IOException if the platform's WatchService can't be created
+     */
+    public FolderWatcher(final Path root, final boolean recursive, final long quietMillis,
+                         final Listener listener)
+        throws IOException
+    {
+        this.root = root;
+        this.recursive = recursive;
+        this.quietNanos = TimeUnit.MILLISECONDS.toNanos(quietMillis);
+        this.listener = listener;
+        watchService = FileSystems.getDefault().newWatchService();
+        thread = new Thread(this::run, "folder-watcher");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Start watching, in the background.  Files already in the folder are not
+     * reported; only those which arrive from now on.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Stop watching.  Files which are still waiting to become quiet are dropped.
+     */
+    public void close() {
+        closed = true;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.log(Level.FINE, "error closing watch service", e);
+        }
+    }
+
+    /**
+     * @return the number of directories being watched; this is only meant for
+     *    logging and testing, and may be slightly out of date
+     */
+    public synchronized int getWatchedCount() {
+        return watched.size();
+    }
+
+    private synchronized void register(final Path directory) {
+        try {
+            watched.put(directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE),
+                        directory);
+            watchedDirectories.add(directory);
+        } catch (IOException e) {
+            // On Linux, most likely, we've run out of inotify watches.  Say so once,
+            // rather than once for every remaining directory.
+            if (!registrationFailed) {
+                registrationFailed = true;
+                logger.warning("unable to watch " + directory + " (" + e.getMessage()
+                               + "); new files in it, and in any other directories we"
+                               + " can't watch, will not be noticed");
+            }
+        } catch (ClosedWatchServiceException e) {
+            // We're shutting down.
+        }
+    }
+
+    /**
+     * Watch the given directory and, if we're recursive, all the directories under it.
+     * This does not use ParallelFileWalker, because it's looking for directories, not
+     * files, and because registering with the WatchService is quick; there's no point
+     * in using more than this one thread.
+     *
+     * @param top
+     *    the directory to start at
+     * @param foundFiles
+     *    if true, the files found along the way are treated as new
+     */
+    private void registerTree(final Path top, final boolean foundFiles) {
+        Deque<Path> directories = new ArrayDeque<>();
+        Set<Object> visited = new HashSet<>();
+        directories.add(top);
+        while (!directories.isEmpty() && !closed) {
+            Path directory = directories.remove();
+            register(directory);
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    BasicFileAttributes attributes = ParallelFileWalker.readVisibleAttributes(entry);
+                    if (attributes == null) {
+                        continue;
+                    }
+                    if (recursive && attributes.isDirectory()) {
+                        Object key = attributes.fileKey();
+                        if ((key == null) || visited.add(key)) {
+                            directories.add(entry);
+                        }
+                    } else if (foundFiles && attributes.isRegularFile()) {
+                        noteChanged(entry, attributes);
+                    }
+                }
+            } catch (IOException | SecurityException e) {
+                logger.warning("IO Exception descending " + directory);
+            }
+        }
+    }
+
+    private void noteChanged(final Path file, final BasicFileAttributes attributes) {
+        long now = System.nanoTime();
+        Pending seen = pending.get(file);
+        if (seen == null) {
+            pending.put(file, new Pending(attributes, now));
+        } else {
+            seen.update(attributes, now);
+        }
+    }
+
+    private synchronized boolean isWatched(final Path directory) {
+        return watchedDirectories.contains(directory);
+    }
+
+    /**
+     * Look again at the files in the given directory, after we've lost events for it.
+     * Subdirectories we're already watching are not looked at; any others are new.
+     *
+     * @param directory
+     *    the directory to look at
+     */
+    private void rescanDirectory(final Path directory) {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                BasicFileAttributes attributes = ParallelFileWalker.readVisibleAttributes(entry);
+                if (attributes == null) {
+                    continue;
+                }
+                if (attributes.isDirectory()) {
+                    if (recursive && !isWatched(entry)) {
+                        registerTree(entry, true);
+                    }
+                } else if (attributes.isRegularFile()) {
+                    noteChanged(entry, attributes);
+                }
+            }
+        } catch (IOException | SecurityException e) {
+            logger.warning("IO Exception looking at " + directory);
+        }
+    }
+
+    private void handleEvent(final Path directory, final WatchEvent<?> event) {
+        if (event.kind() == OVERFLOW) {
+            logger.fine("events lost in " + directory + "; looking at it again");
+            rescanDirectory(directory);
+            return;
+        }
+        Path entry = directory.resolve((Path) event.context());
+        if (event.kind() == ENTRY_DELETE) {
+            pending.remove(entry);
+            return;
+        }
+        BasicFileAttributes attributes = ParallelFileWalker.readVisibleAttributes(entry);
+        if (attributes == null) {
+            return;
+        }
+        if (attributes.isDirectory()) {
+            if (recursive && (event.kind() == ENTRY_CREATE)) {
+                registerTree(entry, true);
+            }
+        } else if (attributes.isRegularFile()) {
+            noteChanged(entry, attributes);
+        }
+    }
+
+    /**
+     * Look again at each file we're waiting on, and pass on the ones that have
+     * been quiet long enough.
+     */
+    private void reportQuietFiles() {
+        Map<Path, BasicFileAttributes> arrived = new LinkedHashMap<>();
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Path, Pending>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Path, Pending> entry = it.next();
+            Pending seen = entry.getValue();
+            if ((now - seen.changedNanos) < quietNanos) {
+                continue;
+            }
+            BasicFileAttributes attributes = ParallelFileWalker.readVisibleAttributes(entry.getKey());
+            if ((attributes == null) || !attributes.isRegularFile()) {
+                it.remove();
+            } else if (seen.update(attributes, now)) {
+                it.remove();
+                arrived.put(entry.getKey(), attributes);
+            }
+        }
+        if (!arrived.isEmpty()) {
+            try {
+                listener.filesArrived(arrived);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "error handling new files in " + root, e);
+            }
+        }
+    }
+
+    private void run() {
+        registerTree(root, false);
+        logger.info("watching " + getWatchedCount() + " directories under " + root);
+        long pollMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(quietNanos) / 2);
+        while (!closed) {
+            WatchKey key;
+            try {
+                if (pending.isEmpty()) {
+                    key = watchService.take();
+                } else {
+                    key = watchService.poll(pollMillis, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                break;
+            }
+            try {
+                while (key != null) {
+                    Path directory;
+                    synchronized (this) {
+                        directory = watched.get(key);
+                    }
+                    if (directory != null) {
+                        for (WatchEvent<?> event : key.pollEvents()) {
+                            handleEvent(directory, event);
+                        }
+                    }
+                    if (!key.reset()) {
+                        // The directory is gone.
+                        synchronized (this) {
+                            watchedDirectories.remove(watched.remove(key));
+                        }
+                    }
+                    key = watchService.poll();
+                }
+            } catch (ClosedWatchServiceException e) {
+                break;
+            }
+            reportQuietFiles();
+        }
+        logger.fine("stopped watching " + root);
+    }
+
+    /**
+     * Standard object method to represent this FolderWatcher as a string.
+     *
+     * @return string version of this; gives the root and the number of directories
+     */
+    @Override
+    public String toString() {
+        return "{FolderWatcher: " + root + ", " + getWatchedCount() + " directories}";
+    }
+}
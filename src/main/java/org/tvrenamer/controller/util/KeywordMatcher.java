@@ -0,0 +1,164 @@
+package org.tvrenamer.controller.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * KeywordMatcher -- finds which of a list of keywords occurs in a string, looking at
+ * the string just once, however many keywords there are.<p>
+ *
+ * This is an Aho-Corasick automaton: the keywords are compiled, once, into a state
+ * machine, which then reads the string one character at a time.  Checking each keyword
+ * separately with String.contains costs time proportional to the number of keywords
+ * times the length of the string; this costs time proportional to the length of the
+ * string alone.<p>
+ *
+ * Matching is case-sensitive, exactly like String.contains.  If more than one keyword
+ * occurs in the string, the one that comes first in the list is reported, again just
+ * as if the keywords had been checked in order.<p>
+ *
+ * A KeywordMatcher is immutable, and may be used from any number of threads at once.
+ * To change the keywords, build a new one.
+ */
+public class KeywordMatcher {
+
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+
+    private final List<String> keywords;
+
+    // Characters which appear in any keyword are numbered from 1; every other
+    // character is 0.  charClass is indexed by the character itself, so it only
+    // goes up to the highest character in any keyword.
+    private final int[] charClass;
+    private final int nClasses;
+
+    // The automaton, with the failure links already followed: the next state for
+    // state s and character class c is transitions[s * nClasses + c].
+    private final int[] transitions;
+
+    // For each state, the position in the list of the first keyword which ends at
+    // that state (including via failure links), or NO_MATCH.
+    private final int[] firstMatch;
+
+    /**
+     * Build a matcher for the given keywords.
+     *
+     * @param keywords
+     *    the keywords to look for, in order of precedence
+     */
+    public KeywordMatcher(final List<String> keywords) {
+        this.keywords = Collections.unmodifiableList(new ArrayList<>(keywords));
+
+        int maxChar = 0;
+        for (String keyword : keywords) {
+            for (int i = 0; i < keyword.length(); i++) {
+                maxChar = Math.max(maxChar, keyword.charAt(i));
+            }
+        }
+        charClass = new int[maxChar + 1];
+        int classes = 1;
+        for (String keyword : keywords) {
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                if (charClass[c] == 0) {
+                    charClass[c] = classes++;
+                }
+            }
+        }
+        nClasses = classes;
+
+        // First build the trie.  A state's transitions start out as -1, "none".
+        int maxStates = 1;
+        for (String keyword : keywords) {
+            maxStates += keyword.length();
+        }
+        int[] trie = new int[maxStates * nClasses];
+        Arrays.fill(trie, -1);
+        int[] first = new int[maxStates];
+        Arrays.fill(first, NO_MATCH);
+        int nStates = 1;
+        for (int k = 0; k < keywords.size(); k++) {
+            String keyword = keywords.get(k);
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                int slot = state * nClasses + charClass[keyword.charAt(i)];
+                if (trie[slot] < 0) {
+                    trie[slot] = nStates++;
+                }
+                state = trie[slot];
+            }
+            first[state] = Math.min(first[state], k);
+        }
+
+        // Then, breadth first, fill in the missing transitions from each state's
+        // failure state (the state for the longest proper suffix of its string that
+        // is also in the trie), which is always nearer the root, and so is done.
+        int[] failure = new int[nStates];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < nClasses; c++) {
+            int next = trie[c];
+            if (next < 0) {
+                trie[c] = 0;
+            } else {
+                failure[next] = 0;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.remove();
+            first[state] = Math.min(first[state], first[failure[state]]);
+            for (int c = 0; c < nClasses; c++) {
+                int slot = state * nClasses + c;
+                int fallback = trie[failure[state] * nClasses + c];
+                if (trie[slot] < 0) {
+                    trie[slot] = fallback;
+                } else {
+                    failure[trie[slot]] = fallback;
+                    queue.add(trie[slot]);
+                }
+            }
+        }
+        transitions = Arrays.copyOf(trie, nStates * nClasses);
+        firstMatch = Arrays.copyOf(first, nStates);
+    }
+
+    /**
+     * @return the keywords this matcher looks for
+     */
+    public List<String> getKeywords() {
+        return keywords;
+    }
+
+    /**
+     * Find the first keyword, in list order, which occurs in the given text.
+     *
+     * @param text
+     *    the string to look in
+     * @return the first keyword found in the text, or null if none of them are
+     */
+    public String firstMatch(final String text) {
+        int best = firstMatch[0];
+        int state = 0;
+        for (int i = 0; (i < text.length()) && (best > 0); i++) {
+            char c = text.charAt(i);
+            int cls = (c < charClass.length) ? charClass[c] : 0;
+            state = transitions[state * nClasses + cls];
+            best = Math.min(best, firstMatch[state]);
+        }
+        return (best == NO_MATCH) ? null : keywords.get(best);
+    }
+
+    /**
+     * Standard object method to represent this KeywordMatcher as a string.
+     *
+     * @return string version of this; gives the keywords and the size of the automaton
+     */
+    @Override
+    public String toString() {
+        return "{KeywordMatcher: " + keywords + ", " + firstMatch.length + " states}";
+    }
+}
@@ -0,0 +1,319 @@
+package org.tvrenamer.controller.util;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ParallelFileWalker -- finds all the visible, regular files under a path, using
+ * several threads, and reading the attributes of each entry only once.<p>
+ *
+ * Walking a directory tree one entry at a time, and asking separately whether each
+ * entry exists, whether it's hidden, whether it's a directory, and how big it is,
+ * costs a round-trip each, which adds up quickly on a network mount.  Instead, we
+ * read all of an entry's attributes in one call (on Windows, the DOS attributes,
+ * which include the "hidden" flag), and hand those attributes, along with the path,
+ * to the caller, so it doesn't need to look at the file again.<p>
+ *
+ * Each directory is listed in its own fork/join task, so separate subtrees are read
+ * at the same time, and idle threads take work from busy ones.  The visitor is called
+ * from those threads, so it must be thread-safe.  A {@link BatchVisitor} is given the
+ * files of each directory a few dozen at a time, rather than one by one, so it can
+ * spread its own work on them over the pool.<p>
+ *
+ * Like the code it replaces, the walker follows symbolic links; it remembers which
+ * directories it has seen, where the file system allows, so a link cycle does not
+ * send it around forever.
+ */
+public class ParallelFileWalker {
+    private static final Logger logger = Logger.getLogger(ParallelFileWalker.class.getName());
+
+    /**
+     * The threads mostly wait on the file system, so we use more of them than
+     * there are processors.
+     */
+    private static final int PARALLELISM
+        = Math.max(8, 2 * Runtime.getRuntime().availableProcessors());
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(PARALLELISM);
+
+    /**
+     * The most files to hand to a BatchVisitor at once.
+     */
+    private static final int FILE_BATCH_SIZE = 64;
+
+    // Whether a file is hidden is an attribute on Windows, but a naming convention
+    // elsewhere (even where the file system can store DOS attributes, as Linux can).
+    private static final boolean DOS_ATTRIBUTES
+        = "\\".equals(FileSystems.getDefault().getSeparator());
+
+    /**
+     * Receives the files the walker finds.
+     */
+    @FunctionalInterface
+    public interface Visitor {
+        /**
+         * Called once for each visible, regular file.  May be called from several
+         * threads at once.
+         *
+         * @param file
+         *    the path to the file
+         * @param attributes
+         *    the attributes of the file, read as the walker found it
+         */
+        void visitFile(Path file, BasicFileAttributes attributes);
+    }
+
+    /**
+     * Receives the files the walker finds, several at a time.
+     */
+    public interface BatchVisitor extends Visitor {
+        /**
+         * Called with some of the visible, regular files in a single directory.
+         * May be called from several threads at once.  The lists are not used by
+         * the walker after the call.
+         *
+         * @param files
+         *    the paths to the files
+         * @param attributes
+         *    the attributes of each of the files, in the same order, read as the
+         *    walker found them
+         */
+        void visitFiles(List<Path> files, List<BasicFileAttributes> attributes);
+    }
+
+    /**
+     * Files found in a directory, waiting to be passed to the visitor.
+     */
+    private class FileBatch {
+        private List<Path> files = new ArrayList<>();
+        private List<BasicFileAttributes> attributes = new ArrayList<>();
+
+        void add(final Path file, final BasicFileAttributes fileAttributes) {
+            files.add(file);
+            attributes.add(fileAttributes);
+            if (files.size() >= FILE_BATCH_SIZE) {
+                deliver();
+            }
+        }
+
+        void deliver() {
+            if (files.isEmpty()) {
+                return;
+            }
+            if (visitor instanceof BatchVisitor) {
+                try {
+                    ((BatchVisitor) visitor).visitFiles(files, attributes);
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "unable to add " + files.size() + " files in "
+                               + files.get(0).getParent(), e);
+                }
+            } else {
+                for (int i = 0; i < files.size(); i++) {
+                    try {
+                        visitor.visitFile(files.get(i), attributes.get(i));
+                    } catch (RuntimeException e) {
+                        logger.log(Level.WARNING, "unable to add " + files.get(i), e);
+                    }
+                }
+            }
+            files = new ArrayList<>();
+            attributes = new ArrayList<>();
+        }
+    }
+
+    private final Visitor visitor;
+    private final Set<Object> visitedDirectories = ConcurrentHashMap.newKeySet();
+    private final AtomicLong files = new AtomicLong();
+    private final AtomicLong directories = new AtomicLong();
+    private volatile boolean cancelled = false;
+    private volatile long elapsedNanos = 0;
+
+    /**
+     * Create a walker which will pass the files it finds to the given visitor.
+     *
+     * @param visitor
+     *    the visitor to call for each file
+     */
+    public ParallelFileWalker(final Visitor visitor) {
+        this.visitor = visitor;
+    }
+
+    /**
+     * Read the attributes of the given path, if it is visible.
+     *
+     * @param path
+     *    the path to look at
+     * @return the attributes of the path, or null if it does not exist, can't be
+     *    read, or is hidden
+     */
+    public static BasicFileAttributes readVisibleAttributes(final Path path) {
+        try {
+            if (DOS_ATTRIBUTES) {
+                DosFileAttributes attributes = Files.readAttributes(path, DosFileAttributes.class);
+                if (attributes.isHidden()) {
+                    logger.finer("ignoring hidden file " + path);
+                    return null;
+                }
+                return attributes;
+            }
+            Path name = path.getFileName();
+            if ((name != null) && name.toString().startsWith(".")) {
+                logger.finer("ignoring hidden file " + path);
+                return null;
+            }
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException | SecurityException e) {
+            logger.finer("could not access file; treating as hidden: " + path);
+            return null;
+        }
+    }
+
+    private class DirectoryTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Path directory;
+
+        DirectoryTask(final Path directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        protected void compute() {
+            List<DirectoryTask> subdirectories = new ArrayList<>();
+            FileBatch batch = new FileBatch();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    if (cancelled) {
+                        break;
+                    }
+                    DirectoryTask subdirectory = visit(entry, batch);
+                    if (subdirectory != null) {
+                        subdirectory.fork();
+                        subdirectories.add(subdirectory);
+                    }
+                }
+            } catch (IOException | SecurityException e) {
+                logger.warning("IO Exception descending " + directory);
+            }
+            batch.deliver();
+            for (DirectoryTask subdirectory : subdirectories) {
+                subdirectory.join();
+            }
+        }
+    }
+
+    /**
+     * Handle a single entry: add it to the batch for the visitor if it's a file, or
+     * return a task to walk it if it's a directory we haven't already seen.
+     */
+    private DirectoryTask visit(final Path entry, final FileBatch batch) {
+        BasicFileAttributes attributes = readVisibleAttributes(entry);
+        if (attributes == null) {
+            return null;
+        }
+        if (attributes.isDirectory()) {
+            Object key = attributes.fileKey();
+            if ((key != null) && !visitedDirectories.add(key)) {
+                logger.fine("already visited " + entry);
+                return null;
+            }
+            directories.incrementAndGet();
+            return new DirectoryTask(entry);
+        }
+        if (attributes.isRegularFile()) {
+            files.incrementAndGet();
+            batch.add(entry, attributes);
+        }
+        return null;
+    }
+
+    /**
+     * Find all the files under the given path, and pass them to the visitor.  If
+     * the path is itself a file, it's the only one visited.  Returns when all the
+     * files have been visited, or the walk has been cancelled.
+     *
+     * @param root
+     *    the file or directory to walk
+     */
+    public void walk(final Path root) {
+        long start = System.nanoTime();
+        FileBatch batch = new FileBatch();
+        DirectoryTask task = visit(root, batch);
+        batch.deliver();
+        if (task != null) {
+            POOL.invoke(task);
+        }
+        elapsedNanos = System.nanoTime() - start;
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("walked " + root + ": " + this);
+        }
+    }
+
+    /**
+     * Stop walking as soon as possible.  Files already passed to the visitor are
+     * not affected.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return true if {@link #cancel} has been called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return the number of files found so far
+     */
+    public long getFileCount() {
+        return files.get();
+    }
+
+    /**
+     * @return the number of directories found so far
+     */
+    public long getDirectoryCount() {
+        return directories.get();
+    }
+
+    /**
+     * @return the number of files found per second by the last completed walk,
+     *    or zero if there hasn't been one
+     */
+    public long getFilesPerSecond() {
+        long nanos = elapsedNanos;
+        if (nanos <= 0) {
+            return 0;
+        }
+        return (files.get() * TimeUnit.SECONDS.toNanos(1)) / nanos;
+    }
+
+    /**
+     * Standard object method to represent this ParallelFileWalker as a string.
+     *
+     * @return string version of this; gives the counts
+     */
+    @Override
+    public String toString() {
+        return "{ParallelFileWalker: " + files.get() + " files in " + directories.get()
+            + " directories, " + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + "ms, "
+            + getFilesPerSecond() + " files/s}";
+    }
+}
@@ -8,6 +8,7 @@ import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 public class StringUtils {
@@ -37,6 +38,14 @@ public class StringUtils {
         });
     public static final Set<Character> ILLEGAL_CHARACTERS = SANITISE.keySet();
 
+    // The characters which replacePunctuation turns into spaces.
+    private static final String PUNCTUATION_TO_SPACE = "-._!?$[:,;\\#%=@`\"]}{~><^/+|*";
+
+    // makeQueryString is called for the same few show names over and over, so we
+    // remember the answers, up to a point.
+    private static final int MAX_QUERY_STRINGS = 4096;
+    private static final Map<String, String> QUERY_STRINGS = new ConcurrentHashMap<>();
+
     private static final ThreadLocal<DecimalFormat> DIGITS =
         new ThreadLocal<DecimalFormat>() {
             @Override
@@ -390,49 +399,225 @@ public class StringUtils {
      *   a version of the string that is (we hope) much more suitable for feeding to a query API
      */
     public static String replacePunctuation(String s) {
-        String rval = s;
+        // Each step below is a simple scan from one buffer to the other; see the
+        // comments on the methods for what each does.  Only two of the steps can make
+        // the string longer, and each of those by at most half.
+        final int capacity = (s.length() * 9 / 4) + 2;
+        char[] in = new char[capacity];
+        char[] out = new char[capacity];
+        s.getChars(0, s.length(), in, 0);
+        int n = s.length();
+        char[] swap;
 
         // The apostrophe is kind of unique, because it's usually found within a word, including
         // in show titles: "Bob's Burgers", "The Real O'Neals", "What's Happening", "Don't Trust..."
         // For these, replacing the apostrophe with a space confuses the database; it's much better
         // to simply remove the apostrophe.
-        rval = rval.replaceAll("'", "");
+        n = removeApostrophes(in, n, out);
+        swap = in; in = out; out = swap;
 
         // A hyphen in the middle of a word also should not be broken up into two words.
         // But there's an exception; see doc of isLowerCaseWithHyphens.
-        boolean allLower = isLowerCaseWithHyphens(s);
-        if (allLower) {
-            rval = rval.replaceAll("(\\p{Lower})-(\\p{Lower})", "$1 $2");
-        } else {
-            rval = rval.replaceAll("(\\p{Lower})-(\\p{Lower})", "$1$2");
-        }
+        n = joinHyphenatedWords(in, n, out, isLowerCaseWithHyphens(s));
+        swap = in; in = out; out = swap;
 
         // transform "CamelCaps" => "Camel Caps"
-        rval = rval.replaceAll("(\\p{Lower})([\\p{Upper}\\p{Digit}])", "$1 $2");
+        n = separateLowerFromUpperOrDigit(in, n, out);
+        swap = in; in = out; out = swap;
 
         // example: "30Rock" => "30 Rock"
-        rval = rval.replaceAll("(\\p{Digit})([\\p{Upper}])", "$1 $2");
+        n = separateDigitFromUpper(in, n, out);
+        swap = in; in = out; out = swap;
 
-        // borrowed from http://stackoverflow.com/a/17099039
         // condenses acronyms (".S.H.I.E.L.D." -> " SHIELD")
-        rval = rval.replaceAll("(?<=(^|[. ])[\\S&&\\D])[.](?=[\\S&&\\D]([.]|$))", "");
+        n = condenseAcronyms(in, n, out);
+        swap = in; in = out; out = swap;
+
+        // Replaces most remaining punctuation with spaces.  The first few characters
+        // (hyphen, dot, underscore) are likely to be used as separator characters.  The
+        // colon, question mark, and exclamation point seem reasonable to appear in show
+        // names.  Most of the rest are very unlikely to appear, and probably don't need
+        // to be handled at all.  But this is basically the longstanding behavior, so
+        // let's just leave it like this unless and until we have a specific reason to
+        // change.  Note, punctuation NOT modified, just left in place: parentheses,
+        // ampersand.
+        n = punctuationToSpaces(in, n, out);
+        swap = in; in = out; out = swap;
 
-        // Replaces most remaining punctuation with spaces
+        // get rid of superfluous whitespace
+        n = collapseSpaces(in, n, out);
+
+        // Equivalent to String.trim()
+        int start = 0;
+        while ((start < n) && (out[start] <= ' ')) {
+            start++;
+        }
+        while ((n > start) && (out[n - 1] <= ' ')) {
+            n--;
+        }
+        return new String(out, start, n - start);
+    }
 
-        // The first few characters in the character class (hyphen, dot, underscore)
-        // are likely to be used as separator characters.  The colon, question mark,
-        // and exclamation point seem reasonable to appear in show names.  Most of the
-        // rest are very unlikely to appear, and probably don't need to be handled at
-        // all.  But this is basically the longstanding behavior, so let's just leave
-        // it like this unless and until we have a specific reason to change.
-        rval = rval.replaceAll("[-._!?$\\[:,;\\\\#%=@`\"\\]}{~><^/+|*]", " ");
+    // The steps of replacePunctuation are each described by the regular expression
+    // it used to run; each does exactly what that expression did.  Note that, in Java
+    // regular expressions, \p{Lower}, \p{Upper} and \p{Digit} are only the ASCII
+    // letters and digits.
 
-        // Note, punctuation NOT modified, just left in place: parentheses, ampersand
+    private static boolean isAsciiLower(final char c) {
+        return (c >= 'a') && (c <= 'z');
+    }
 
-        // get rid of superfluous whitespace
-        rval = rval.replaceAll(" [ ]+", " ").trim();
+    private static boolean isAsciiUpper(final char c) {
+        return (c >= 'A') && (c <= 'Z');
+    }
 
-        return rval;
+    private static boolean isAsciiDigit(final char c) {
+        return (c >= '0') && (c <= '9');
+    }
+
+    // [\S&&\D] in a regular expression
+    private static boolean isNeitherSpaceNorDigit(final char c) {
+        return (c != ' ') && (c != '\t') && (c != '\n') && (c != '\u000B') && (c != '\f')
+            && (c != '\r') && !isAsciiDigit(c);
+    }
+
+    // Whether "$" (without MULTILINE) matches at position k: at the end, or just
+    // before a line terminator which ends the string.
+    private static boolean isEnd(final char[] c, final int n, final int k) {
+        if (k == n) {
+            return true;
+        }
+        if (k == n - 2) {
+            return (c[k] == '\r') && (c[k + 1] == '\n');
+        }
+        if (k == n - 1) {
+            char ch = c[k];
+            if (ch == '\n') {
+                return (k == 0) || (c[k - 1] != '\r');
+            }
+            return (ch == '\r') || (ch == '\u0085') || (ch == '\u2028') || (ch == '\u2029');
+        }
+        return false;
+    }
+
+    private static int removeApostrophes(final char[] in, final int n, final char[] out) {
+        int len = 0;
+        for (int i = 0; i < n; i++) {
+            if (in[i] != '\'') {
+                out[len++] = in[i];
+            }
+        }
+        return len;
+    }
+
+    // "(\p{Lower})-(\p{Lower})" => "$1 $2" or "$1$2"
+    private static int joinHyphenatedWords(final char[] in, final int n, final char[] out,
+                                           final boolean withSpace)
+    {
+        int len = 0;
+        int i = 0;
+        while (i < n) {
+            if ((i + 2 < n) && isAsciiLower(in[i]) && (in[i + 1] == '-')
+                && isAsciiLower(in[i + 2]))
+            {
+                out[len++] = in[i];
+                if (withSpace) {
+                    out[len++] = ' ';
+                }
+                out[len++] = in[i + 2];
+                i += 3;
+            } else {
+                out[len++] = in[i++];
+            }
+        }
+        return len;
+    }
+
+    // "(\p{Lower})([\p{Upper}\p{Digit}])" => "$1 $2"
+    private static int separateLowerFromUpperOrDigit(final char[] in, final int n,
+                                                     final char[] out)
+    {
+        int len = 0;
+        int i = 0;
+        while (i < n) {
+            if ((i + 1 < n) && isAsciiLower(in[i])
+                && (isAsciiUpper(in[i + 1]) || isAsciiDigit(in[i + 1])))
+            {
+                out[len++] = in[i];
+                out[len++] = ' ';
+                out[len++] = in[i + 1];
+                i += 2;
+            } else {
+                out[len++] = in[i++];
+            }
+        }
+        return len;
+    }
+
+    // "(\p{Digit})([\p{Upper}])" => "$1 $2"
+    private static int separateDigitFromUpper(final char[] in, final int n, final char[] out) {
+        int len = 0;
+        int i = 0;
+        while (i < n) {
+            if ((i + 1 < n) && isAsciiDigit(in[i]) && isAsciiUpper(in[i + 1])) {
+                out[len++] = in[i];
+                out[len++] = ' ';
+                out[len++] = in[i + 1];
+                i += 2;
+            } else {
+                out[len++] = in[i++];
+            }
+        }
+        return len;
+    }
+
+    // "(?<=(^|[. ])[\S&&\D])[.](?=[\S&&\D]([.]|$))" => ""
+    // (the expression was borrowed from http://stackoverflow.com/a/17099039)
+    private static int condenseAcronyms(final char[] in, final int n, final char[] out) {
+        int len = 0;
+        for (int p = 0; p < n; p++) {
+            boolean remove = false;
+            if ((in[p] == '.') && (p >= 1) && (p + 1 < n)) {
+                // The expression looks at the code points on either side of the dot,
+                // which may be two chars each.  (A surrogate is never a space or digit.)
+                // Java limits the look-behind to two chars, though, so a two-char code
+                // point before the dot only matches at the very start.
+                boolean pairBefore = (p >= 2) && Character.isSurrogatePair(in[p - 2], in[p - 1]);
+                int after = p + 2;
+                if ((after < n) && Character.isSurrogatePair(in[p + 1], in[after])) {
+                    after++;
+                }
+                remove = isNeitherSpaceNorDigit(in[p - 1])
+                    && (pairBefore ? (p == 2)
+                        : ((p == 1) || (in[p - 2] == '.') || (in[p - 2] == ' ')))
+                    && isNeitherSpaceNorDigit(in[p + 1])
+                    && (((after < n) && (in[after] == '.')) || isEnd(in, n, after));
+            }
+            if (!remove) {
+                out[len++] = in[p];
+            }
+        }
+        return len;
+    }
+
+    // "[-._!?$\[:,;\\#%=@`\"\]}{~><^/+|*]" => " "
+    private static int punctuationToSpaces(final char[] in, final int n, final char[] out) {
+        for (int i = 0; i < n; i++) {
+            char c = in[i];
+            out[i] = (PUNCTUATION_TO_SPACE.indexOf(c) >= 0) ? ' ' : c;
+        }
+        return n;
+    }
+
+    // " [ ]+" => " "
+    private static int collapseSpaces(final char[] in, final int n, final char[] out) {
+        int len = 0;
+        for (int i = 0; i < n; i++) {
+            if ((in[i] != ' ') || (i == 0) || (in[i - 1] != ' ')) {
+                out[len++] = in[i];
+            }
+        }
+        return len;
     }
 
     /**
@@ -489,7 +674,17 @@ public class StringUtils {
      *         punctuation, etc.
      */
     public static String makeQueryString(String text) {
-        return toLower(replacePunctuation(text));
+        String queryString = QUERY_STRINGS.get(text);
+        if (queryString == null) {
+            queryString = toLower(replacePunctuation(text));
+            if (QUERY_STRINGS.size() >= MAX_QUERY_STRINGS) {
+                // Simpler, and cheaper, than keeping track of which were used least
+                // recently; a session with this many different shows is unusual.
+                QUERY_STRINGS.clear();
+            }
+            QUERY_STRINGS.put(text, queryString);
+        }
+        return queryString;
     }
 
     /**
@@ -3,6 +3,9 @@ package org.tvrenamer.controller.util;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
@@ -12,21 +15,65 @@ import javax.xml.xpath.XPathFactory;
 public class XPathUtilities {
 
     private static final XPathFactory XPATH_FACTORY = XPathFactory.newInstance();
-    // We just create this one XPath object and use it for all shows, all episodes.
-    // TODO: is there any issue with this?
-    private static final XPath STD_XPATH = XPATH_FACTORY.newXPath();
+
+    /**
+     * The compiled expressions available to a single thread.<p>
+     *
+     * Neither XPath objects nor the XPathExpressions they compile are thread-safe,
+     * and listings are downloaded and processed on many threads at once.  So rather
+     * than sharing one XPath object for all shows and all episodes, each thread gets
+     * its own, along with a registry of the expressions it has already compiled.
+     * We only use a handful of distinct expressions, so each thread compiles each
+     * one once, rather than once per episode.
+     */
+    private static class CompiledExpressions {
+        private final XPath xpath;
+        private final Map<String, XPathExpression> expressions = new HashMap<>();
+
+        CompiledExpressions() {
+            synchronized (XPATH_FACTORY) {
+                // XPathFactory is not guaranteed to be thread-safe, either.
+                xpath = XPATH_FACTORY.newXPath();
+            }
+        }
+
+        XPathExpression get(final String name) throws XPathExpressionException {
+            XPathExpression expr = expressions.get(name);
+            if (expr == null) {
+                expr = xpath.compile(name);
+                expressions.put(name, expr);
+            }
+            return expr;
+        }
+    }
+
+    private static final ThreadLocal<CompiledExpressions> COMPILED
+        = ThreadLocal.withInitial(CompiledExpressions::new);
+
+    /**
+     * Get the compiled version of the given XPath expression, compiling it if
+     * this thread has not done so already.
+     *
+     * @param name
+     *    the XPath expression
+     * @return the compiled expression, which may only be used by the calling thread
+     * @throws XPathExpressionException if the expression cannot be compiled
+     */
+    static XPathExpression compiled(final String name) throws XPathExpressionException {
+        return COMPILED.get().get(name);
+    }
 
     public static NodeList nodeListValue(String name, Node eNode)
         throws XPathExpressionException
     {
-        XPathExpression expr = STD_XPATH.compile(name);
+        XPathExpression expr = compiled(name);
         return (NodeList) expr.evaluate(eNode, XPathConstants.NODESET);
     }
 
     public static String nodeTextValue(String name, Node eNode)
         throws XPathExpressionException
     {
-        XPathExpression expr = STD_XPATH.compile(name);
+        XPathExpression expr = compiled(name);
         Node node = (Node) expr.evaluate(eNode, XPathConstants.NODE);
         if (node == null) {
             return null;
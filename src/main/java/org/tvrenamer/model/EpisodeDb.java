@@ -1,54 +1,420 @@
 package org.tvrenamer.model;
 
+import static org.tvrenamer.model.util.Constants.*;
+
 import org.tvrenamer.controller.AddEpisodeListener;
+import org.tvrenamer.controller.FilenameParser;
+import org.tvrenamer.controller.ScanIndex;
+import org.tvrenamer.controller.ScanProgressListener;
+import org.tvrenamer.controller.util.ExtensionFilter;
 import org.tvrenamer.controller.util.FileUtilities;
+import org.tvrenamer.controller.util.FolderWatcher;
+import org.tvrenamer.controller.util.KeywordMatcher;
+import org.tvrenamer.controller.util.ParallelFileWalker;
 
 import java.io.IOException;
-import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
+/**
+ * EpisodeDb -- the files the user has added, keyed by their current location.<p>
+ *
+ * Adding files, and particularly folders, is done in the background, one request at a
+ * time.  As files are found, they are published to the subscribers in batches, so that
+ * the first of them can be shown, and looked up, while we're still looking for the
+ * rest.  A batch is published as soon as it reaches a certain size, or when its oldest
+ * file has been waiting a certain time, whichever comes first.
+ */
 public class EpisodeDb implements Observer {
 
     private static final Logger logger = Logger.getLogger(EpisodeDb.class.getName());
-    private static final UserPreferences prefs = UserPreferences.getInstance();
+
+    /**
+     * Checks whether any batches have been waiting too long to be published.
+     */
+    private static final ScheduledExecutorService PUBLISH_TIMER
+        = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "episode-publish-timer");
+            t.setDaemon(true);
+            return t;
+        });
+
+    /**
+     * Checks, in parallel, whether files are still where we think they are.  The
+     * work is mostly waiting on the file system, so we use more threads than there
+     * are processors.  The threads are daemons, and are let go when idle.
+     */
+    private static final ForkJoinPool REVALIDATION_POOL
+        = new ForkJoinPool(Math.max(4, 2 * Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * How long to remember where a file was moved to, after it's been removed from the
+     * table; see {@link #remove}.
+     */
+    private static final long MOVED_MEMORY_NANOS = TimeUnit.MINUTES.toNanos(1);
 
     private final Map<String, FileEpisode> episodes = new ConcurrentHashMap<>(1000);
-    private List<String> ignoreKeywords = prefs.getIgnoreKeywords();
+    // Where files which were moved, and then removed, were moved to; and when they
+    // were removed.  So that, if the watcher sees them arrive, they aren't added again.
+    private final Map<String, Long> movedAway = new ConcurrentHashMap<>();
+    private final UserPreferences prefs;
+    private final Supplier<ScanIndex> scanIndex;
+    // Rebuilt whenever the user changes the keywords; see update().
+    private volatile KeywordMatcher ignoreMatcher;
+    private volatile ExtensionFilter extensionFilter;
+    private final AtomicLong skippedFiles = new AtomicLong();
+    private final AtomicLong unparsedFiles = new AtomicLong();
+
+    private final ExecutorService scanner = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "episode-scanner");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile int publishBatchSize = PUBLISH_BATCH_SIZE;
+    private volatile long publishIntervalMillis = PUBLISH_INTERVAL_MILLIS;
+    private volatile long watchQuietMillis = WATCH_QUIET_MILLIS;
+
+    /**
+     * Collects the files found by a single request to add files, and publishes
+     * them in batches.  Files may be added from several threads at once.<p>
+     *
+     * Also keeps track of the request's progress, which it reports to the request's
+     * progress listener, if it has one, each time the timer fires; and allows the
+     * request to be cancelled, whether it has started running yet or not.
+     */
+    private class EpisodePublisher {
+        private final String description;
+        private final ScanProgressListener progress;
+        private final int batchSize = publishBatchSize;
+        private final long intervalNanos = TimeUnit.MILLISECONDS.toNanos(publishIntervalMillis);
+        private ScheduledFuture<?> timer;
+        private Queue<FileEpisode> batch = new ArrayDeque<>();
+        private long batchStarted;
+        private long found = 0;
+        private long skipped = 0;
+        private long unparsed = 0;
+        private long reported = 0;
+        private long startedNanos;
+        private volatile boolean cancelled = false;
+        private volatile ParallelFileWalker walker = null;
+
+        EpisodePublisher(final String description, final ScanProgressListener progress) {
+            this.description = description;
+            this.progress = progress;
+        }
+
+        synchronized void start() {
+            startedNanos = System.nanoTime();
+            long period = Math.max(1, publishIntervalMillis / 4);
+            timer = PUBLISH_TIMER.scheduleAtFixedRate(this::onTimer, period, period,
+                                                      TimeUnit.MILLISECONDS);
+        }
+
+        synchronized void add(final FileEpisode episode) {
+            if (batch.isEmpty()) {
+                batchStarted = System.nanoTime();
+            }
+            batch.add(episode);
+            found++;
+            if (!episode.wasParsed()) {
+                unparsed++;
+            }
+            if (batch.size() >= batchSize) {
+                publishBatch();
+            }
+        }
+
+        /**
+         * Note that a file was found, but not added, because of its extension.
+         */
+        synchronized void skip() {
+            skipped++;
+        }
+
+        private synchronized void onTimer() {
+            if (!batch.isEmpty() && ((System.nanoTime() - batchStarted) >= intervalNanos)) {
+                publishBatch();
+            }
+            if ((progress != null) && (found != reported)) {
+                reported = found;
+                progress.scanProgress(description, found);
+            }
+        }
+
+        synchronized void finish() {
+            if (timer != null) {
+                timer.cancel(false);
+            }
+            publishBatch();
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+            logger.info((cancelled ? "cancelled adding " : "finished adding ") + description
+                        + ": " + found + " files (" + unparsed + " not parsed) in " + millis
+                        + "ms; skipped " + skipped + " files by extension");
+            skippedFiles.addAndGet(skipped);
+            unparsedFiles.addAndGet(unparsed);
+            if (progress != null) {
+                // So that a tick of the timer which was already waiting reports nothing.
+                reported = found;
+                progress.scanFinished(description, found, cancelled);
+            }
+        }
+
+        private void publishBatch() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            Queue<FileEpisode> published = batch;
+            batch = new ArrayDeque<>();
+            publish(published);
+        }
+
+        /**
+         * Walk the given path, unless the request has been cancelled, in which
+         * case, do nothing.
+         */
+        void walk(final ParallelFileWalker newWalker, final Path path) {
+            walker = newWalker;
+            if (!cancelled) {
+                newWalker.walk(path);
+            }
+            walker = null;
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        void cancel() {
+            cancelled = true;
+            ParallelFileWalker current = walker;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+
+    /**
+     * The requests to add files which have not finished yet, including any which
+     * have not started yet.
+     */
+    private final Set<EpisodePublisher> pendingScans = ConcurrentHashMap.newKeySet();
+
+    private FolderWatcher folderWatcher = null;
 
     public EpisodeDb() {
+        this(UserPreferences.getInstance(), ScanIndex::getInstance);
+    }
+
+    /**
+     * Create an EpisodeDb which uses the given preferences and scan index, rather
+     * than the application's.
+     *
+     * @param prefs
+     *    the preferences to follow
+     * @param scanIndex
+     *    supplies the index of files seen before; not called until the first scan
+     */
+    EpisodeDb(final UserPreferences prefs, final Supplier<ScanIndex> scanIndex) {
+        this.prefs = prefs;
+        this.scanIndex = scanIndex;
+        ignoreMatcher = new KeywordMatcher(prefs.getIgnoreKeywords());
+        extensionFilter = new ExtensionFilter(prefs.getMediaExtensions(), prefs.getSkippedExtensions());
         prefs.addObserver(this);
     }
 
-    private String ignorableReason(String fileName) {
-        for (String ignoreKeyword : ignoreKeywords) {
-            if (fileName.contains(ignoreKeyword)) {
-                return ignoreKeyword;
-            }
+    /**
+     * Set how files are grouped together when they are published to subscribers.
+     * Applies to requests to add files made after this is called.
+     *
+     * @param batchSize
+     *    the largest number of files to publish at once
+     * @param intervalMillis
+     *    the longest time, in milliseconds, a file should wait to be published
+     */
+    public void setPublishLimits(final int batchSize, final long intervalMillis) {
+        publishBatchSize = Math.max(batchSize, 1);
+        publishIntervalMillis = Math.max(intervalMillis, 1);
+    }
+
+    /**
+     * Set how long a file which arrives in the watched folder must stop changing
+     * before it's added.  Applies to folders watched after this is called.
+     *
+     * @param quietMillis
+     *    the time, in milliseconds
+     */
+    void setWatchQuietMillis(final long quietMillis) {
+        watchQuietMillis = Math.max(quietMillis, 1);
+    }
+
+    /**
+     * Run a request to add files in the background, publishing whatever it finds.
+     *
+     * @param description
+     *    what is being added, for logging
+     * @param progress
+     *    the listener to tell about the request's progress; may be null
+     * @param scan
+     *    the code to find the files and add them to the publisher it's given
+     * @return a Future which completes when the files have all been published
+     */
+    private Future<?> submitScan(final String description, final ScanProgressListener progress,
+                                 final Consumer<EpisodePublisher> scan)
+    {
+        final EpisodePublisher publisher = new EpisodePublisher(description, progress);
+        pendingScans.add(publisher);
+        try {
+            return scanner.submit(() -> {
+                publisher.start();
+                try {
+                    if (!publisher.isCancelled()) {
+                        scan.accept(publisher);
+                    }
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "error adding " + description, e);
+                } finally {
+                    pendingScans.remove(publisher);
+                    publisher.finish();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingScans.remove(publisher);
+            logger.log(Level.WARNING, "unable to add " + description, e);
+            return null;
         }
-        return null;
     }
 
-    private FileEpisode add(final String pathname) {
-        Path path = Paths.get(pathname);
-        final FileEpisode episode = new FileEpisode(path);
+    private Future<?> submitScan(final String description, final Consumer<EpisodePublisher> scan) {
+        return submitScan(description, null, scan);
+    }
+
+    /**
+     * Stop all requests to add files, both the one that's running, if any, and any
+     * that are waiting to run.  Files which have already been published stay
+     * where they are; files which have been found but not yet published, are
+     * still published.
+     */
+    public void cancelScans() {
+        for (EpisodePublisher publisher : pendingScans) {
+            publisher.cancel();
+        }
+    }
+
+    private String ignorableReason(String fileName) {
+        return ignoreMatcher.firstMatch(fileName);
+    }
+
+    /**
+     * Add the given episode to the database, and to the publisher's batch, unless
+     * someone else has added the same file while we were creating it.
+     */
+    private void add(final EpisodePublisher contents, final FileEpisode episode) {
+        final String pathname = episode.getPath().toString();
         episode.setIgnoreReason(ignorableReason(pathname));
         if (!episode.wasParsed()) {
             // We're putting the episode in the table anyway, but it's
-            // not much use.  TODO: make better use of it.
-            logger.warning("Couldn't parse file: " + pathname);
+            // not much use.  TODO: make better use of it.  There may be
+            // a lot of these, so they're counted, rather than each being
+            // logged as a warning.
+            logger.fine("Couldn't parse file: " + pathname);
+        }
+        if (episodes.putIfAbsent(pathname, episode) != null) {
+            // Someone else added it while we were creating it.
+            return;
+        }
+        contents.add(episode);
+    }
+
+    /**
+     * Create FileEpisodes for the given files, and add them.<p>
+     *
+     * Files with extensions we're not interested in, or which are already in the
+     * table, are passed over.  If a file hasn't changed since we last saw it, we use
+     * what we learned about it then, rather than parsing its name again; and if we
+     * resolved its show then, we tell the ShowStore, so it can skip searching for
+     * the show, if it hasn't got its own record of the search.  The names of the rest
+     * of the files are parsed all together, in parallel, and each FileEpisode is then
+     * created from its file's attributes and parsed name, without having to look at
+     * the file again.
+     *
+     * @param contents
+     *    the publisher to add the new episodes to
+     * @param paths
+     *    the files to add
+     * @param attributes
+     *    the attributes of each of the files, in the same order
+     */
+    private void addFilesToQueue(final EpisodePublisher contents,
+                                 final List<Path> paths,
+                                 final List<BasicFileAttributes> attributes)
+    {
+        final ScanIndex index = scanIndex.get();
+        final List<Path> toParse = new ArrayList<>(paths.size());
+        final List<BasicFileAttributes> toParseAttributes = new ArrayList<>(paths.size());
+        for (int i = 0; i < paths.size(); i++) {
+            final Path fileName = paths.get(i).getFileName();
+            if ((fileName != null) && !extensionFilter.accepts(fileName.toString())) {
+                contents.skip();
+                continue;
+            }
+            final Path absPath = paths.get(i).toAbsolutePath();
+            final String key = absPath.toString();
+            if (episodes.containsKey(key)) {
+                logger.fine("already in table: " + key);
+                continue;
+            }
+            final ScanIndex.Entry indexed = index.lookup(absPath, attributes.get(i));
+            if (indexed == null) {
+                toParse.add(absPath);
+                toParseAttributes.add(attributes.get(i));
+                continue;
+            }
+            final ParsedFilename parsed = indexed.getParsedFilename();
+            if ((parsed != null) && (indexed.getSeriesId() != null)) {
+                ShowStore.seedResolution(parsed.filenameShow, indexed.getSeriesId(),
+                                         indexed.getSeriesName());
+            }
+            add(contents, new FileEpisode(absPath, attributes.get(i), parsed));
+        }
+
+        final List<ParsedFilename> parsed = FilenameParser.parseAll(toParse);
+        for (int i = 0; i < toParse.size(); i++) {
+            index.put(toParse.get(i), toParseAttributes.get(i), parsed.get(i));
+            add(contents, new FileEpisode(toParse.get(i), toParseAttributes.get(i),
+                                          parsed.get(i)));
         }
-        episodes.put(pathname, episode);
-        return episode;
     }
 
     /**
@@ -61,33 +427,29 @@ public class EpisodeDb implements Observer {
      * "aside" somewhere that we could still find them, but just know they're
      * not actively in the table.
      *
+     * It's also called when a row is deleted because its file has been moved.  If the
+     * file was moved into the folder we're watching, the watcher will shortly tell us
+     * about it, as if it were a new file; so we remember, for a while, where it went.
+     *
      * @param key
      *    the key to remove from the Episode database
      */
     public void remove(String key) {
-        episodes.remove(key);
+        FileEpisode ep = episodes.remove(key);
+        if (ep != null) {
+            String location = ep.getPath().toString();
+            if (!location.equals(key)) {
+                long now = System.nanoTime();
+                movedAway.values().removeIf(removed -> (now - removed) > MOVED_MEMORY_NANOS);
+                movedAway.put(location, now);
+            }
+        }
     }
 
     public FileEpisode get(String key) {
         return episodes.get(key);
     }
 
-    private boolean fileIsVisible(Path path) {
-        boolean isVisible = false;
-        try {
-            if (Files.exists(path)) {
-                if (Files.isHidden(path)) {
-                    logger.finer("ignoring hidden file " + path);
-                } else {
-                    isVisible = true;
-                }
-            }
-        } catch (IOException | SecurityException e) {
-            logger.finer("could not access file; treating as hidden: " + path);
-        }
-        return isVisible;
-    }
-
     /**
      * Get the current location -- and, therefore, the database key -- for the
      * file that has been referred to by the given key.
@@ -119,57 +481,110 @@ public class EpisodeDb implements Observer {
             return null;
         }
         Path currentLocation = ep.getPath();
-        if (fileIsVisible(currentLocation) && Files.isRegularFile(currentLocation)) {
-            // OK, the file is good!  But that could be true even if
-            // it were moved.  Now try to see if it's been moved, or if
-            // it's still where we think it is.
-            String direct = currentLocation.toString();
-            if (key.equals(direct)) {
-                return key;
-            }
-            // Even if the strings don't match directly, we're not going
-            // to change anything if they both refer to the same file.
-            // Though, maybe we should?  TODO
-            Path keyPath = Paths.get(key);
-            if (FileUtilities.isSameFile(currentLocation, keyPath)) {
-                return key;
-            }
-            // The file has been moved.  We update our database, and inform the
-            // caller of the new key.
-            episodes.remove(key);
-            episodes.put(direct, ep);
-            return direct;
-        } else {
+        BasicFileAttributes attributes = ParallelFileWalker.readVisibleAttributes(currentLocation);
+        if ((attributes == null) || !attributes.isRegularFile()) {
             // The file has disappeared out from under us (or, bizarrely, been replaced
             // by a directory?  Anything is possible...).  Remove it from the db and let
             // the caller know by returning null.
             episodes.remove(key);
             return null;
         }
+        if (!ep.hasFileAttributes(attributes)) {
+            logger.fine("file has changed since we last looked: " + currentLocation);
+            ep.setFileAttributes(attributes);
+        }
+        // OK, the file is good!  But that could be true even if
+        // it were moved.  Now try to see if it's been moved, or if
+        // it's still where we think it is.
+        String direct = currentLocation.toString();
+        if (key.equals(direct)) {
+            return key;
+        }
+        // Even if the strings don't match directly, we're not going
+        // to change anything if they both refer to the same file.
+        // Though, maybe we should?  TODO
+        Path keyPath = Paths.get(key);
+        Object fileKey = attributes.fileKey();
+        if (fileKey == null) {
+            if (FileUtilities.isSameFile(currentLocation, keyPath)) {
+                return key;
+            }
+        } else {
+            BasicFileAttributes keyAttributes = ParallelFileWalker.readVisibleAttributes(keyPath);
+            if ((keyAttributes != null) && fileKey.equals(keyAttributes.fileKey())) {
+                return key;
+            }
+        }
+        // The file has been moved.  We update our database, and inform the
+        // caller of the new key.
+        episodes.remove(key);
+        episodes.put(direct, ep);
+        return direct;
     }
 
-    private void addFileToQueue(final Queue<FileEpisode> contents,
-                                final Path path)
-    {
-        final Path absPath = path.toAbsolutePath();
-        final String key = absPath.toString();
-        if (episodes.containsKey(key)) {
-            logger.info("already in table: " + key);
-        } else {
-            FileEpisode ep = add(key);
-            contents.add(ep);
+    /**
+     * Get the current locations of a number of files at once.<p>
+     *
+     * This is the same as calling {@link #currentLocationOf} for each of the keys,
+     * and has the same effect on the database, but the files are checked in parallel.
+     * Checking a file which hasn't moved costs a single look at the file system, but
+     * that still adds up, for a table of thousands of files, particularly if they're
+     * on a network drive.
+     *
+     * @param keys
+     *     Strings, each representing a path to the last known location of a file,
+     *     to look up and check
+     * @return a map from each of the given keys to the current location of the file,
+     *     or to null if the file is no longer valid
+     */
+    public Map<String, String> currentLocationsOf(final Collection<String> keys) {
+        final String[] oldKeys = keys.toArray(new String[keys.size()]);
+        final String[] locations = new String[oldKeys.length];
+        final Runnable check = () -> IntStream.range(0, oldKeys.length).parallel()
+            .forEach(i -> locations[i] = currentLocationOf(oldKeys[i]));
+        try {
+            REVALIDATION_POOL.submit(check).get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            logger.fine("interrupted checking file locations; finishing on this thread");
+            check.run();
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+        Map<String, String> currentLocations = new HashMap<>(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            currentLocations.put(oldKeys[i], locations[i]);
         }
+        return currentLocations;
     }
 
-    private void addFileIfVisible(final Queue<FileEpisode> contents,
-                                  final Path path)
+    /**
+     * Add the given files, if they exist and are visible, stopping early if the
+     * request is cancelled.
+     */
+    private void addFilesIfVisible(final EpisodePublisher contents,
+                                   final List<Path> paths)
     {
-        if (fileIsVisible(path) && Files.isRegularFile(path)) {
-            addFileToQueue(contents, path);
+        final List<Path> files = new ArrayList<>(paths.size());
+        final List<BasicFileAttributes> attributes = new ArrayList<>(paths.size());
+        for (Path path : paths) {
+            if (contents.isCancelled()) {
+                break;
+            }
+            BasicFileAttributes fileAttributes = ParallelFileWalker.readVisibleAttributes(path);
+            if ((fileAttributes != null) && fileAttributes.isRegularFile()) {
+                files.add(path);
+                attributes.add(fileAttributes);
+            }
         }
+        addFilesToQueue(contents, files, attributes);
     }
 
-    private void addFilesRecursively(final Queue<FileEpisode> contents,
+    private void addFilesRecursively(final EpisodePublisher contents,
                                      final Path parent,
                                      final Path filename)
     {
@@ -182,47 +597,60 @@ public class EpisodeDb implements Observer {
             return;
         }
         final Path fullpath = parent.resolve(filename);
-        if (fileIsVisible(fullpath)) {
-            if (Files.isDirectory(fullpath)) {
-                try (DirectoryStream<Path> files = Files.newDirectoryStream(fullpath)) {
-                    if (files != null) {
-                        // recursive call
-                        files.forEach(pth -> addFilesRecursively(contents,
-                                                                 fullpath,
-                                                                 pth.getFileName()));
-                    }
-                } catch (IOException ioe) {
-                    logger.warning("IO Exception descending " + fullpath);
-                }
-            } else {
-                addFileToQueue(contents, fullpath);
+        ParallelFileWalker walker = new ParallelFileWalker(new ParallelFileWalker.BatchVisitor() {
+            @Override
+            public void visitFile(final Path file, final BasicFileAttributes attributes) {
+                addFilesToQueue(contents, Collections.singletonList(file),
+                                Collections.singletonList(attributes));
             }
-        }
+
+            @Override
+            public void visitFiles(final List<Path> files,
+                                   final List<BasicFileAttributes> attributes)
+            {
+                addFilesToQueue(contents, files, attributes);
+            }
+        });
+        contents.walk(walker, fullpath);
+        logger.fine("added " + fullpath + ": " + walker);
     }
 
     /**
      * Add the given folder to the queue.  This is intended to support the
      * "Add Folder" functionality.  This method itself does only sanity
-     * checking, and if everything's in order, calls addFilesRecursively()
-     * to do the actual work.
+     * checking, and if everything's in order, arranges for addFilesRecursively()
+     * to do the actual work, in the background.
      *
      * @param pathname the name of a folder
+     * @return a Future which completes when all the files have been published,
+     *         or null if nothing will be added
      */
-    public void addFolderToQueue(final String pathname) {
+    public Future<?> addFolderToQueue(final String pathname) {
+        return addFolderToQueue(pathname, null);
+    }
+
+    /**
+     * Add the given folder to the queue, reporting progress as we go.
+     *
+     * @param pathname the name of a folder
+     * @param progress the listener to tell about our progress; may be null
+     * @return a Future which completes when all the files have been published,
+     *         or null if nothing will be added
+     */
+    public Future<?> addFolderToQueue(final String pathname, final ScanProgressListener progress) {
         if (!prefs.isRecursivelyAddFolders()) {
             logger.warning("cannot add folder when preference \"add files recursively\" is off");
-            return;
+            return null;
         }
 
         if (pathname == null) {
             logger.warning("cannot add files; pathname is null");
-            return;
+            return null;
         }
 
-        Queue<FileEpisode> contents = new ConcurrentLinkedQueue<>();
         final Path path = Paths.get(pathname);
-        addFilesRecursively(contents, path.getParent(), path.getFileName());
-        publish(contents);
+        return submitScan(pathname, progress, contents ->
+            addFilesRecursively(contents, path.getParent(), path.getFileName()));
     }
 
     /**
@@ -232,19 +660,21 @@ public class EpisodeDb implements Observer {
      *
      * @param pathPrefix the directory where the fileNames are found
      * @param fileNames an array of Strings presumed to represent filenames
+     * @return a Future which completes when all the files have been published,
+     *         or null if nothing will be added
      */
-    public void addFilesToQueue(final String pathPrefix, String[] fileNames) {
-        Queue<FileEpisode> contents = new ConcurrentLinkedQueue<>();
-        if (pathPrefix != null) {
-            Path path = Paths.get(pathPrefix);
-            Path parent = path.getParent();
-
+    public Future<?> addFilesToQueue(final String pathPrefix, String[] fileNames) {
+        if (pathPrefix == null) {
+            return null;
+        }
+        final Path parent = Paths.get(pathPrefix).getParent();
+        return submitScan(pathPrefix, contents -> {
+            final List<Path> paths = new ArrayList<>(fileNames.length);
             for (String fileName : fileNames) {
-                path = parent.resolve(fileName);
-                addFileIfVisible(contents, path);
+                paths.add(parent.resolve(fileName));
             }
-            publish(contents);
-        }
+            addFilesIfVisible(contents, paths);
+        });
     }
 
     /**
@@ -252,32 +682,125 @@ public class EpisodeDb implements Observer {
      * to support Drag and Drop.
      *
      * @param fileNames an array of Strings presumed to represent filenames
+     * @return a Future which completes when all the files have been published
      */
-    public void addArrayOfStringsToQueue(final String[] fileNames) {
-        Queue<FileEpisode> contents = new ConcurrentLinkedQueue<>();
-        boolean descend = prefs.isRecursivelyAddFolders();
-        for (final String fileName : fileNames) {
-            final Path path = Paths.get(fileName);
-            if (descend) {
-                addFilesRecursively(contents, path.getParent(), path.getFileName());
-            } else {
-                addFileIfVisible(contents, path);
+    public Future<?> addArrayOfStringsToQueue(final String[] fileNames) {
+        final boolean descend = prefs.isRecursivelyAddFolders();
+        return submitScan(fileNames.length + " dropped files", contents -> {
+            // Dropped files are added all together; dropped folders are walked
+            // one by one, if we're descending into them.
+            final List<Path> files = new ArrayList<>(fileNames.length);
+            for (final String fileName : fileNames) {
+                if (contents.isCancelled()) {
+                    break;
+                }
+                final Path path = Paths.get(fileName);
+                if (descend && Files.isDirectory(path)) {
+                    addFilesRecursively(contents, path.getParent(), path.getFileName());
+                } else {
+                    files.add(path);
+                }
             }
-        }
-        publish(contents);
+            addFilesIfVisible(contents, files);
+        });
     }
 
     /**
-     * Add the contents of the preload folder to the queue.
+     * Add the contents of the preload folder to the queue.  This happens in the
+     * background, like any other folder, so the caller (that is, the UI, as it's
+     * starting up) doesn't have to wait for it.  It can be stopped with
+     * {@link #cancelScans}.<p>
+     *
+     * After that, we keep watching the folder, and add files as they arrive in it;
+     * see {@link #watchFolder}.
      *
+     * @param progress
+     *    the listener to tell about our progress; may be null
+     * @return a Future which completes when all the files have been published,
+     *         or null if there is nothing to preload
      */
-    public void preload() {
+    public Future<?> preload(final ScanProgressListener progress) {
+        String preload = prefs.getPreloadFolder();
+        if (preload == null) {
+            return null;
+        }
+        // Start watching first, so that nothing which arrives while we're loading
+        // is missed.  Anything seen by both is only added once.
+        watchFolder(preload);
         if (prefs.isRecursivelyAddFolders()) {
-            String preload = prefs.getPreloadFolder();
-            if (preload != null) {
-                // TODO: do in separate thread
-                addFolderToQueue(preload);
+            return addFolderToQueue(preload, progress);
+        }
+        return null;
+    }
+
+    /**
+     * Watch the given folder, and add files to the queue as they arrive in it,
+     * once they have stopped changing.  Subfolders are watched, too, if the user
+     * has chosen to add folders recursively.  Only one folder is watched at a time;
+     * watching a new one stops watching the previous one.
+     *
+     * @param pathname
+     *    the name of the folder to watch
+     * @return true if the folder is now being watched
+     */
+    public synchronized boolean watchFolder(final String pathname) {
+        stopWatching();
+        final Path folder = Paths.get(pathname).toAbsolutePath();
+        if (!Files.isDirectory(folder)) {
+            logger.warning("cannot watch " + pathname + "; not a folder");
+            return false;
+        }
+        try {
+            folderWatcher = new FolderWatcher(folder, prefs.isRecursivelyAddFolders(),
+                                              watchQuietMillis,
+                                              files -> addArrivedFiles(folder, files));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "unable to watch " + pathname, e);
+            return false;
+        }
+        folderWatcher.start();
+        return true;
+    }
+
+    /**
+     * Add the files which have arrived in the watched folder, except for the ones
+     * which are there because we moved them there.  Those are either still in the
+     * table, under the key they had before they were moved (the FileEpisode knows
+     * where it is now, but the key isn't updated until the table asks for it; see
+     * {@link #currentLocationOf}), or they've been removed from the table since they
+     * were moved, in which case they're in movedAway.
+     */
+    private void addArrivedFiles(final Path folder, final Map<Path, BasicFileAttributes> files) {
+        submitScan(files.size() + " new files in " + folder, contents -> {
+            final Set<String> moved = new HashSet<>();
+            for (Map.Entry<String, FileEpisode> entry : episodes.entrySet()) {
+                String location = entry.getValue().getPath().toString();
+                if (!location.equals(entry.getKey())) {
+                    moved.add(location);
+                }
             }
+            final List<Path> paths = new ArrayList<>(files.size());
+            final List<BasicFileAttributes> attributes = new ArrayList<>(files.size());
+            for (Map.Entry<Path, BasicFileAttributes> file : files.entrySet()) {
+                String location = file.getKey().toAbsolutePath().toString();
+                if (moved.contains(location) || (movedAway.remove(location) != null)) {
+                    logger.fine("not adding file we moved: " + location);
+                    continue;
+                }
+                paths.add(file.getKey());
+                attributes.add(file.getValue());
+            }
+            addFilesToQueue(contents, paths, attributes);
+        });
+    }
+
+    /**
+     * Stop watching the folder given to {@link #watchFolder}, if any.
+     */
+    public synchronized void stopWatching() {
+        if (folderWatcher != null) {
+            folderWatcher.close();
+            folderWatcher = null;
         }
     }
 
@@ -287,15 +810,38 @@ public class EpisodeDb implements Observer {
             UserPreference userPref = (UserPreference) value;
             if ((userPref == UserPreference.IGNORE_REGEX) && (observable instanceof UserPreferences)) {
                 UserPreferences observed = (UserPreferences) observable;
-                ignoreKeywords = observed.getIgnoreKeywords();
+                ignoreMatcher = new KeywordMatcher(observed.getIgnoreKeywords());
                 for (FileEpisode ep : episodes.values()) {
                     ep.setIgnoreReason(ignorableReason(ep.getFilepath()));
                 }
                 listeners.forEach(AddEpisodeListener::refreshDestinations);
+            } else if ((userPref == UserPreference.FILE_EXTENSIONS)
+                       && (observable instanceof UserPreferences))
+            {
+                // This only affects files added from now on.
+                UserPreferences observed = (UserPreferences) observable;
+                extensionFilter = new ExtensionFilter(observed.getMediaExtensions(),
+                                                      observed.getSkippedExtensions());
             }
         }
     }
 
+    /**
+     * @return the number of files which were found, but not added, because of their
+     *    extensions, by all the requests to add files which have finished
+     */
+    public long getSkippedCount() {
+        return skippedFiles.get();
+    }
+
+    /**
+     * @return the number of files which were added, but whose names could not be
+     *    parsed, by all the requests to add files which have finished
+     */
+    public long getUnparsedCount() {
+        return unparsedFiles.get();
+    }
+
     /**
      * Standard object method to represent this EpisodeDb as a string.
      *
@@ -312,16 +858,16 @@ public class EpisodeDb implements Observer {
      * Register interest in files and folders that are added to the queue.
      *
      * @param listener
-     *    the AddEpisodeListener that should be called when we have finished processing
-     *    a folder or array of files
+     *    the AddEpisodeListener that should be called with each batch of files we
+     *    find; it will be called from a background thread
      */
     public void subscribe(AddEpisodeListener listener) {
         listeners.add(listener);
     }
 
     /**
-     * Notify registered interested parties that we've finished adding a folder or
-     * array of files to the queue, and pass the queue to each listener.
+     * Notify registered interested parties that we've found a batch of files, and
+     * pass the queue to each listener.
      *
      * @param episodes
      *    the queue of FileEpisode objects we've created since the last time we
@@ -0,0 +1,182 @@
+package org.tvrenamer.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * EpisodeIndex -- a Show's episodes, indexed by season number and episode number.<p>
+ *
+ * An EpisodeIndex never changes once it is built.  When the Show's episodes change, a
+ * new index is built and replaces the old one, all at once.  So, looking up an episode
+ * never needs a lock, and never sees an index that is only partly built.<p>
+ *
+ * The season numbers, and the episode numbers within each season, are kept in sorted
+ * arrays of ints, and found by binary search.  For each placement, the answers for
+ * both orderings -- the episode to use, and the list of all the candidates -- are
+ * worked out when the index is built, so a lookup doesn't create any objects at all.
+ * The answers are exactly what {@link EpisodeOptions} gives; see there for what the
+ * two orderings mean.
+ */
+final class EpisodeIndex {
+
+    static final EpisodeIndex EMPTY = new Builder().build();
+
+    /**
+     * The answers for one placement.
+     */
+    private static final class Slot {
+        final Episode dvdEpisode;
+        final Episode airEpisode;
+        final List<Episode> dvdEpisodes;
+        final List<Episode> airEpisodes;
+
+        Slot(final EpisodeOptions options) {
+            dvdEpisode = options.get(true);
+            airEpisode = options.get(false);
+            dvdEpisodes = compactList(options.getAll(true));
+            List<Episode> air = compactList(options.getAll(false));
+            airEpisodes = air.equals(dvdEpisodes) ? dvdEpisodes : air;
+        }
+
+        private static List<Episode> compactList(final List<Episode> episodes) {
+            if (episodes.size() == 1) {
+                return Collections.singletonList(episodes.get(0));
+            }
+            return Collections.unmodifiableList(Arrays.asList(
+                episodes.toArray(new Episode[episodes.size()])));
+        }
+    }
+
+    /**
+     * The placements within one season.
+     */
+    private static final class SeasonIndex {
+        final int[] episodeNumbers;
+        final Slot[] slots;
+
+        SeasonIndex(final Map<Integer, EpisodeOptions> episodes) {
+            episodeNumbers = new int[episodes.size()];
+            slots = new Slot[episodes.size()];
+            int i = 0;
+            for (Map.Entry<Integer, EpisodeOptions> entry : episodes.entrySet()) {
+                episodeNumbers[i] = entry.getKey();
+                slots[i] = new Slot(entry.getValue());
+                i++;
+            }
+        }
+
+        Slot get(final int episodeNum) {
+            int i = Arrays.binarySearch(episodeNumbers, episodeNum);
+            return (i < 0) ? null : slots[i];
+        }
+    }
+
+    /**
+     * Collects episodes at their placements, to build an EpisodeIndex.  The order in
+     * which episodes are added matters, in the same way it does for EpisodeOptions.
+     */
+    static final class Builder {
+        private final Map<Integer, Map<Integer, EpisodeOptions>> seasons = new TreeMap<>();
+
+        /**
+         * Add an episode at the given placement.
+         *
+         * @param placement
+         *           where to add the episode
+         * @param episode
+         *           the episode to add
+         * @param useDvd
+         *           whether the placement is the DVD ordering or the over-the-air ordering
+         */
+        void addEpisode(final EpisodePlacement placement, final Episode episode,
+                        final boolean useDvd)
+        {
+            seasons.computeIfAbsent(placement.season, s -> new TreeMap<>())
+                .computeIfAbsent(placement.episode, e -> new EpisodeOptions())
+                .addEpisode(useDvd, episode);
+        }
+
+        /**
+         * @return an index of the episodes added so far
+         */
+        EpisodeIndex build() {
+            return new EpisodeIndex(seasons);
+        }
+    }
+
+    private final int[] seasonNumbers;
+    private final SeasonIndex[] seasons;
+
+    private EpisodeIndex(final Map<Integer, Map<Integer, EpisodeOptions>> built) {
+        seasonNumbers = new int[built.size()];
+        seasons = new SeasonIndex[built.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Map<Integer, EpisodeOptions>> entry : built.entrySet()) {
+            seasonNumbers[i] = entry.getKey();
+            seasons[i] = new SeasonIndex(entry.getValue());
+            i++;
+        }
+    }
+
+    private Slot get(final EpisodePlacement placement) {
+        int i = Arrays.binarySearch(seasonNumbers, placement.season);
+        return (i < 0) ? null : seasons[i].get(placement.episode);
+    }
+
+    /**
+     * @param seasonNum
+     *           a season number
+     * @return true if any episode is placed in the given season
+     */
+    boolean hasSeason(final int seasonNum) {
+        return Arrays.binarySearch(seasonNumbers, seasonNum) >= 0;
+    }
+
+    /**
+     * Look up the episode at the given placement.
+     *
+     * @param placement
+     *           the placement of the episode to return
+     * @param preferDvd
+     *           whether the caller prefers the DVD ordering or the over-the-air ordering
+     * @return the episode that best matches, or null if none is at that placement
+     */
+    Episode getEpisode(final EpisodePlacement placement, final boolean preferDvd) {
+        Slot slot = get(placement);
+        if (slot == null) {
+            return null;
+        }
+        return preferDvd ? slot.dvdEpisode : slot.airEpisode;
+    }
+
+    /**
+     * Look up all the episodes at the given placement.
+     *
+     * @param placement
+     *           the placement of the episodes to return
+     * @param preferDvd
+     *           whether the caller prefers the DVD ordering or the over-the-air ordering
+     * @return an unmodifiable list of the episodes which possibly match, best first;
+     *           or null if none is at that placement
+     */
+    List<Episode> getEpisodes(final EpisodePlacement placement, final boolean preferDvd) {
+        Slot slot = get(placement);
+        if (slot == null) {
+            return null;
+        }
+        return preferDvd ? slot.dvdEpisodes : slot.airEpisodes;
+    }
+
+    /**
+     * Standard object method to represent this EpisodeIndex as a string.
+     *
+     * @return string version of this; gives the number of seasons
+     */
+    @Override
+    public String toString() {
+        return "{EpisodeIndex: " + seasonNumbers.length + " seasons}";
+    }
+}
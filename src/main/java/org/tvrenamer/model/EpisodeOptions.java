@@ -34,7 +34,8 @@ import java.util.stream.Collectors;
  * It probably SHOULDN'T ever happen, but we're prepared to handle it if it does.
  *
  * We use a class called EpisodeOptions which ties together an episode and an ordering.
- * The EpisodeNumber objects are indexed into the Season; each index has a list.  So, using the
+ * The EpisodeNumber objects are indexed by season and episode number; each index has a list.
+ * (Once the index is complete, {@link EpisodeIndex} keeps just the answers.)  So, using the
  * Futurama example, if we just added those two episodes, we'd have:
  *    Season 3:  16: {DVD: A Leela of Her Own}
  *    Season 4:  10: {DVD: The Why of Fry}, {AIR: A Leela of Her Own}
@@ -7,7 +7,6 @@
 
 package org.tvrenamer.model;
 
-import static org.tvrenamer.model.ReplacementToken.*;
 import static org.tvrenamer.model.util.Constants.*;
 
 import org.tvrenamer.controller.FilenameParser;
@@ -15,15 +14,16 @@ import org.tvrenamer.controller.util.StringUtils;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
 
 public class FileEpisode {
     private static final Logger logger = Logger.getLogger(FileEpisode.class.getName());
@@ -77,6 +77,38 @@ public class FileEpisode {
         NOT_STARTED
     }
 
+    /**
+     * The state of the file on disk, as far as we know, with respect to moving it.
+     *
+     * <ul>
+     * <li>UNCHECKED means we have not yet looked for the file</li>
+     * <li>NO_FILE means we looked, and the file isn't there</li>
+     * <li>UNMOVED means the file is where it was found, and we haven't tried to move it</li>
+     * <li>MOVING means we have started to move the file, and are not known to have
+     *     finished</li>
+     * <li>ALREADY_IN_PLACE means the file already has the name, and is already in the
+     *     directory, that we would give it</li>
+     * <li>RENAMED means we have moved the file to where the user wants it</li>
+     * <li>COPIED means we have copied the file to where the user wants it, but have not
+     *     (yet?) deleted the original</li>
+     * <li>FAIL_TO_MOVE means we tried, and failed, to move the file; the original file
+     *     is still where it was</li>
+     * <li>MISNAMED means the original file has been moved, but not to where we
+     *     expected</li>
+     * </ul>
+     */
+    public enum FileStatus {
+        UNCHECKED,
+        NO_FILE,
+        UNMOVED,
+        MOVING,
+        ALREADY_IN_PLACE,
+        RENAMED,
+        COPIED,
+        FAIL_TO_MOVE,
+        MISNAMED
+    }
+
     private static final long NO_FILE_SIZE = -1L;
 
     // Allow titles long enough to include this one:
@@ -87,15 +119,22 @@ public class FileEpisode {
     // a link to the user preferences to know how the user wants the file renamed.
     private static final UserPreferences userPrefs = UserPreferences.getInstance();
 
+    // The rename template from the preferences, compiled; see getRenameTemplate
+    private static volatile ReplacementTemplate renameTemplate = null;
+
     // This is the one final field in this class; it's the one thing that should never
     // change in a FileEpisode.  It could be the empty string (though it would be unusual).
     // If the file does actually have a suffix, this variable *includes* the leading dot.
+    // There are only a handful of different suffixes, so this string is interned.
     private final String filenameSuffix;
 
     // These four fields reflect the information derived from the filename.  In particular,
     // filenameShow is based on the part of the filename we "guessed" represented the name
     // of the show, and which we use to query the provider.  Note that the actual show name
     // that we get back from the provider will likely differ from what we have here.
+    //
+    // A session may have thousands of files from the same show, and they will all have
+    // the same few resolutions, so these strings are interned, to share one copy of each.
     private String filenameShow = "";
     private String filenameResolution = "";
 
@@ -116,9 +155,17 @@ public class FileEpisode {
     // files.  There's really no reason why the file has to exist, at least, not until
     // we actually try to move it.  If we just want to parse information and look it up
     // in the show's catalog, the file does not need to actually be present.
+    //
+    // Anything which can be worked out from the path -- the name of the file, and its
+    // basename -- is worked out when it's needed, rather than kept.
     private Path pathObj;
-    private String fileNameString;
     private long fileSize = NO_FILE_SIZE;
+    // What the file system told us about the file when we last looked.  The file key
+    // (where the platform has one) stays the same when the file is renamed within a
+    // file system, so it lets us recognize the file under another name without having
+    // to ask the file system to compare the two.
+    private Object fileKey = null;
+    private long fileModified = NO_FILE_SIZE;
 
     // After we've looked up the filenameShow from the provider, we try to get a Show from
     // the provider.  If we do not find any options, or if there is any kind of error
@@ -136,8 +183,8 @@ public class FileEpisode {
     private ParseStatus parseStatus = ParseStatus.UNPARSED;
     private SeriesStatus seriesStatus = SeriesStatus.NOT_STARTED;
 
-    public String fileStatus = "UNCHECKED";
-    private Boolean originalFileInPlace = null;
+    private FileStatus fileStatus = FileStatus.UNCHECKED;
+    private boolean originalFileInPlace = false;
     private boolean currentPathMatchesTemplate = false;
     private boolean moveInProgress = false;
     // These values are not necessarily eternal
@@ -149,19 +196,12 @@ public class FileEpisode {
         ORIGINAL_MISSING,
     }
 
-    private List<String> replacementOptions = null;
+    // The proposed destination (for the chosen option), or a message for the user.
+    // The full list of options is only built when it's asked for; see
+    // getReplacementOptions().
     private String replacementText = ADDED_PLACEHOLDER_FILENAME;
     private String reasonIgnored = null;
 
-    // The originalBasename is what you get when you take original file path, remove the
-    // directory, and remove the file suffix.  For situations when the user wants to move,
-    // but not rename the file, the originalBasename is what the target will be based on.
-    private String originalBasename;
-
-    // This is the basic part of what we would rename the file to.  That is, we would
-    // rename it to destinationFolder + baseForRename + filenameSuffix.
-    private String baseForRename = null;
-
     /**
      * Standard constructor for a FileEpisode; takes a Path.<p>
      *
@@ -172,6 +212,43 @@ public class FileEpisode {
      *   the Path of the file this FileEpisode represents
      */
     public FileEpisode(Path p) {
+        this(p, null);
+    }
+
+    /**
+     * Constructor for a FileEpisode whose file has already been looked at.<p>
+     *
+     * When we find files by walking a directory, we've already read their attributes,
+     * and there's no need to go back to the file system to check that the file exists
+     * and get its size.
+     *
+     * @param p
+     *   the Path of the file this FileEpisode represents
+     * @param attributes
+     *   the attributes of the file, or null to read them from the file system
+     */
+    public FileEpisode(Path p, BasicFileAttributes attributes) {
+        this(p, attributes, null, false);
+    }
+
+    /**
+     * Constructor for a FileEpisode whose file has already been looked at, and whose
+     * name has already been parsed (possibly in a previous run).
+     *
+     * @param p
+     *   the Path of the file this FileEpisode represents
+     * @param attributes
+     *   the attributes of the file, or null to read them from the file system
+     * @param parsed
+     *   the information found in the filename, or null if it could not be parsed
+     */
+    public FileEpisode(Path p, BasicFileAttributes attributes, ParsedFilename parsed) {
+        this(p, attributes, parsed, true);
+    }
+
+    private FileEpisode(Path p, BasicFileAttributes attributes, ParsedFilename parsed,
+                        boolean alreadyParsed)
+    {
         if (p == null) {
             logger.severe(FILE_EPISODE_NEEDS_PATH);
             throw new IllegalArgumentException(FILE_EPISODE_NEEDS_PATH);
@@ -182,11 +259,18 @@ public class FileEpisode {
             logger.severe(FILE_EPISODE_NEEDS_PATH);
             throw new IllegalArgumentException(FILE_EPISODE_NEEDS_PATH);
         }
-        fileNameString = justNamePath.toString();
-        filenameSuffix = StringUtils.getExtension(fileNameString);
-        originalBasename = StringUtils.removeLast(fileNameString, filenameSuffix);
-        checkFile(true);
-        FilenameParser.parseFilename(this);
+        filenameSuffix = StringUtils.getExtension(justNamePath.toString()).intern();
+        if (attributes == null) {
+            checkFile(true);
+        } else {
+            setFileVerified();
+            setFileAttributes(attributes);
+        }
+        if (alreadyParsed) {
+            FilenameParser.applyParse(this, parsed);
+        } else {
+            FilenameParser.parseFilename(this);
+        }
     }
 
     /**
@@ -208,9 +292,7 @@ public class FileEpisode {
             logger.severe(FILE_EPISODE_NEEDS_PATH);
             throw new IllegalArgumentException(FILE_EPISODE_NEEDS_PATH);
         }
-        fileNameString = justNamePath.toString();
-        filenameSuffix = StringUtils.getExtension(fileNameString);
-        originalBasename = StringUtils.removeLast(fileNameString, filenameSuffix);
+        filenameSuffix = StringUtils.getExtension(justNamePath.toString()).intern();
         checkFile(false);
     }
 
@@ -219,7 +301,7 @@ public class FileEpisode {
     }
 
     public void setFilenameShow(String filenameShow) {
-        this.filenameShow = filenameShow;
+        this.filenameShow = filenameShow.intern();
     }
 
     public EpisodePlacement getEpisodePlacement() {
@@ -290,7 +372,7 @@ public class FileEpisode {
         if (filenameResolution == null) {
             this.filenameResolution = "";
         } else {
-            this.filenameResolution = filenameResolution;
+            this.filenameResolution = filenameResolution.intern();
         }
     }
 
@@ -303,7 +385,28 @@ public class FileEpisode {
     }
 
     public String getFileName() {
-        return fileNameString;
+        return pathObj.getFileName().toString();
+    }
+
+    /**
+     * Gets the basename of the file as it is now: that is, the name of the file,
+     * without the directory, and without the file suffix.  For situations when the
+     * user wants to move, but not rename the file, this is what the target will be
+     * based on.
+     *
+     * @return the basename of the file
+     */
+    private String getOriginalBasename() {
+        return StringUtils.removeLast(getFileName(), filenameSuffix);
+    }
+
+    /**
+     * Gets the status of the file on disk, as far as we know.
+     *
+     * @return the status of the file
+     */
+    public FileStatus getFileStatus() {
+        return fileStatus;
     }
 
     /**
@@ -311,7 +414,7 @@ public class FileEpisode {
      *
      */
     public void setNoFile() {
-        fileStatus = "NO_FILE";
+        fileStatus = FileStatus.NO_FILE;
 
         originalFileInPlace = false;
     }
@@ -321,30 +424,72 @@ public class FileEpisode {
      *
      */
     public void setFileVerified() {
-        fileStatus = "UNMOVED";
+        fileStatus = FileStatus.UNMOVED;
         originalFileInPlace = true;
         moveInProgress = false;
     }
 
     private void checkFile(boolean mustExist) {
-        if (Files.exists(pathObj)) {
-            setFileVerified();
-            try {
-                fileSize = Files.size(pathObj);
-            } catch (IOException ioe) {
-                logger.log(Level.WARNING, "couldn't get size of " + pathObj, ioe);
-                setNoFile();
-                fileSize = NO_FILE_SIZE;
-            }
-        } else {
+        BasicFileAttributes attributes = null;
+        try {
+            attributes = Files.readAttributes(pathObj, BasicFileAttributes.class);
+        } catch (NoSuchFileException nsfe) {
             if (mustExist) {
                 logger.warning("creating FileEpisode for nonexistent path, " + pathObj);
             }
+        } catch (IOException | SecurityException e) {
+            logger.log(Level.WARNING, "couldn't get size of " + pathObj, e);
+        }
+        if (attributes == null) {
             setNoFile();
             fileSize = NO_FILE_SIZE;
+            fileKey = null;
+            fileModified = NO_FILE_SIZE;
+        } else {
+            setFileVerified();
+            setFileAttributes(attributes);
         }
     }
 
+    /**
+     * Records what the file system has told us about the file.<p>
+     *
+     * This does not change the status of the file; it's meant to be called
+     * with attributes just read from the file's current location.
+     *
+     * @param attributes
+     *    the attributes of the file, as of now
+     */
+    public synchronized void setFileAttributes(BasicFileAttributes attributes) {
+        fileSize = attributes.size();
+        fileKey = attributes.fileKey();
+        fileModified = attributes.lastModifiedTime().toMillis();
+    }
+
+    /**
+     * Tells whether the given attributes describe the file exactly as we last saw it:
+     * the same file (if the platform can tell us that), with the same size and the
+     * same modification time.
+     *
+     * @param attributes
+     *    the attributes of a file, as of now
+     * @return true if nothing seems to have changed
+     */
+    public synchronized boolean hasFileAttributes(BasicFileAttributes attributes) {
+        return (fileSize == attributes.size())
+            && (fileModified == attributes.lastModifiedTime().toMillis())
+            && Objects.equals(fileKey, attributes.fileKey());
+    }
+
+    /**
+     * @return the file key the file system gave for the file when we last
+     *    looked at it; may be null, either because the platform doesn't have
+     *    file keys, or because we have not found the file
+     */
+    public synchronized Object getFileKey() {
+        return fileKey;
+    }
+
     /**
      * Sets the Path for the file that this FileEpisode refers to.<p>
      *
@@ -371,19 +516,16 @@ public class FileEpisode {
             logger.severe(FILE_EPISODE_NEEDS_PATH);
             throw new IllegalArgumentException(FILE_EPISODE_NEEDS_PATH);
         }
-        pathObj = p;
-        final Path justNamePath = pathObj.getFileName();
+        final Path justNamePath = p.getFileName();
         if (justNamePath == null) {
             logger.severe(FILE_EPISODE_NEEDS_PATH);
             throw new IllegalArgumentException(FILE_EPISODE_NEEDS_PATH);
         }
-        fileNameString = justNamePath.toString();
-        String newSuffix = StringUtils.getExtension(fileNameString);
+        String newSuffix = StringUtils.getExtension(justNamePath.toString());
         if (!filenameSuffix.equals(newSuffix)) {
             throw new IllegalStateException("suffix of a FileEpisode may not change!");
         }
-        originalBasename = StringUtils.removeLast(fileNameString, filenameSuffix);
-        baseForRename = getRenamedBasename(chosenEpisode);
+        pathObj = p;
         checkFile(true);
     }
 
@@ -426,13 +568,13 @@ public class FileEpisode {
         if (reasonIgnored != null) {
             return 0;
         }
-        if (replacementOptions == null) {
+        if (actualEpisodes == null) {
             // This should never happen; if we have GOT_LISTINGS,
-            // replacementOptions should be initialized
-            logger.warning("error: replacementOptions is null despite GOT_LISTINGS");
+            // actualEpisodes should be initialized
+            logger.warning("error: actualEpisodes is null despite GOT_LISTINGS");
             return 0;
         }
-        return replacementOptions.size();
+        return userPrefs.isRenameSelected() ? actualEpisodes.size() : 1;
     }
 
     /**
@@ -479,7 +621,7 @@ public class FileEpisode {
      *
      */
     public void setMoving() {
-        fileStatus = "MOVING";
+        fileStatus = FileStatus.MOVING;
         originalFileInPlace = true;
         moveInProgress = true;
         // Since we are starting a new move, we reset these values.
@@ -495,7 +637,7 @@ public class FileEpisode {
      *
      */
     public void setAlreadyInPlace() {
-        fileStatus = "ALREADY_IN_PLACE";
+        fileStatus = FileStatus.ALREADY_IN_PLACE;
         originalFileInPlace = true;
         currentPathMatchesTemplate = true;
         moveInProgress = false;
@@ -519,7 +661,7 @@ public class FileEpisode {
      *
      */
     public void setRenamed() {
-        fileStatus = "RENAMED";
+        fileStatus = FileStatus.RENAMED;
         originalFileInPlace = false;
         currentPathMatchesTemplate = true;
         moveInProgress = false;
@@ -536,7 +678,7 @@ public class FileEpisode {
      *
      */
     public void setCopied() {
-        fileStatus = "COPIED";
+        fileStatus = FileStatus.COPIED;
         originalFileInPlace = true;
         currentPathMatchesTemplate = true;
         moveInProgress = false;
@@ -553,7 +695,7 @@ public class FileEpisode {
      *
      */
     public void setFailToMove() {
-        fileStatus = "FAIL_TO_MOVE";
+        fileStatus = FileStatus.FAIL_TO_MOVE;
         originalFileInPlace = true;
         currentPathMatchesTemplate = false;
         moveInProgress = false;
@@ -569,7 +711,7 @@ public class FileEpisode {
      *
      */
     public void setMisnamed() {
-        fileStatus = "MISNAMED";
+        fileStatus = FileStatus.MISNAMED;
         originalFileInPlace = false;
         currentPathMatchesTemplate = false;
         moveInProgress = false;
@@ -676,10 +818,9 @@ public class FileEpisode {
             return 0;
         }
 
+        // The Show gives us an unmodifiable list, shared with every other file which
+        // has the same placement.
         actualEpisodes = actualShow.getEpisodes(placement);
-        if ((actualEpisodes != null) && (actualEpisodes.size() == 0)) {
-            actualEpisodes = null;
-        }
         if (actualEpisodes == null) {
             logger.info("Season #" + placement.season + ", Episode #"
                         + placement.episode + " not found for show '"
@@ -697,7 +838,7 @@ public class FileEpisode {
                 return 0;
             }
 
-            return replacementOptions.size();
+            return optionCount();
         }
     }
 
@@ -773,9 +914,20 @@ public class FileEpisode {
         return dest.toString();
     }
 
-    private static String formatDate(final LocalDate date, final String format) {
-        DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern(format);
-        return dateFormat.format(date);
+    /**
+     * Get the user's rename template, compiled.  It's compiled again only when the
+     * preference has changed since the last time.
+     *
+     * @return the compiled rename template
+     */
+    private static ReplacementTemplate getRenameTemplate() {
+        final String replacementTemplate = userPrefs.getRenameReplacementString();
+        ReplacementTemplate compiled = renameTemplate;
+        if ((compiled == null) || !compiled.isCompiledFrom(replacementTemplate)) {
+            compiled = ReplacementTemplate.compile(replacementTemplate);
+            renameTemplate = compiled;
+        }
+        return compiled;
     }
 
     /**
@@ -786,7 +938,7 @@ public class FileEpisode {
      * call from any context.
      *
      * @param replacementTemplate
-     *     the template provided by the user via the preferences dialog
+     *     the compiled template provided by the user via the preferences dialog
      * @param actualShow
      *     the TV show that we have determined matches this FileEpisode
      * @param actualEpisode
@@ -798,7 +950,7 @@ public class FileEpisode {
      * @return the template string with the episode information replacing the control strings
      */
     @SuppressWarnings("WeakerAccess")
-    static String plugInInformation(final String replacementTemplate,
+    static String plugInInformation(final ReplacementTemplate replacementTemplate,
                                     final Show actualShow, final Episode actualEpisode,
                                     final EpisodePlacement placement, final String resolution)
     {
@@ -809,23 +961,6 @@ public class FileEpisode {
             logger.fine("truncating episode title to " + episodeTitle);
             episodeTitle = episodeTitle.substring(0, MAX_TITLE_LENGTH);
         }
-        String newFilename = replacementTemplate
-            .replaceAll(SEASON_NUM.getToken(),
-                        String.valueOf(placement.season))
-            .replaceAll(SEASON_NUM_LEADING_ZERO.getToken(),
-                        StringUtils.zeroPadTwoDigits(placement.season))
-            .replaceAll(EPISODE_NUM.getToken(),
-                        StringUtils.formatDigits(placement.episode))
-            .replaceAll(EPISODE_NUM_LEADING_ZERO.getToken(),
-                        StringUtils.zeroPadThreeDigits(placement.episode))
-            .replaceAll(SHOW_NAME.getToken(),
-                        Matcher.quoteReplacement(showName))
-            .replaceAll(EPISODE_TITLE.getToken(),
-                        Matcher.quoteReplacement(episodeTitle))
-            .replaceAll(EPISODE_TITLE_NO_SPACES.getToken(),
-                        Matcher.quoteReplacement(StringUtils.makeDotTitle(episodeTitle)))
-            .replaceAll(EPISODE_RESOLUTION.getToken(),
-                        resolution);
 
         // Date and times
         final LocalDate airDate = actualEpisode.getAirDate();
@@ -834,61 +969,13 @@ public class FileEpisode {
                        + ", " + placement + ", \"" + episodeTitle + "\"");
         }
         // If the airDate is null, we warn (above) but we go ahead and do the substitution anyway;
-        // if the date is null, we need to replace the control strings with the empty string.
-        newFilename = plugInAirDate(airDate, newFilename);
+        // if the date is null, the template replaces the control strings with the empty string.
+        String newFilename = replacementTemplate.render(showName, episodeTitle, placement,
+                                                        resolution, airDate);
 
         return StringUtils.sanitiseTitle(newFilename);
     }
 
-    private static String removeTokens(final String orig, final ReplacementToken... tokens) {
-        String removed = orig;
-
-        for (ReplacementToken token : tokens) {
-            removed = removed.replaceAll(token.getToken(), "");
-        }
-        return removed;
-    }
-
-    /**
-     * Replace the date control strings in the template, with the episode air date information.
-     * May be called with null if the episode in question doesn't have air date information.
-     *
-     * This method is static to make it obvious that it doesn't rely on any instance variables;
-     * since it also does not modify any class variables, it is a pure function, and safe to
-     * call from any context.
-     *
-     * @param airDate
-     *     the date information we obtained from the episode; may be null
-     * @param template
-     *     the replacement template provided by the user via the preferences dialog; may be
-     *     partially filled in already, of course.
-     * @return the template string with the air date information replacing the control strings
-     */
-    @SuppressWarnings("WeakerAccess")
-    static String plugInAirDate(final LocalDate airDate, final String template) {
-        // Date and times
-        if (airDate == null) {
-            return removeTokens(template,
-                                DATE_DAY_NUM, DATE_DAY_NUMLZ,
-                                DATE_MONTH_NUM, DATE_MONTH_NUMLZ,
-                                DATE_YEAR_FULL, DATE_YEAR_MIN);
-        } else {
-            return template
-                .replaceAll(DATE_DAY_NUM.getToken(),
-                            formatDate(airDate, "d"))
-                .replaceAll(DATE_DAY_NUMLZ.getToken(),
-                            formatDate(airDate, "dd"))
-                .replaceAll(DATE_MONTH_NUM.getToken(),
-                            formatDate(airDate, "M"))
-                .replaceAll(DATE_MONTH_NUMLZ.getToken(),
-                            formatDate(airDate, "MM"))
-                .replaceAll(DATE_YEAR_FULL.getToken(),
-                            formatDate(airDate, "yyyy"))
-                .replaceAll(DATE_YEAR_MIN.getToken(),
-                            formatDate(airDate, "yy"));
-        }
-    }
-
     /**
      * Calculates the destination basename for this FileEpisode.<p>
      *
@@ -916,18 +1003,18 @@ public class FileEpisode {
 
         if (actualShow == null) {
             logger.severe("cannot rename without an actual Show.");
-            return originalBasename;
+            return getOriginalBasename();
         }
         if (actualEpisodes == null) {
             logger.severe("should not be renaming when have no actual episodes");
-            return originalBasename;
+            return getOriginalBasename();
         }
         if (actualEpisodes.size() <= n) {
             logger.severe("cannot get option " + n + " of " + this);
-            return originalBasename;
+            return getOriginalBasename();
         }
 
-        return plugInInformation(userPrefs.getRenameReplacementString(),
+        return plugInInformation(getRenameTemplate(),
                                  actualShow, actualEpisodes.get(n),
                                  placement, filenameResolution);
     }
@@ -946,7 +1033,6 @@ public class FileEpisode {
             if (chosenEpisode != previous) {
                 logger.info("changing episode from " + actualEpisodes.get(previous).getTitle()
                             + " to " + actualEpisodes.get(chosenEpisode).getTitle());
-                baseForRename = getRenamedBasename(chosenEpisode);
             }
         }
     }
@@ -973,54 +1059,59 @@ public class FileEpisode {
      *
      * When rename is enabled, to get the destination basename, we use the template
      * provided by the user in  the preferences, and plug in the information we found
-     * about the actual show and the actual episode.
+     * about the actual show and the actual episode.  This is worked out each time
+     * it's asked for; it's only needed when the file is actually moved.
      *
      * @return the "basename" of the proposed destination for this file
      */
-    public String getDestinationBasename() {
+    public synchronized String getDestinationBasename() {
         if (userPrefs.isRenameSelected()) {
-            if (baseForRename == null) {
+            if ((seriesStatus != SeriesStatus.GOT_LISTINGS) || (actualEpisodes == null)) {
                 logger.warning("unable to get destination basename; "
                                + "reverting to original basename "
-                               + originalBasename);
-                return originalBasename;
+                               + getOriginalBasename());
+                return getOriginalBasename();
             }
-            return baseForRename;
+            return getRenamedBasename(chosenEpisode);
         } else {
-            return originalBasename;
+            return getOriginalBasename();
         }
     }
 
     /**
-     * Build the new full file path options (for table display) using {@link #getRenamedBasename(int)}
-     * and the destination directory
+     * Build the new full file path (for table display) for the given option, using
+     * {@link #getRenamedBasename(int)} and the destination directory
      *
+     * @param n
+     *    the episode option to get the destination of
+     * @return the proposed destination for that option
      */
-    private synchronized void buildReplacementTextOptions() {
-        seriesStatus = SeriesStatus.GOT_LISTINGS;
-        replacementOptions = new LinkedList<>();
+    private String getReplacementOption(final int n) {
         if (userPrefs.isRenameSelected()) {
-            for (int i=0; i < actualEpisodes.size(); i++) {
-                String newBasename = getRenamedBasename(i);
-                if (i == chosenEpisode) {
-                    baseForRename = newBasename;
-                }
-
-                if (userPrefs.isMoveSelected()) {
-                    replacementOptions.add(getMoveToFile(newBasename + filenameSuffix));
-                } else {
-                    replacementOptions.add(newBasename + filenameSuffix);
-                }
+            String newBasename = getRenamedBasename(n);
+            if (userPrefs.isMoveSelected()) {
+                return getMoveToFile(newBasename + filenameSuffix);
+            } else {
+                return newBasename + filenameSuffix;
             }
         } else if (userPrefs.isMoveSelected()) {
-            replacementOptions.add(getMoveToFile(fileNameString));
+            return getMoveToFile(getFileName());
         } else {
             // This setting doesn't make any sense, but we haven't bothered to
             // disallow it yet.
             logger.severe("apparently both rename and move are disabled! This is not allowed!");
-            replacementOptions.add(fileNameString);
+            return getFileName();
         }
-        replacementText = replacementOptions.get(chosenEpisode);
+    }
+
+    /**
+     * Work out the proposed destination for the chosen option.  The other options
+     * are only worked out if someone asks for them.
+     *
+     */
+    private synchronized void buildReplacementTextOptions() {
+        seriesStatus = SeriesStatus.GOT_LISTINGS;
+        replacementText = getReplacementOption(chosenEpisode);
     }
 
     /**
@@ -1048,7 +1139,15 @@ public class FileEpisode {
      * @return the new full file path options
      */
     public synchronized List<String> getReplacementOptions() {
-        return replacementOptions;
+        if ((seriesStatus != SeriesStatus.GOT_LISTINGS) || (actualEpisodes == null)) {
+            return null;
+        }
+        final int nOptions = optionCount();
+        final List<String> options = new ArrayList<>(nOptions);
+        for (int i = 0; i < nOptions; i++) {
+            options.add(getReplacementOption(i));
+        }
+        return options;
     }
 
     /**
@@ -1065,7 +1164,7 @@ public class FileEpisode {
 
     @Override
     public String toString() {
-        String val = "FileEpisode {file: " + fileNameString + ", show: ";
+        String val = "FileEpisode {file: " + getFileName() + ", show: ";
         String name = (actualShow == null) ? filenameShow : actualShow.getName();
         String plc = (placement == null) ? ", no placement"
             : ", season: " + placement.season + ", episode: " + placement.episode;
@@ -0,0 +1,67 @@
+package org.tvrenamer.model;
+
+/**
+ * The pieces of information the FilenameParser was able to extract from a filename.<p>
+ *
+ * The values are the exact substrings that were found in the filename; no attempt has
+ * been made to interpret them.  In particular, the season and episode are kept as
+ * Strings, and it's up to the FileEpisode to turn them into an EpisodePlacement.
+ */
+public class ParsedFilename {
+
+    public final String filenameShow;
+    public final String seasonString;
+    public final String episodeString;
+    public final String resolution;
+
+    public ParsedFilename(String filenameShow, String seasonString,
+                          String episodeString, String resolution)
+    {
+        this.filenameShow = filenameShow;
+        this.seasonString = seasonString;
+        this.episodeString = episodeString;
+        this.resolution = (resolution == null) ? "" : resolution;
+    }
+
+    /**
+     * Compares two ParsedFilenames field by field.
+     *
+     * @param other
+     *   the object to compare to
+     * @return true if the other object is a ParsedFilename that found exactly the
+     *   same substrings as this one
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ParsedFilename)) {
+            return false;
+        }
+        ParsedFilename that = (ParsedFilename) other;
+        return filenameShow.equals(that.filenameShow)
+            && seasonString.equals(that.seasonString)
+            && episodeString.equals(that.episodeString)
+            && resolution.equals(that.resolution);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = filenameShow.hashCode();
+        hash = 31 * hash + seasonString.hashCode();
+        hash = 31 * hash + episodeString.hashCode();
+        return 31 * hash + resolution.hashCode();
+    }
+
+    /**
+     * Standard object method to represent this ParsedFilename as a String.
+     *
+     * @return string which gives the substrings that were found
+     */
+    @Override
+    public String toString() {
+        return "ParsedFilename [" + filenameShow + ", season " + seasonString
+            + ", episode " + episodeString + ", resolution " + resolution + "]";
+    }
+}
@@ -0,0 +1,327 @@
+package org.tvrenamer.model;
+
+import static org.tvrenamer.model.ReplacementToken.*;
+
+import org.tvrenamer.controller.util.StringUtils;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+
+/**
+ * ReplacementTemplate -- the rename template from the preferences, compiled once into
+ * a list of literal strings and {@link ReplacementToken}s.<p>
+ *
+ * Filling in the template used to take fourteen calls to String.replaceAll, each of
+ * which compiled a regular expression and built a new string, plus a new
+ * DateTimeFormatter for each date token.  That was done for every episode option of
+ * every file, each time the table was refreshed.  A compiled template is filled in
+ * with a single pass over its parts, into a StringBuilder which is reused.<p>
+ *
+ * The result is exactly what the chained calls to replaceAll produced.  Those calls
+ * were made one after another, so text put in by one could be picked up by a later
+ * one: a show name containing "%t", for example, would have it replaced by the
+ * episode title.  That can only happen if a percent sign is left over after the
+ * tokens are found, either in the template or in one of the values plugged in.  In
+ * that case, which should be very rare, we still use replaceAll.<p>
+ *
+ * A ReplacementTemplate is immutable, and may be used from any number of threads at once.
+ */
+public class ReplacementTemplate {
+
+    // Tokens which start with the same characters must be tried longest first,
+    // so that "%yyyy" is not read as "%yy" followed by "yy".
+    private static final ReplacementToken[] TOKENS_LONGEST_FIRST;
+
+    static {
+        ReplacementToken[] tokens = ReplacementToken.values();
+        Arrays.sort(tokens, Comparator.comparingInt((ReplacementToken t) -> t.getToken().length())
+                    .reversed());
+        TOKENS_LONGEST_FIRST = tokens;
+    }
+
+    private static final DateTimeFormatter DAY_NUM = DateTimeFormatter.ofPattern("d");
+    private static final DateTimeFormatter DAY_NUMLZ = DateTimeFormatter.ofPattern("dd");
+    private static final DateTimeFormatter MONTH_NUM = DateTimeFormatter.ofPattern("M");
+    private static final DateTimeFormatter MONTH_NUMLZ = DateTimeFormatter.ofPattern("MM");
+    private static final DateTimeFormatter YEAR_FULL = DateTimeFormatter.ofPattern("yyyy");
+    private static final DateTimeFormatter YEAR_MIN = DateTimeFormatter.ofPattern("yy");
+
+    private static final ThreadLocal<StringBuilder> BUILDER
+        = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+    private final String template;
+
+    // The compiled template: for each part, either a token, or, if the token is
+    // null, the literal text at the same position.
+    private final ReplacementToken[] tokens;
+    private final String[] literals;
+
+    // False if the template contains a percent sign which does not begin a token.
+    private final boolean exact;
+
+    private ReplacementTemplate(final String template) {
+        this.template = template;
+
+        List<ReplacementToken> tokenList = new ArrayList<>();
+        List<String> literalList = new ArrayList<>();
+        boolean allPercentsAreTokens = (template != null);
+        if (template != null) {
+            int literalStart = 0;
+            int i = template.indexOf('%');
+            while (i >= 0) {
+                ReplacementToken found = null;
+                for (ReplacementToken token : TOKENS_LONGEST_FIRST) {
+                    if (template.startsWith(token.getToken(), i)) {
+                        found = token;
+                        break;
+                    }
+                }
+                if (found == null) {
+                    allPercentsAreTokens = false;
+                    i = template.indexOf('%', i + 1);
+                } else {
+                    if (i > literalStart) {
+                        tokenList.add(null);
+                        literalList.add(template.substring(literalStart, i));
+                    }
+                    tokenList.add(found);
+                    literalList.add(null);
+                    literalStart = i + found.getToken().length();
+                    i = template.indexOf('%', literalStart);
+                }
+            }
+            if (literalStart < template.length()) {
+                tokenList.add(null);
+                literalList.add(template.substring(literalStart));
+            }
+        }
+        tokens = tokenList.toArray(new ReplacementToken[tokenList.size()]);
+        literals = literalList.toArray(new String[literalList.size()]);
+        exact = allPercentsAreTokens;
+    }
+
+    /**
+     * Compile the given template.
+     *
+     * @param template
+     *     the template provided by the user via the preferences dialog
+     * @return the compiled template
+     */
+    public static ReplacementTemplate compile(final String template) {
+        return new ReplacementTemplate(template);
+    }
+
+    /**
+     * @param candidate
+     *     a template string
+     * @return true if this was compiled from the given string
+     */
+    public boolean isCompiledFrom(final String candidate) {
+        return (template == null) ? (candidate == null) : template.equals(candidate);
+    }
+
+    /**
+     * @return the template string this was compiled from
+     */
+    public String getTemplate() {
+        return template;
+    }
+
+    private static boolean containsPercent(final String value) {
+        return (value != null) && (value.indexOf('%') >= 0);
+    }
+
+    /**
+     * Fill in the template with the given episode information.
+     *
+     * @param showName
+     *     the name of the show
+     * @param episodeTitle
+     *     the title of the episode
+     * @param placement
+     *     the season number and episode number
+     * @param resolution
+     *     the screen resolution (e.g., "720p", etc.) we obtained from the filename
+     * @param airDate
+     *     the date the episode aired; may be null, in which case the date tokens are
+     *     simply removed
+     * @return the template with the episode information replacing the tokens
+     */
+    public String render(final String showName, final String episodeTitle,
+                         final EpisodePlacement placement, final String resolution,
+                         final LocalDate airDate)
+    {
+        // The resolution was never quoted, so "$" and "\" in it meant something to replaceAll.
+        if (!exact || containsPercent(showName) || containsPercent(episodeTitle)
+            || (resolution == null) || containsPercent(resolution)
+            || (resolution.indexOf('$') >= 0) || (resolution.indexOf('\\') >= 0))
+        {
+            return renderByReplacing(template, showName, episodeTitle, placement,
+                                     resolution, airDate);
+        }
+
+        StringBuilder rendered = BUILDER.get();
+        rendered.setLength(0);
+        for (int i = 0; i < tokens.length; i++) {
+            ReplacementToken token = tokens[i];
+            if (token == null) {
+                rendered.append(literals[i]);
+                continue;
+            }
+            switch (token) {
+                case SHOW_NAME:
+                    rendered.append(showName);
+                    break;
+                case SEASON_NUM:
+                    rendered.append(placement.season);
+                    break;
+                case SEASON_NUM_LEADING_ZERO:
+                    rendered.append(StringUtils.zeroPadTwoDigits(placement.season));
+                    break;
+                case EPISODE_NUM:
+                    rendered.append(StringUtils.formatDigits(placement.episode));
+                    break;
+                case EPISODE_NUM_LEADING_ZERO:
+                    rendered.append(StringUtils.zeroPadThreeDigits(placement.episode));
+                    break;
+                case EPISODE_TITLE:
+                    rendered.append(episodeTitle);
+                    break;
+                case EPISODE_TITLE_NO_SPACES:
+                    rendered.append(StringUtils.makeDotTitle(episodeTitle));
+                    break;
+                case EPISODE_RESOLUTION:
+                    rendered.append(resolution);
+                    break;
+                default:
+                    if (airDate != null) {
+                        dateFormatter(token).formatTo(airDate, rendered);
+                    }
+                    break;
+            }
+        }
+        return rendered.toString();
+    }
+
+    private static DateTimeFormatter dateFormatter(final ReplacementToken token) {
+        switch (token) {
+            case DATE_DAY_NUM:
+                return DAY_NUM;
+            case DATE_DAY_NUMLZ:
+                return DAY_NUMLZ;
+            case DATE_MONTH_NUM:
+                return MONTH_NUM;
+            case DATE_MONTH_NUMLZ:
+                return MONTH_NUMLZ;
+            case DATE_YEAR_FULL:
+                return YEAR_FULL;
+            case DATE_YEAR_MIN:
+                return YEAR_MIN;
+            default:
+                throw new IllegalArgumentException("not a date token: " + token);
+        }
+    }
+
+    /**
+     * Fill in the template the way it was always done, by replacing each token in
+     * turn.  See the class comment for when this is still needed.
+     *
+     * @param template
+     *     the template provided by the user via the preferences dialog
+     * @param showName
+     *     the name of the show
+     * @param episodeTitle
+     *     the title of the episode
+     * @param placement
+     *     the season number and episode number
+     * @param resolution
+     *     the screen resolution (e.g., "720p", etc.) we obtained from the filename
+     * @param airDate
+     *     the date the episode aired; may be null
+     * @return the template with the episode information replacing the tokens
+     */
+    static String renderByReplacing(final String template, final String showName,
+                                    final String episodeTitle,
+                                    final EpisodePlacement placement,
+                                    final String resolution, final LocalDate airDate)
+    {
+        String newFilename = template
+            .replaceAll(SEASON_NUM.getToken(),
+                        String.valueOf(placement.season))
+            .replaceAll(SEASON_NUM_LEADING_ZERO.getToken(),
+                        StringUtils.zeroPadTwoDigits(placement.season))
+            .replaceAll(EPISODE_NUM.getToken(),
+                        StringUtils.formatDigits(placement.episode))
+            .replaceAll(EPISODE_NUM_LEADING_ZERO.getToken(),
+                        StringUtils.zeroPadThreeDigits(placement.episode))
+            .replaceAll(SHOW_NAME.getToken(),
+                        Matcher.quoteReplacement(showName))
+            .replaceAll(EPISODE_TITLE.getToken(),
+                        Matcher.quoteReplacement(episodeTitle))
+            .replaceAll(EPISODE_TITLE_NO_SPACES.getToken(),
+                        Matcher.quoteReplacement(StringUtils.makeDotTitle(episodeTitle)))
+            .replaceAll(EPISODE_RESOLUTION.getToken(),
+                        resolution);
+
+        return plugInAirDate(airDate, newFilename);
+    }
+
+    private static String removeTokens(final String orig, final ReplacementToken... tokens) {
+        String removed = orig;
+
+        for (ReplacementToken token : tokens) {
+            removed = removed.replaceAll(token.getToken(), "");
+        }
+        return removed;
+    }
+
+    /**
+     * Replace the date control strings in the template, with the episode air date information.
+     * May be called with null if the episode in question doesn't have air date information.
+     *
+     * @param airDate
+     *     the date information we obtained from the episode; may be null
+     * @param template
+     *     the replacement template provided by the user via the preferences dialog; may be
+     *     partially filled in already, of course.
+     * @return the template string with the air date information replacing the control strings
+     */
+    private static String plugInAirDate(final LocalDate airDate, final String template) {
+        if (airDate == null) {
+            return removeTokens(template,
+                                DATE_DAY_NUM, DATE_DAY_NUMLZ,
+                                DATE_MONTH_NUM, DATE_MONTH_NUMLZ,
+                                DATE_YEAR_FULL, DATE_YEAR_MIN);
+        } else {
+            return template
+                .replaceAll(DATE_DAY_NUM.getToken(),
+                            DAY_NUM.format(airDate))
+                .replaceAll(DATE_DAY_NUMLZ.getToken(),
+                            DAY_NUMLZ.format(airDate))
+                .replaceAll(DATE_MONTH_NUM.getToken(),
+                            MONTH_NUM.format(airDate))
+                .replaceAll(DATE_MONTH_NUMLZ.getToken(),
+                            MONTH_NUMLZ.format(airDate))
+                .replaceAll(DATE_YEAR_FULL.getToken(),
+                            YEAR_FULL.format(airDate))
+                .replaceAll(DATE_YEAR_MIN.getToken(),
+                            YEAR_MIN.format(airDate));
+        }
+    }
+
+    /**
+     * Standard object method to represent this ReplacementTemplate as a string.
+     *
+     * @return string version of this; gives the template and the number of parts
+     */
+    @Override
+    public String toString() {
+        return "{ReplacementTemplate: \"" + template + "\", " + tokens.length + " parts"
+            + (exact ? "" : ", not exact") + "}";
+    }
+}
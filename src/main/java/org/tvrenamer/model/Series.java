@@ -141,6 +141,17 @@ public class Series extends Show {
         return idNum;
     }
 
+    /**
+     * Start downloading this Series's listings, if we haven't already, even though
+     * no one has asked for them yet.  Anyone who resolves a filename to this Series
+     * is going to want the listings next, so there is no reason to wait.
+     */
+    public synchronized void prefetchListings() {
+        if (listingsStatus == DownloadStatus.NOT_STARTED) {
+            ListingsLookup.downloadListings(this);
+        }
+    }
+
     /**
      * Registers a listener interested in this Series's listings.  If we
      * already have the listings, and we can notify the new listener
@@ -9,6 +9,7 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -43,10 +44,12 @@ public class Show extends ShowOption {
     private final String dirName;
 
     final Map<String, Episode> episodes;
-    private final Map<Integer, Season> seasons;
     final Queue<ShowListingsListener> registrations;
 
-    private boolean preferDvd = true;
+    // Replaced, never modified, so it can be read without a lock; see indexEpisodesBySeason
+    private volatile EpisodeIndex episodeIndex = EpisodeIndex.EMPTY;
+
+    private volatile boolean preferDvd = true;
 
     /**
      * Create a Show object for a show that the provider knows about.  Initially
@@ -68,7 +71,6 @@ public class Show extends ShowOption {
         this.idNum = idNum;
 
         episodes = new ConcurrentHashMap<>();
-        seasons = new ConcurrentHashMap<>();
         registrations = new ConcurrentLinkedQueue<>();
     }
 
@@ -123,7 +125,7 @@ public class Show extends ShowOption {
      * Add an episode to a season's index of episodes, at the placement given.
      *
      * This method is agnostic of which ordering is being used.  It just asks the
-     * Season to add the episode at the placement given.
+     * index builder to add the episode at the placement given.
      *
      * Placements are not definitive.  Production companies sometimes re-order them.  In
      * particular, they take liberties when releasing DVDs.  The TVDB tries to keep track
@@ -135,13 +137,15 @@ public class Show extends ShowOption {
      * to the that ordering, if such a placement is known.  This method does not "fall
      * back" to the alternative ordering.
      *
+     * @param index
+     *           the index being built
      * @param episode
      *           the episode to place at the index
      * @param useDvd
      *           whether seasonNum and episodeNum refer to the DVD ordering or
      *           the over-the-air ordering
      */
-    private void addEpisodeToSeason(Episode episode, boolean useDvd) {
+    private void addEpisodeToSeason(EpisodeIndex.Builder index, Episode episode, boolean useDvd) {
         EpisodePlacement placement = episode.getEpisodePlacement(useDvd);
         if (placement == null) {
             // Note, in this case, the Episode will continue to exist in the list of
@@ -150,14 +154,7 @@ public class Show extends ShowOption {
                         + " lacks placement information for "
                         + (useDvd ? "DVD ordering" : "air ordering"));
         } else {
-            // Check to see if there's already an existing episode.  Only applies if we
-            // have a valid placement.
-            Season season = seasons.get(placement.season);
-            if (season == null) {
-                season = new Season(this, placement.season);
-                seasons.put(placement.season, season);
-            }
-            season.addEpisode(episode, useDvd);
+            index.addEpisode(placement, episode, useDvd);
         }
     }
 
@@ -172,19 +169,22 @@ public class Show extends ShowOption {
      * Does not change the episode list at all; just organizes them into seasons
      * and episode numbers.
      *
-     * Clears the season index before beginning, and iterates over all known episodes
-     * twice: first in the preferred ordering, and then in the alternate ordering.
+     * Builds a new index, placing each known episode twice: first in the preferred
+     * ordering, and then in the alternate ordering.  The new index replaces the old
+     * one only once it is complete, so lookups going on at the same time see one or
+     * the other, never a mix, and never an empty index.
      */
     public synchronized void indexEpisodesBySeason() {
-        seasons.clear();
+        EpisodeIndex.Builder index = new EpisodeIndex.Builder();
         for (Episode episode : episodes.values()) {
             if (episode == null) {
                 logger.severe("internal error creating episodes for " + name);
                 continue;
             }
-            addEpisodeToSeason(episode, preferDvd);
-            addEpisodeToSeason(episode, !preferDvd);
+            addEpisodeToSeason(index, episode, preferDvd);
+            addEpisodeToSeason(index, episode, !preferDvd);
         }
+        episodeIndex = index.build();
     }
 
     /**
@@ -284,19 +284,16 @@ public class Show extends ShowOption {
      *    Null if no such episode was found.
      */
     public Episode getEpisode(EpisodePlacement placement) {
-        Season season = seasons.get(placement.season);
-        if (season == null) {
+        EpisodeIndex index = episodeIndex;
+        if (!index.hasSeason(placement.season)) {
             logger.fine("no season " + placement.season + " found for show " + name);
             return null;
         }
-        Episode episode;
-        synchronized (this) {
-            episode = season.get(placement.episode, preferDvd);
-        }
+        Episode episode = index.getEpisode(placement, preferDvd);
         if (episode == null) {
             logger.warning("could not get episode of " + name + " for season "
                            + placement.season + ", episode " + placement.episode);
-        } else {
+        } else if (logger.isLoggable(Level.FINE)) {
             logger.fine("for season " + placement.season + ", episode " + placement.episode
                         + " with ID " + episode.getEpisodeId()
                         + ", found " + episode);
@@ -311,20 +308,16 @@ public class Show extends ShowOption {
      *
      * @param placement
      *           the placement of the episode to return
-     * @return the episodes indexed at the given season and episode of this show.
-     *    Null if no such episode was found.
+     * @return an unmodifiable list of the episodes indexed at the given season and
+     *    episode of this show.  Null if no such episode was found.
      */
     public List<Episode> getEpisodes(final EpisodePlacement placement) {
-        Season season = seasons.get(placement.season);
-        if (season == null) {
+        EpisodeIndex index = episodeIndex;
+        if (!index.hasSeason(placement.season)) {
             logger.warning("no season " + placement.season + " found for show " + name);
             return null;
         }
-        List<Episode> rval;
-        synchronized (this) {
-            rval = season.getAll(preferDvd, placement.episode);
-        }
-        return rval;
+        return index.getEpisodes(placement, preferDvd);
     }
 
     /**
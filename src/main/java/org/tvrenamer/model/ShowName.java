@@ -3,10 +3,15 @@ package org.tvrenamer.model;
 import org.tvrenamer.controller.ShowInformationListener;
 import org.tvrenamer.controller.util.StringUtils;
 
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -49,12 +54,17 @@ public class ShowName {
     /**
      * Inner class to hold a query string.  The query string is what we send to the provider
      * to try to resolve a show name.  We may re-use a single query string for multiple
-     * show names.
+     * show names.<p>
+     *
+     * Each QueryString is looked up at most once.  The first caller to {@link #claimQuery}
+     * does the lookup; everyone interested in the answer, including that caller, waits on
+     * the same future, which is completed when the lookup is finished.
      */
     private static class QueryString {
         final String queryString;
         private ShowOption matchedShow = null;
-        private final List<ShowInformationListener> listeners = new LinkedList<>();
+        private final AtomicBoolean queryClaimed = new AtomicBoolean(false);
+        private final CompletableFuture<ShowOption> lookup = new CompletableFuture<>();
 
         private static final Map<String, QueryString> QUERY_STRINGS = new ConcurrentHashMap<>();
 
@@ -83,43 +93,45 @@ public class ShowName {
             matchedShow = showOption;
         }
 
-        // see ShowName.addListener for documentation
+        // see ShowName.addShowInformationListener for documentation
         private void addListener(ShowInformationListener listener) {
-            synchronized (listeners) {
-                listeners.add(listener);
-            }
+            lookup.whenComplete((showOption, err) -> {
+                try {
+                    if (err != null) {
+                        listener.apiHasBeenDeprecated();
+                    } else if (showOption.isFailedShow()) {
+                        listener.downloadFailed(showOption.asFailedShow());
+                    } else {
+                        listener.downloadSucceeded(showOption.getShowInstance());
+                    }
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "listener for " + queryString + " failed", e);
+                }
+            });
         }
 
-        // see ShowName.hasListeners for documentation
-        private boolean hasListeners() {
-            synchronized (listeners) {
-                return (listeners.size() > 0);
+        // see ShowName.claimQuery for documentation
+        private boolean claimQuery() {
+            if (queryClaimed.compareAndSet(false, true)) {
+                return true;
             }
+            DEDUPLICATED_QUERIES.incrementAndGet();
+            return false;
         }
 
         // see ShowName.nameResolved for documentation
         private void nameResolved(Show show) {
-            synchronized (listeners) {
-                for (ShowInformationListener informationListener : listeners) {
-                    informationListener.downloadSucceeded(show);
-                }
-            }
+            lookup.complete(show);
         }
 
         // see ShowName.nameNotFound for documentation
         private void nameNotFound(FailedShow failedShow) {
-            synchronized (listeners) {
-                for (ShowInformationListener informationListener : listeners) {
-                    informationListener.downloadFailed(failedShow);
-                }
-            }
+            lookup.complete(failedShow);
         }
 
         // see ShowName.apiDiscontinued for documentation
         private void apiDiscontinued() {
-            synchronized (listeners) {
-                listeners.forEach(ShowInformationListener::apiHasBeenDeprecated);
-            }
+            lookup.completeExceptionally(new DiscontinuedApiException());
         }
 
         /**
@@ -133,20 +145,16 @@ public class ShowName {
 
         /**
          * Factory-style method to obtain a QueryString.  If an object has already been created
-         * for the query string we need for the found name, re-use it.
+         * for the query string we need for the found name, re-use it.  This is atomic: callers
+         * on different threads asking for the same query string get the same object.
          *
          * @param foundName
          *    the portion of the filename that is believed to represent the show's name
          * @return a QueryString object for looking up the foundName
          */
         static QueryString lookupQueryString(String foundName) {
-            String queryString = StringUtils.makeQueryString(foundName);
-            QueryString queryObj = QUERY_STRINGS.get(queryString);
-            if (queryObj == null) {
-                queryObj = new QueryString(queryString);
-                QUERY_STRINGS.put(queryString, queryObj);
-            }
-            return queryObj;
+            return QUERY_STRINGS.computeIfAbsent(StringUtils.makeQueryString(foundName),
+                                                 QueryString::new);
         }
     }
 
@@ -156,6 +164,12 @@ public class ShowName {
      */
     private static final Map<String, ShowName> SHOW_NAMES = new ConcurrentHashMap<>();
 
+    /**
+     * How many times someone wanted to look up a query string which had already
+     * been, or was being, looked up.
+     */
+    private static final AtomicLong DEDUPLICATED_QUERIES = new AtomicLong();
+
     /**
      * Get the ShowName object for the given String.  If one was already created,
      * it is returned, and if not, one will be created, stored, and returned.
@@ -169,12 +183,7 @@ public class ShowName {
      * @return the ShowName object for that filenameShow
      */
     public static ShowName mapShowName(String filenameShow) {
-        ShowName showName = SHOW_NAMES.get(filenameShow);
-        if (showName == null) {
-            showName = new ShowName(filenameShow);
-            SHOW_NAMES.put(filenameShow, showName);
-        }
-        return showName;
+        return SHOW_NAMES.computeIfAbsent(filenameShow, ShowName::new);
     }
 
     /**
@@ -191,14 +200,33 @@ public class ShowName {
      * @return the ShowName object for that filenameShow
      */
     public static ShowName lookupShowName(String filenameShow) {
-        ShowName showName = SHOW_NAMES.get(filenameShow);
-        if (showName == null) {
-            showName = new ShowName(filenameShow);
-            SHOW_NAMES.put(filenameShow, showName);
-            logger.severe("could not get show name for " + filenameShow
-                          + ", so created one instead");
-        }
-        return showName;
+        return SHOW_NAMES.computeIfAbsent(filenameShow, name -> {
+            logger.severe("could not get show name for " + name + ", so created one instead");
+            return new ShowName(name);
+        });
+    }
+
+    /**
+     * Get the ShowName object for the given String, if there is one.  Unlike the
+     * other methods, does not create one if there isn't.
+     *
+     * @param filenameShow
+     *            the name of the show as it appears in the filename
+     * @return the ShowName object for that filenameShow, or null if no file with
+     *            that filenameShow has been seen
+     */
+    public static ShowName findShowName(String filenameShow) {
+        return SHOW_NAMES.get(filenameShow);
+    }
+
+    /**
+     * Get how many lookups were avoided because the same query string had
+     * already been, or was being, looked up.
+     *
+     * @return the number of calls to {@link #claimQuery} which returned false
+     */
+    public static long getDeduplicatedQueryCount() {
+        return DEDUPLICATED_QUERIES.get();
     }
 
     /*
@@ -210,38 +238,36 @@ public class ShowName {
     private final List<ShowOption> showOptions;
 
     /*
-     * QueryString methods -- these four methods are the public interface to the
+     * QueryString methods -- these methods are the public interface to the
      * functionality, but they are just pass-throughs to the real implementations
      * kept inside the QueryString inner class.
      */
 
     /**
-     * Add a listener for this ShowName's query string.
+     * Add a listener for this ShowName's query string.  The listener will be
+     * notified when the query string has been looked up; if it already has
+     * been, the listener is notified immediately, on the calling thread.
      *
      * @param listener
      *            the listener registering interest
      */
     void addShowInformationListener(final ShowInformationListener listener) {
-        synchronized (queryString) {
-            queryString.addListener(listener);
-        }
+        queryString.addListener(listener);
     }
 
     /**
-     * Determine if this ShowName needs to be queried.
+     * Claim the job of looking up this ShowName's query string.<p>
      *
-     * If the answer is "yes", we add a listener and query immediately,
-     * in a synchronized block.  Therefore, that becomes how we determine
-     * the answer: if this ShowName already has a listener, that means
-     * its download is already underway.
+     * Any number of ShowNames may share a query string, and any number of threads
+     * may be asking about them at the same time.  Exactly one caller, ever, is told
+     * to go ahead; all the others should simply add a listener, and will get the
+     * answer the first caller finds.
      *
-     * @return false if this ShowName's query string already has a listener;
-     *     true if not
+     * @return true if the caller should look up the query string; false if
+     *     someone else already is doing so, or has done so
      */
-    boolean needsQuery() {
-        synchronized (queryString) {
-            return !queryString.hasListeners();
-        }
+    boolean claimQuery() {
+        return queryString.claimQuery();
     }
 
     /**
@@ -252,9 +278,7 @@ public class ShowName {
      *    the Show object representing the TV show we've mapped the string to.
      */
     public void nameResolved(Show show) {
-        synchronized (queryString) {
-            queryString.nameResolved(show);
-        }
+        queryString.nameResolved(show);
     }
 
     /**
@@ -265,9 +289,7 @@ public class ShowName {
      *    the FailedShow object representing the string we searched for.
      */
     public void nameNotFound(FailedShow show) {
-        synchronized (queryString) {
-            queryString.nameNotFound(show);
-        }
+        queryString.nameNotFound(show);
     }
 
     /**
@@ -276,9 +298,7 @@ public class ShowName {
      *
      */
     public void apiDiscontinued() {
-        synchronized (queryString) {
-            queryString.apiDiscontinued();
-        }
+        queryString.apiDiscontinued();
     }
 
     /**
@@ -369,6 +389,36 @@ public class ShowName {
         return selected;
     }
 
+    /**
+     * Choose the option with the given ID, which is presumably the one that
+     * {@link #selectShowOption()} chose when we were given the same options
+     * previously.  If there's no such option, choose as if we had never seen
+     * these options before.
+     *
+     * @param idString
+     *    the ID of the option to choose
+     * @return the series from the list with the given ID
+     */
+    ShowOption selectShowOption(final String idString) {
+        for (ShowOption s : showOptions) {
+            if (s.getIdString().equals(idString)) {
+                queryString.setShowOption(s);
+                return s;
+            }
+        }
+        logger.info("previous choice " + idString + " not among options for " + foundName);
+        return selectShowOption();
+    }
+
+    /**
+     * Get the options the provider gave us for this ShowName.
+     *
+     * @return the options, in the order the provider gave them to us
+     */
+    List<ShowOption> getShowOptions() {
+        return Collections.unmodifiableList(showOptions);
+    }
+
     /**
      * Get this ShowName's "example filename".<p>
      *
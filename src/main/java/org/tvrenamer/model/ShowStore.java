@@ -1,11 +1,19 @@
 package org.tvrenamer.model;
 
+import static org.tvrenamer.model.util.Constants.TIMEOUT_DOWNLOADING;
+
+import org.tvrenamer.controller.ProviderScheduler;
+import org.tvrenamer.controller.ProviderScheduler.RequestKind;
+import org.tvrenamer.controller.ShowAndListingsListener;
 import org.tvrenamer.controller.ShowInformationListener;
+import org.tvrenamer.controller.ShowSearchCache;
+import org.tvrenamer.controller.ShowSearchCache.CachedOption;
+import org.tvrenamer.controller.ShowSearchCache.CachedSearch;
+import org.tvrenamer.controller.ShowSearchCache.Failure;
 import org.tvrenamer.controller.TheTVDBProvider;
 
+import java.net.SocketTimeoutException;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Logger;
@@ -110,14 +118,32 @@ import java.util.logging.Logger;
  * provider to get back a list of options, choose the best option, and return it to the
  * listener via callback.  But we do, of course, also store the mapping in a hash map, so
  * if a second file comes in with the same query string, we don't go look it up again,
- * but simply return the same answer we gave the first time.
+ * but simply return the same answer we gave the first time.<p>
+ *
+ * We also remember the answer across runs, in the {@link ShowSearchCache}.  If a query
+ * string was resolved in a previous run, we rebuild the same options, choose the same
+ * one, and call the listener back immediately, without going to the provider.<p>
+ *
+ * As soon as a query string is resolved to a Series, we start downloading its listings,
+ * before notifying anyone.  Whoever asked about the show is going to want them next.
  *
  */
 public class ShowStore {
 
     private static final Logger logger = Logger.getLogger(ShowStore.class.getName());
 
-    private static final ExecutorService threadPool = Executors.newCachedThreadPool();
+    private static final ProviderScheduler SCHEDULER = ProviderScheduler.getInstance();
+
+    /**
+     * Finds the options for a show name; see {@link TheTVDBProvider#getShowOptions}.
+     */
+    interface ShowSearcher {
+        void getShowOptions(ShowName showName) throws TVRenamerIOException;
+    }
+
+    // The provider and the user's cache, except in unit tests; see useSearcher.
+    private static volatile ShowSearcher searcher = TheTVDBProvider::getShowOptions;
+    private static volatile ShowSearchCache searchCache = ShowSearchCache.getInstance();
 
     /**
      * Submits the task to download the information about the ShowName.
@@ -137,7 +163,7 @@ public class ShowStore {
         Future<Boolean> result = null;
         FailedShow failure = null;
         try {
-            result = threadPool.submit(showFetcher);
+            result = SCHEDULER.submit(RequestKind.SEARCH, showFetcher);
         } catch (RejectedExecutionException | NullPointerException e) {
             logger.warning("unable to submit download task (" + showName + ") for execution");
             failure = showName.getFailedShow(new TVRenamerIOException(e.getMessage()));
@@ -151,6 +177,45 @@ public class ShowStore {
         }
     }
 
+    /**
+     * Resolve the given ShowName from the results of a previous run, if we have them.
+     *
+     * @param showName
+     *    an object containing the part of the filename that is presumed to name
+     *    the show, as well as the version of that string we can give the provider
+     * @return the option chosen for the ShowName, or null if we don't have a cached
+     *    result for its query string
+     */
+    @SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
+    private static ShowOption resolveFromCache(final ShowName showName) {
+        CachedSearch cached = searchCache.lookup(showName.getQueryString());
+        if (cached == null) {
+            return null;
+        }
+        synchronized (showName) {
+            ShowOption matched = showName.getMatchedShow();
+            if (matched != null) {
+                return matched;
+            }
+            if (cached.isFailure()) {
+                logger.fine("using cached failure (" + cached.getFailure() + ") for " + showName);
+                TVRenamerIOException err = null;
+                if (cached.getFailure() == Failure.TIMEOUT) {
+                    err = new TVRenamerIOException(TIMEOUT_DOWNLOADING + " " + showName,
+                                                   new SocketTimeoutException());
+                }
+                return showName.getFailedShow(err);
+            }
+            if (!showName.hasShowOptions()) {
+                for (CachedOption option : cached.getOptions()) {
+                    showName.addShowOption(option.getId(), option.getName());
+                }
+            }
+            logger.fine("using cached show options for " + showName);
+            return showName.selectShowOption(cached.getChosenId());
+        }
+    }
+
     /**
      * <p>
      * Download the show details if required, otherwise notify listener.
@@ -159,7 +224,7 @@ public class ShowStore {
      * <li>if we have already downloaded the show (the ShowName returns a matched show)
      *     then just notify the listener</li>
      * <li>if we don't have the show, but are in the process of downloading the show
-     *     (the show already has listeners) then add the listener to the registration</li>
+     *     (the query has already been claimed) then add the listener to the registration</li>
      * <li>if we don't have the show and aren't downloading, then add the listener and
      *     kick off the download</li>
      * </ul>
@@ -169,7 +234,6 @@ public class ShowStore {
      * @param listener
      *            the listener to notify or register
      */
-    @SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
     public static void mapStringToShow(String filenameShow, ShowInformationListener listener) {
         if (listener == null) {
             logger.warning("cannot look up show without a listener");
@@ -177,31 +241,77 @@ public class ShowStore {
         }
         ShowName showName = ShowName.mapShowName(filenameShow);
         ShowOption showOption = showName.getMatchedShow();
+        if (showOption == null) {
+            showOption = resolveFromCache(showName);
+        }
 
         if (showOption == null) {
-            boolean needsDownload;
             // Since "show" is null, we know we haven't downloaded the options for
             // this filenameShow yet; that is, we know we haven't FINISHED doing so.
-            // But we might have started.  If the showName already has one or more
-            // listeners, that means the download is already underway.
-            synchronized (showName) {
-                needsDownload = showName.needsQuery();
-                // We add this listener whether or not the download has been started.
-                showName.addShowInformationListener(listener);
-            }
-            // Now we start a download only if we need to.
-            if (needsDownload) {
+            // But we might have started, possibly for a different ShowName with the
+            // same query string.  Either way, the listener gets the answer when there
+            // is one, and only the first caller to get here starts a download.
+            showName.addShowInformationListener(listener);
+            if (showName.claimQuery()) {
                 downloadShow(showName);
             }
             // If we've already downloaded the show, we don't need to involve the
             // ShowName at all.  We invoke the listener's callback immediately and
-            // directly.  If, in the future, we expand ShowInformationListener so
-            // that there is more information to be sent later, we'd want to edit
-            // the following clauses to add the listener.
+            // directly.
         } else if (showOption.isFailedShow()) {
             listener.downloadFailed(showOption.asFailedShow());
         } else {
-            listener.downloadSucceeded(showOption.getShowInstance());
+            Show show = showOption.getShowInstance();
+            prefetchListings(show);
+            listener.downloadSucceeded(show);
+        }
+    }
+
+    /**
+     * Like {@link #mapStringToShow}, but after the show has been found, also wait
+     * for its listings.<p>
+     *
+     * The listener is notified of the show exactly as with mapStringToShow.  Then,
+     * if the show is a Series, it is registered for the listings, which will
+     * already have been requested.  A Show which is not a Series has no listings
+     * to download, so in that case, the listener hears nothing further.
+     *
+     * @param filenameShow
+     *            the name of the show as it appears in the filename
+     * @param listener
+     *            the listener to notify of the show, and then of its listings
+     */
+    public static void mapStringToShowAndListings(String filenameShow,
+                                                  ShowAndListingsListener listener)
+    {
+        if (listener == null) {
+            logger.warning("cannot look up show without a listener");
+            return;
+        }
+        mapStringToShow(filenameShow, new ShowInformationListener() {
+            @Override
+            public void downloadSucceeded(Show show) {
+                listener.downloadSucceeded(show);
+                if (show.isValidSeries()) {
+                    show.asSeries().addListingsListener(listener);
+                }
+            }
+
+            @Override
+            public void downloadFailed(FailedShow failedShow) {
+                listener.downloadFailed(failedShow);
+            }
+
+            @Override
+            public void apiHasBeenDeprecated() {
+                listener.apiHasBeenDeprecated();
+            }
+        });
+    }
+
+    private static void prefetchListings(final Show show) {
+        if (show.isValidSeries()) {
+            show.asSeries().prefetchListings();
         }
     }
 
@@ -228,9 +338,11 @@ public class ShowStore {
     private static void downloadShow(final ShowName showName) {
         Callable<Boolean> showFetcher = () -> {
             ShowOption showOption;
+            boolean noOptions = false;
             try {
-                TheTVDBProvider.getShowOptions(showName);
+                searcher.getShowOptions(showName);
                 showOption = showName.selectShowOption();
+                noOptions = showOption.isFailedShow();
             } catch (DiscontinuedApiException e) {
                 showName.apiDiscontinued();
                 return false;
@@ -240,17 +352,65 @@ public class ShowStore {
 
             logger.fine("Show options for '" + showOption.getName() + "' downloaded");
             if (showOption.isFailedShow()) {
-                showName.nameNotFound(showOption.asFailedShow());
+                FailedShow failedShow = showOption.asFailedShow();
+                if (noOptions) {
+                    searchCache.putFailure(showName.getQueryString(), Failure.NO_OPTIONS);
+                } else if (failedShow.isTimeout()) {
+                    searchCache.putFailure(showName.getQueryString(), Failure.TIMEOUT);
+                }
+                showName.nameNotFound(failedShow);
             } else {
-                showName.nameResolved(showOption.getShowInstance());
+                searchCache.put(showName.getQueryString(), showName.getShowOptions(),
+                                 showOption);
+                Show show = showOption.getShowInstance();
+                prefetchListings(show);
+                showName.nameResolved(show);
             }
             return true;
         };
         submitDownloadTask(showName, showFetcher);
     }
 
+    /**
+     * Tell the store which series a show name was resolved to, in a previous run,
+     * according to the {@link org.tvrenamer.controller.ScanIndex}.<p>
+     *
+     * The result of the search, kept in the {@link ShowSearchCache}, is the better
+     * source: if it has anything to say about the name, including that the search
+     * failed, or if the name has already been resolved, or is being looked up, in
+     * this run, we ignore what we're told here.  Otherwise, we resolve the name to
+     * the given series, just as if the search cache had had it as the only option.
+     *
+     * @param filenameShow
+     *            the name of the show as it appears in the filename
+     * @param seriesId
+     *            the ID of the series the name was resolved to
+     * @param seriesName
+     *            the name of the series the name was resolved to
+     */
+    @SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
+    public static void seedResolution(String filenameShow, String seriesId, String seriesName) {
+        ShowName showName = ShowName.mapShowName(filenameShow);
+        if (searchCache.lookup(showName.getQueryString()) != null) {
+            return;
+        }
+        synchronized (showName) {
+            if ((showName.getMatchedShow() != null) || showName.hasShowOptions()
+                || !showName.claimQuery())
+            {
+                return;
+            }
+            logger.fine("using indexed series " + seriesId + " for " + showName);
+            showName.addShowOption(seriesId, seriesName);
+            ShowOption showOption = showName.selectShowOption(seriesId);
+            Show show = showOption.getShowInstance();
+            prefetchListings(show);
+            showName.nameResolved(show);
+        }
+    }
+
     public static void cleanUp() {
-        threadPool.shutdownNow();
+        SCHEDULER.shutDownNow();
     }
 
     /**
@@ -276,4 +436,22 @@ public class ShowStore {
         }
         return showOption.getShowInstance();
     }
+
+    /**
+     * Find the options for show names with the given searcher, and remember the
+     * results in the given cache, instead of asking the provider and using the
+     * user's own cache.<p>
+     *
+     * Added to enable unit testing of <code>mapStringToShow</code> without connecting
+     * to the internet.
+     *
+     * @param  showSearcher
+     *            finds the options for a show name
+     * @param  cache
+     *            where to remember the results of searches
+     */
+    static void useSearcher(ShowSearcher showSearcher, ShowSearchCache cache) {
+        searcher = showSearcher;
+        searchCache = cache;
+    }
 }
@@ -11,6 +11,9 @@ public enum UserPreference {
     LEADING_ZERO,
     ADD_SUBDIRS,
     IGNORE_REGEX,
+    LISTINGS_CACHE_TTL,
+    PROVIDER_LIMITS,
+    FILE_EXTENSIONS,
 
     // Since these are only meaningful at startup, they probably should not be watched
     UPDATE_CHECK,
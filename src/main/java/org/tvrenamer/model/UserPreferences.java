@@ -32,6 +32,11 @@ public class UserPreferences extends Observable {
     private String renameReplacementMask;
     private boolean checkForUpdates;
     private boolean recursivelyAddFolders;
+    private int listingsCacheHours;
+    private int providerConcurrency;
+    private int providerRequestsPerSecond;
+    private String mediaExtensions;
+    private String skippedExtensions;
 
     // For the ignore keywords, we do some processing.  So we also preserve exactly what the user specified.
     private transient String specifiedIgnoreKeywords;
@@ -42,7 +47,7 @@ public class UserPreferences extends Observable {
     /**
      * UserPreferences constructor which uses the defaults from {@link org.tvrenamer.model.util.Constants}
      */
-    private UserPreferences() {
+    UserPreferences() {
         super();
 
         preloadFolder = null;
@@ -57,6 +62,11 @@ public class UserPreferences extends Observable {
         renameReplacementMask = DEFAULT_REPLACEMENT_MASK;
         checkForUpdates = true;
         recursivelyAddFolders = true;
+        listingsCacheHours = DEFAULT_LISTINGS_CACHE_HOURS;
+        providerConcurrency = DEFAULT_PROVIDER_CONCURRENCY;
+        providerRequestsPerSecond = DEFAULT_PROVIDER_REQUESTS_PER_SECOND;
+        mediaExtensions = DEFAULT_MEDIA_EXTENSIONS;
+        skippedExtensions = DEFAULT_SKIPPED_EXTENSIONS;
         ignoreKeywords = new ArrayList<>();
         ignoreKeywords.add(DEFAULT_IGNORED_KEYWORD);
         buildIgnoredKeywordsString();
@@ -441,6 +451,148 @@ public class UserPreferences extends Observable {
         return recursivelyAddFolders;
     }
 
+    /**
+     * Sets how long downloaded listings may be used before we check with the
+     * provider to see if they have changed.
+     *
+     * @param listingsCacheHours the number of hours a cached listing is
+     *               considered fresh; zero means always check
+     */
+    public void setListingsCacheHours(int listingsCacheHours) {
+        if (valuesAreDifferent(this.listingsCacheHours, listingsCacheHours)) {
+            this.listingsCacheHours = listingsCacheHours;
+
+            preferenceChanged(UserPreference.LISTINGS_CACHE_TTL);
+        }
+    }
+
+    /**
+     * Get how long downloaded listings may be used before we check with the
+     * provider to see if they have changed.
+     *
+     * @return the number of hours a cached listing is considered fresh
+     */
+    public int getListingsCacheHours() {
+        return listingsCacheHours;
+    }
+
+    /**
+     * Sets the largest number of requests we will have outstanding to the
+     * provider at any one time.
+     *
+     * @param providerConcurrency the maximum number of simultaneous requests;
+     *               values less than one are treated as one
+     */
+    public void setProviderConcurrency(int providerConcurrency) {
+        if (valuesAreDifferent(this.providerConcurrency, providerConcurrency)) {
+            this.providerConcurrency = providerConcurrency;
+
+            preferenceChanged(UserPreference.PROVIDER_LIMITS);
+        }
+    }
+
+    /**
+     * Get the largest number of requests we will have outstanding to the
+     * provider at any one time.
+     *
+     * @return the maximum number of simultaneous requests
+     */
+    public int getProviderConcurrency() {
+        return providerConcurrency;
+    }
+
+    /**
+     * Sets how many requests per second, on average, we will send to the provider.
+     *
+     * @param providerRequestsPerSecond the rate at which we may start requests;
+     *               zero or less means no limit
+     */
+    public void setProviderRequestsPerSecond(int providerRequestsPerSecond) {
+        if (valuesAreDifferent(this.providerRequestsPerSecond, providerRequestsPerSecond)) {
+            this.providerRequestsPerSecond = providerRequestsPerSecond;
+
+            preferenceChanged(UserPreference.PROVIDER_LIMITS);
+        }
+    }
+
+    /**
+     * Get how many requests per second, on average, we will send to the provider.
+     *
+     * @return the rate at which we may start requests; zero or less means no limit
+     */
+    public int getProviderRequestsPerSecond() {
+        return providerRequestsPerSecond;
+    }
+
+    /**
+     * Sets the extensions of the files we add.  If any are given, files with other
+     * extensions are not added.
+     *
+     * @param mediaExtensions a comma separated list of file extensions, such as
+     *               "mkv, mp4"; the empty string means any extension which is not
+     *               on the skipped list
+     */
+    public void setMediaExtensions(String mediaExtensions) {
+        if (valuesAreDifferent(this.mediaExtensions, mediaExtensions)) {
+            this.mediaExtensions = mediaExtensions;
+
+            preferenceChanged(UserPreference.FILE_EXTENSIONS);
+        }
+    }
+
+    /**
+     * @return the extensions of the files we add, as the user entered them
+     */
+    public String getMediaExtensionsString() {
+        return mediaExtensions;
+    }
+
+    /**
+     * @return the extensions of the files we add; if empty, any extension which is
+     *         not on the skipped list
+     */
+    public List<String> getMediaExtensions() {
+        return splitExtensions(mediaExtensions);
+    }
+
+    /**
+     * Sets the extensions of the files we never add.
+     *
+     * @param skippedExtensions a comma separated list of file extensions, such as
+     *               "nfo, srt"
+     */
+    public void setSkippedExtensions(String skippedExtensions) {
+        if (valuesAreDifferent(this.skippedExtensions, skippedExtensions)) {
+            this.skippedExtensions = skippedExtensions;
+
+            preferenceChanged(UserPreference.FILE_EXTENSIONS);
+        }
+    }
+
+    /**
+     * @return the extensions of the files we never add, as the user entered them
+     */
+    public String getSkippedExtensionsString() {
+        return skippedExtensions;
+    }
+
+    /**
+     * @return the extensions of the files we never add
+     */
+    public List<String> getSkippedExtensions() {
+        return splitExtensions(skippedExtensions);
+    }
+
+    private static List<String> splitExtensions(String extensions) {
+        List<String> split = new ArrayList<>();
+        for (String extension : extensions.trim().split(IGNORE_WORDS_SPLIT_REGEX)) {
+            if (!extension.isEmpty()) {
+                split.add(extension);
+            }
+        }
+        return split;
+    }
+
     /**
      * @return a list of strings that indicate that the presence of that string in
      *         a filename means that we should ignore that file
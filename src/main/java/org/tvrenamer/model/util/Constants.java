@@ -103,6 +103,8 @@ public class Constants {
     public static final String SEASON_PREFIX_TEXT = "Season Prefix [?]";
     public static final String SEASON_PREFIX_ZERO_TEXT = "Season Prefix Leading Zero [?]";
     public static final String IGNORE_LABEL_TEXT = "Ignore files containing [?]";
+    public static final String MEDIA_EXTENSIONS_TEXT = "Only add files ending in [?]";
+    public static final String SKIPPED_EXTENSIONS_TEXT = "Never add files ending in [?]";
     public static final String RECURSE_FOLDERS_TEXT = "Recursively add shows in subdirectories [?]";
     public static final String RECURSE_FOLDERS_TOOLTIP = "If unchecked, do not look into subfolders "
         + "for shows to add";
@@ -136,6 +138,11 @@ public class Constants {
         + "in the season prefix";
     public static final String IGNORE_LABEL_TOOLTIP = "Provide comma separated list of words "
         + "that will cause a file to be ignored if they appear in the file's path or name.";
+    public static final String MEDIA_EXTENSIONS_TOOLTIP = "Provide comma separated list of file "
+        + "extensions, such as \"mkv, mp4\".  Only files with these extensions will be added.\n"
+        + "If left empty, files with any extension not on the list below will be added.";
+    public static final String SKIPPED_EXTENSIONS_TOOLTIP = "Provide comma separated list of file "
+        + "extensions, such as \"nfo, srt\".  Files with these extensions will never be added.";
     public static final String RENAME_TOKEN_TOOLTIP = " - These are the possible tokens to "
         + " make up the 'Rename Format' below.\n"
         + " - You can drag and drop tokens to the 'Rename Format' text box below";
@@ -204,12 +211,28 @@ public class Constants {
     public static final String DEFAULT_REPLACEMENT_MASK = "%S [%sx%0e] %t";
     public static final String DEFAULT_SEASON_PREFIX = "Season ";
     public static final String DEFAULT_IGNORED_KEYWORD = "sample";
+    public static final String DEFAULT_MEDIA_EXTENSIONS = "";
+    public static final String DEFAULT_SKIPPED_EXTENSIONS = "nfo, txt, jpg, jpeg, png, "
+        + "srt, sub, idx, ass, sfv, md5, nzb, torrent, part, !qb, url, db";
     public static final String DUPLICATES_DIRECTORY = "versions";
     public static final String DEFAULT_LANGUAGE = "en";
+    public static final int DEFAULT_LISTINGS_CACHE_HOURS = 24;
+    public static final int NO_OPTIONS_CACHE_HOURS = 24 * 7;
+    public static final int TIMEOUT_CACHE_MINUTES = 30;
+    public static final int SEARCH_CACHE_FLUSH_SECONDS = 30;
+    public static final int DEFAULT_PROVIDER_CONCURRENCY = 4;
+    public static final int DEFAULT_PROVIDER_REQUESTS_PER_SECOND = 8;
+    public static final int PUBLISH_BATCH_SIZE = 100;
+    public static final long PUBLISH_INTERVAL_MILLIS = 250;
+    public static final long WATCH_QUIET_MILLIS = 3000;
+    public static final int SCAN_INDEX_RETENTION_DAYS = 90;
 
     private static final String CONFIGURATION_DIRECTORY_NAME = ".tvrenamer";
     private static final String PREFERENCES_FILENAME = "prefs.xml";
     private static final String OVERRIDES_FILENAME = "overrides.xml";
+    private static final String LISTINGS_CACHE_DIRNAME = "listings";
+    private static final String SHOW_SEARCH_CACHE_FILENAME = "searches.xml";
+    private static final String SCAN_INDEX_FILENAME = "scanindex.bin";
 
     public static final Path TMP_DIR = Paths.get(Environment.TMP_DIR_NAME);
 
@@ -218,6 +241,9 @@ public class Constants {
     public static final Path CONFIGURATION_DIRECTORY = USER_HOME_DIR.resolve(CONFIGURATION_DIRECTORY_NAME);
     public static final Path PREFERENCES_FILE = CONFIGURATION_DIRECTORY.resolve(PREFERENCES_FILENAME);
     public static final Path OVERRIDES_FILE = CONFIGURATION_DIRECTORY.resolve(OVERRIDES_FILENAME);
+    public static final Path LISTINGS_CACHE_DIRECTORY = CONFIGURATION_DIRECTORY.resolve(LISTINGS_CACHE_DIRNAME);
+    public static final Path SHOW_SEARCH_CACHE_FILE = CONFIGURATION_DIRECTORY.resolve(SHOW_SEARCH_CACHE_FILENAME);
+    public static final Path SCAN_INDEX_FILE = CONFIGURATION_DIRECTORY.resolve(SCAN_INDEX_FILENAME);
 
     public static final Path PREFERENCES_FILE_LEGACY = USER_HOME_DIR.resolve("tvrenamer.preferences");
     public static final Path OVERRIDES_FILE_LEGACY = USER_HOME_DIR.resolve(".tvrenameroverrides");
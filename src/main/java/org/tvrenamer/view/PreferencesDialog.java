@@ -130,6 +130,8 @@ class PreferencesDialog extends Dialog {
     private Button seasonPrefixLeadingZeroCheckbox;
     private Text replacementStringText;
     private Text ignoreWordsText;
+    private Text mediaExtensionsText;
+    private Text skippedExtensionsText;
     private Button checkForUpdatesCheckbox;
     private Button recurseFoldersCheckbox;
     private Button rmdirEmptyCheckbox;
@@ -413,6 +415,11 @@ class PreferencesDialog extends Dialog {
 
         createSeasonPrefixControls(generalGroup);
 
+        createLabel(MEDIA_EXTENSIONS_TEXT, MEDIA_EXTENSIONS_TOOLTIP, generalGroup);
+        mediaExtensionsText = createText(prefs.getMediaExtensionsString(), generalGroup, true);
+        createLabel(SKIPPED_EXTENSIONS_TEXT, SKIPPED_EXTENSIONS_TOOLTIP, generalGroup);
+        skippedExtensionsText = createText(prefs.getSkippedExtensionsString(), generalGroup, true);
+
         createLabel(IGNORE_LABEL_TEXT, IGNORE_LABEL_TOOLTIP, generalGroup);
         ignoreWordsText = createText(prefs.getIgnoredKeywordsString(), generalGroup, false);
 
@@ -567,6 +574,8 @@ class PreferencesDialog extends Dialog {
         prefs.setSeasonPrefixLeadingZero(seasonPrefixLeadingZeroCheckbox.getSelection());
         prefs.setRenameReplacementString(replacementStringText.getText());
         prefs.setIgnoreKeywords(ignoreWordsText.getText());
+        prefs.setMediaExtensions(mediaExtensionsText.getText());
+        prefs.setSkippedExtensions(skippedExtensionsText.getText());
         prefs.setCheckForUpdates(checkForUpdatesCheckbox.getSelection());
         prefs.setRecursivelyAddFolders(recurseFoldersCheckbox.getSelection());
         prefs.setRemoveEmptiedDirectories(rmdirEmptyCheckbox.getSelection());
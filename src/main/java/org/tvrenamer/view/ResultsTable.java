@@ -40,24 +40,25 @@ import org.eclipse.swt.widgets.TaskItem;
 import org.tvrenamer.controller.AddEpisodeListener;
 import org.tvrenamer.controller.FileMover;
 import org.tvrenamer.controller.MoveRunner;
-import org.tvrenamer.controller.ShowInformationListener;
-import org.tvrenamer.controller.ShowListingsListener;
+import org.tvrenamer.controller.ScanProgressListener;
+import org.tvrenamer.controller.ShowAndListingsListener;
 import org.tvrenamer.controller.UpdateChecker;
 import org.tvrenamer.controller.UrlLauncher;
 import org.tvrenamer.controller.util.StringUtils;
 import org.tvrenamer.model.EpisodeDb;
 import org.tvrenamer.model.FailedShow;
 import org.tvrenamer.model.FileEpisode;
-import org.tvrenamer.model.Series;
 import org.tvrenamer.model.Show;
 import org.tvrenamer.model.ShowStore;
 import org.tvrenamer.model.UserPreference;
 import org.tvrenamer.model.UserPreferences;
 
 import java.text.Collator;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
 import java.util.Queue;
@@ -109,10 +110,30 @@ public final class ResultsTable implements Observer, AddEpisodeListener {
 
         checkDestinationDirectory();
 
-        // Load the preload folder into the episode map, which will call
-        // us back with the list of files once they've been loaded.
+        // Load the preload folder into the episode map, which will call us back
+        // with the files, a batch at a time, as they're found.  This happens in
+        // the background; while it's going on, we show the progress in the title.
         episodeMap.subscribe(this);
-        episodeMap.preload();
+        episodeMap.preload(new ScanProgressListener() {
+            @Override
+            public void scanProgress(String description, long filesFound) {
+                showScanProgress("loading " + description + ": " + filesFound + " files");
+            }
+
+            @Override
+            public void scanFinished(String description, long filesFound, boolean cancelled) {
+                showScanProgress(null);
+            }
+        });
+    }
+
+    private void showScanProgress(final String progress) {
+        display.asyncExec(() -> {
+            if (!shell.isDisposed()) {
+                shell.setText((progress == null) ? APPLICATION_NAME
+                              : APPLICATION_NAME + " (" + progress + ")");
+            }
+        });
     }
 
     Display getDisplay() {
@@ -249,22 +270,6 @@ public final class ResultsTable implements Observer, AddEpisodeListener {
         });
     }
 
-    private void getSeriesListings(final Series series, final TableItem item,
-                                   final FileEpisode episode)
-    {
-        series.addListingsListener(new ShowListingsListener() {
-            @Override
-            public void listingsDownloadComplete() {
-                listingsDownloaded(item, episode);
-            }
-
-            @Override
-            public void listingsDownloadFailed(Exception err) {
-                listingsFailed(item, episode, err);
-            }
-        });
-    }
-
     private void tableItemFailed(final TableItem item, final FileEpisode episode) {
         display.asyncExec(() -> {
             if (tableContainsTableItem(item)) {
@@ -299,6 +304,16 @@ public final class ResultsTable implements Observer, AddEpisodeListener {
 
     @Override
     public void addEpisodes(final Queue<FileEpisode> episodes) {
+        // The episode database publishes from a background thread, while it's
+        // still looking for more files; we can only touch the table from the UI thread.
+        display.asyncExec(() -> {
+            if (!swtTable.isDisposed()) {
+                addEpisodesToTable(episodes);
+            }
+        });
+    }
+
+    private void addEpisodesToTable(final Queue<FileEpisode> episodes) {
         for (final FileEpisode episode : episodes) {
             final TableItem item = createTableItem(episode);
             if (!episode.wasParsed()) {
@@ -317,7 +332,7 @@ public final class ResultsTable implements Observer, AddEpisodeListener {
                 logger.fine("no show name found for " + episode);
                 continue;
             }
-            ShowStore.mapStringToShow(showName, new ShowInformationListener() {
+            ShowStore.mapStringToShowAndListings(showName, new ShowAndListingsListener() {
                     @Override
                     public void downloadSucceeded(Show show) {
                         episode.setEpisodeShow(show);
@@ -327,9 +342,6 @@ public final class ResultsTable implements Observer, AddEpisodeListener {
                                 STATUS_FIELD.setCellImage(item, ADDED);
                             }
                         });
-                        if (show.isValidSeries()) {
-                            getSeriesListings(show.asSeries(), item, episode);
-                        }
                     }
 
                     @Override
@@ -344,6 +356,16 @@ public final class ResultsTable implements Observer, AddEpisodeListener {
                         episode.setApiDiscontinued();
                         tableItemFailed(item, episode);
                     }
+
+                    @Override
+                    public void listingsDownloadComplete() {
+                        listingsDownloaded(item, episode);
+                    }
+
+                    @Override
+                    public void listingsDownloadFailed(Exception err) {
+                        listingsFailed(item, episode, err);
+                    }
                 });
         }
     }
@@ -489,14 +511,25 @@ public final class ResultsTable implements Observer, AddEpisodeListener {
      */
     public void refreshDestinations() {
         logger.info("Refreshing destinations");
-        for (TableItem item : swtTable.getItems()) {
-            String fileName = CURRENT_FILE_FIELD.getCellText(item);
-            String newFileName = episodeMap.currentLocationOf(fileName);
+        final TableItem[] items = swtTable.getItems();
+        final List<String> fileNames = new ArrayList<>(items.length);
+        for (TableItem item : items) {
+            fileNames.add(CURRENT_FILE_FIELD.getCellText(item));
+        }
+        // Check all the files at once, rather than one at a time.
+        final Map<String, String> newFileNames = episodeMap.currentLocationsOf(fileNames);
+        for (int i = 0; i < items.length; i++) {
+            final TableItem item = items[i];
+            final String fileName = fileNames.get(i);
+            final String newFileName = newFileNames.get(fileName);
             if (newFileName == null) {
                 // Not expected, but could happen, primarily if some other,
                 // unrelated program moves the file out from under us.
                 deleteTableItem(item);
-                return;
+                continue;
+            }
+            if (!fileName.equals(newFileName)) {
+                CURRENT_FILE_FIELD.setCellText(item, newFileName);
             }
             FileEpisode episode = episodeMap.get(newFileName);
             episode.refreshReplacement();
@@ -771,6 +804,8 @@ public final class ResultsTable implements Observer, AddEpisodeListener {
         clearFilesButton.setText("Clear List");
         clearFilesButton.addSelectionListener(new SelectionAdapter() {
             public void widgetSelected(SelectionEvent e) {
+                // Stop adding files, too; otherwise, the list wouldn't stay clear.
+                episodeMap.cancelScans();
                 for (final TableItem item : swtTable.getItems()) {
                     deleteTableItem(item);
                 }
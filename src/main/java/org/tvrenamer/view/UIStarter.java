@@ -21,6 +21,7 @@ import org.tvrenamer.model.util.Environment;
 import java.awt.HeadlessException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -263,6 +264,18 @@ public final class UIStarter {
         setupMenuBar();
     }
 
+    /**
+     * Log how long it took from the time the JVM started until the window was up
+     * and ready for use.  The preload folder used to be loaded before this point,
+     * which made startup time depend on its size; now it's loaded in the background,
+     * and EpisodeDb logs separately how long that took.
+     */
+    private static void logStartupLatency() {
+        long startedMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+        logger.info("window ready " + (System.currentTimeMillis() - startedMillis)
+                    + "ms after startup");
+    }
+
     /**
      * Run the UI/event loop.
      *
@@ -278,6 +291,7 @@ public final class UIStarter {
             shell.open();
 
             resultsTable.ready();
+            logStartupLatency();
 
             while (!shell.isDisposed()) {
                 if (!display.readAndDispatch()) {
@@ -1,6 +1,7 @@
 package org.tvrenamer.controller;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.BeforeClass;
@@ -9,7 +10,12 @@ import org.junit.Test;
 import org.tvrenamer.model.EpisodePlacement;
 import org.tvrenamer.model.EpisodeTestData;
 import org.tvrenamer.model.FileEpisode;
+import org.tvrenamer.model.ParsedFilename;
+import org.tvrenamer.model.util.Constants;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -1125,4 +1131,94 @@ public class FilenameParserTest {
                          testInput.episodeResolution, retval.getFilenameResolution());
         }
     }
+
+    // Names which are not expected to parse "correctly", but which exercise the
+    // corners where the recognizer must defer to (or agree with) the regular expressions.
+    private static final String[] TRICKY_NAMES = {
+        "show.720p.s01e02.avi",
+        "show.s01e02.720p.1080p.mkv",
+        "show.s01e027201p.mkv",
+        "show 2009 s01e02.mkv",
+        "show.2x05.s03e04.avi",
+        "s.s01e02.avi",
+        "Xs01e02.avi",
+        "show.s1e.s02e03.avi",
+        "show.s01.e02.avi",
+        "show.12.avi",
+        "show.avi",
+        "show",
+        "a.b"
+    };
+
+    private static void assertRecognizerAgrees(final String input) {
+        Path path = Paths.get(input);
+        String prepared = FilenameParser.prepareName(path);
+        ParsedFilename viaRegex = FilenameParser.matchRegex(prepared);
+        if (!FilenameRecognizer.mightMatch(prepared)) {
+            assertNull("recognizer rejected parsable input:<[" + input + "]>", viaRegex);
+            return;
+        }
+        ParsedFilename recognized = FilenameRecognizer.recognize(prepared);
+        if (recognized != null) {
+            assertEquals("On input:<[" + input + "]>, recognizer disagrees with regex,",
+                         viaRegex, recognized);
+        }
+        assertEquals("On input:<[" + input + "]>, parse result differs from regex,",
+                     viaRegex, FilenameParser.parse(path));
+    }
+
+    @Test
+    public void testRecognizerMatchesRegex() {
+        for (EpisodeTestData testInput : values) {
+            assertRecognizerAgrees(testInput.inputFilename);
+        }
+        for (String input : TRICKY_NAMES) {
+            assertRecognizerAgrees(input);
+        }
+    }
+
+    /**
+     * Makes sure parsing a batch gives the same answers, in the same order, as parsing
+     * one name at a time.  The batch is big enough to be split among the processors.
+     */
+    @Test
+    public void testParseAll() {
+        List<Path> paths = new ArrayList<>();
+        for (int copy = 0; paths.size() < 5000; copy++) {
+            for (EpisodeTestData testInput : values) {
+                paths.add(Paths.get("/TV/Copy " + copy).resolve(testInput.inputFilename));
+            }
+            for (String input : TRICKY_NAMES) {
+                paths.add(Paths.get("/TV/Copy " + copy).resolve(input));
+            }
+        }
+
+        List<ParsedFilename> oneByOne = new ArrayList<>(paths.size());
+        for (Path path : paths) {
+            oneByOne.add(FilenameParser.parse(path));
+        }
+
+        List<ParsedFilename> batch = FilenameParser.parseAll(paths);
+        assertEquals(oneByOne, batch);
+        assertTrue(batch.contains(null));
+    }
+
+    @Test
+    public void testParseAllInfersShowFromDirectory() {
+        List<Path> paths = new ArrayList<>();
+        Path seasonDir = Paths.get("/TV/Inferred Show/Season 2");
+        Path duplicatesDir = Paths.get("/TV/Other.Show.Season02/s02")
+            .resolve(Constants.DUPLICATES_DIRECTORY);
+        for (int episode = 1; episode <= 25; episode++) {
+            paths.add(seasonDir.resolve(String.format("S02E%02d.mkv", episode)));
+            paths.add(duplicatesDir.resolve(String.format("2x%02d.avi", episode)));
+        }
+        List<ParsedFilename> batch = FilenameParser.parseAll(paths);
+        for (int i = 0; i < paths.size(); i++) {
+            assertEquals(FilenameParser.parse(paths.get(i)), batch.get(i));
+        }
+        assertEquals("Inferred Show", batch.get(0).filenameShow);
+        assertEquals("Other.Show", batch.get(1).filenameShow);
+        assertEquals("25", batch.get(49).episodeString);
+    }
 }
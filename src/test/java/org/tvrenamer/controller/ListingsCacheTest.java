@@ -0,0 +1,119 @@
+package org.tvrenamer.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.tvrenamer.controller.ListingsCache.CachedListing;
+
+import java.io.BufferedReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+public class ListingsCacheTest {
+    private static final String SERIES_ID = "73732";
+    private static final String LANGUAGE = "en";
+    private static final String DOCUMENT = "<?xml version=\"1.0\"?><Data><Episode/></Data>";
+    private static final long ONE_HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private ListingsCache createCache(long timeToLive) {
+        return new ListingsCache(tempFolder.getRoot().toPath().resolve("listings"), timeToLive);
+    }
+
+    private void storeDocument(ListingsCache cache, String etag, String lastModified)
+        throws Exception
+    {
+        Path download = cache.createTempDocument();
+        try (Writer writer = Files.newBufferedWriter(download, StandardCharsets.UTF_8)) {
+            writer.write(DOCUMENT);
+        }
+        cache.store(SERIES_ID, LANGUAGE, download, etag, lastModified);
+        assertFalse("temporary document was not moved", Files.exists(download));
+    }
+
+    private String readDocument(ListingsCache cache, CachedListing entry) throws Exception {
+        try (BufferedReader reader = new BufferedReader(cache.openDocument(entry))) {
+            return reader.readLine();
+        }
+    }
+
+    @Test
+    public void testMissingEntry() {
+        ListingsCache cache = createCache(ONE_HOUR);
+        assertNull(cache.lookup(SERIES_ID, LANGUAGE));
+    }
+
+    @Test
+    public void testStoreAndLookup() throws Exception {
+        ListingsCache cache = createCache(ONE_HOUR);
+        storeDocument(cache, "\"abc123\"", "Tue, 01 Aug 2017 10:00:00 GMT");
+
+        // A separate instance, to make sure the entry really is on disk.
+        ListingsCache reloaded = createCache(ONE_HOUR);
+        CachedListing entry = reloaded.lookup(SERIES_ID, LANGUAGE);
+        assertNotNull(entry);
+        assertTrue(reloaded.isFresh(entry));
+        assertEquals("\"abc123\"", entry.getEtag());
+        assertEquals("Tue, 01 Aug 2017 10:00:00 GMT", entry.getLastModified());
+        assertEquals(DOCUMENT, readDocument(reloaded, entry));
+        assertNull(reloaded.lookup(SERIES_ID, "de"));
+    }
+
+    @Test
+    public void testStaleAndRevalidated() throws Exception {
+        ListingsCache cache = createCache(0);
+        storeDocument(cache, null, null);
+
+        CachedListing entry = cache.lookup(SERIES_ID, LANGUAGE);
+        assertNotNull(entry);
+        assertFalse(cache.isFresh(entry));
+        assertNull(entry.getEtag());
+
+        long before = entry.getFetchedMillis();
+        Thread.sleep(5);
+        cache.revalidated(entry);
+        assertEquals(1, cache.getRevalidationCount());
+        assertTrue(cache.lookup(SERIES_ID, LANGUAGE).getFetchedMillis() > before);
+    }
+
+    @Test
+    public void testCounts() {
+        ListingsCache cache = createCache(ONE_HOUR);
+        cache.recordHit();
+        cache.recordHit();
+        cache.recordMiss();
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0, cache.getRevalidationCount());
+    }
+
+    @Test
+    public void testCopying() throws Exception {
+        StringWriter copy = new StringWriter();
+        try (Reader reader = ListingsCache.copying(new StringReader(DOCUMENT), copy)) {
+            char[] buffer = new char[7];
+            StringBuilder read = new StringBuilder();
+            int count;
+            while ((count = reader.read(buffer, 0, buffer.length)) != -1) {
+                read.append(buffer, 0, count);
+            }
+            assertEquals(DOCUMENT, read.toString());
+        }
+        assertEquals(DOCUMENT, copy.toString());
+    }
+}
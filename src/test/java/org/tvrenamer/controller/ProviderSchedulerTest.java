@@ -0,0 +1,150 @@
+package org.tvrenamer.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.tvrenamer.controller.ProviderScheduler.RequestKind;
+import org.tvrenamer.controller.ProviderScheduler.TokenBucket;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ProviderSchedulerTest {
+    private ProviderScheduler scheduler;
+
+    @After
+    public void shutDown() {
+        if (scheduler != null) {
+            scheduler.shutDownNow();
+        }
+    }
+
+    @Test
+    public void testConcurrencyCap() throws Exception {
+        scheduler = new ProviderScheduler(3, 0);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            RequestKind kind = (i % 2 == 0) ? RequestKind.SEARCH : RequestKind.LISTINGS;
+            results.add(scheduler.submit(kind, () -> {
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                Thread.sleep(5);
+                active.decrementAndGet();
+                return true;
+            }));
+        }
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get(10, TimeUnit.SECONDS));
+        }
+        assertTrue("ran " + maxActive.get() + " at once", maxActive.get() <= 3);
+        assertEquals(30, scheduler.getStartedCount());
+        assertEquals(0, scheduler.getQueueDepth());
+    }
+
+    @Test
+    public void testKindsTakeTurns() throws Exception {
+        scheduler = new ProviderScheduler(1, 0);
+        CountDownLatch blocker = new CountDownLatch(1);
+        Future<Boolean> first
+            = scheduler.submit(RequestKind.SEARCH, () -> blocker.await(10, TimeUnit.SECONDS));
+
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String name = "s" + i;
+            results.add(scheduler.submit(RequestKind.SEARCH, () -> order.add(name)));
+        }
+        for (int i = 0; i < 2; i++) {
+            String name = "l" + i;
+            results.add(scheduler.submit(RequestKind.LISTINGS, () -> order.add(name)));
+        }
+        assertEquals(5, scheduler.getQueueDepth());
+        assertEquals(3, scheduler.getQueueDepth(RequestKind.SEARCH));
+        assertEquals(2, scheduler.getQueueDepth(RequestKind.LISTINGS));
+
+        blocker.countDown();
+        assertTrue(first.get(10, TimeUnit.SECONDS));
+        for (Future<Boolean> result : results) {
+            result.get(10, TimeUnit.SECONDS);
+        }
+        // The blocking search ran last, so listings go next.
+        assertEquals(Arrays.asList("l0", "s0", "l1", "s1", "s2"), order);
+        assertEquals(5, scheduler.getMaxQueueDepth());
+    }
+
+    @Test
+    public void testTokenBucket() {
+        TokenBucket bucket = new TokenBucket(100, 2);
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+
+        // The bucket is empty; each further permit is 10ms after the previous one.
+        long first = bucket.reserve();
+        long second = bucket.reserve();
+        assertTrue(first > 0);
+        assertTrue(first <= TimeUnit.MILLISECONDS.toNanos(10));
+        assertTrue(second - first > TimeUnit.MILLISECONDS.toNanos(9));
+
+        bucket.setRate(0);
+        assertEquals(0, bucket.reserve());
+    }
+
+    @Test
+    public void testRateLimit() throws Exception {
+        scheduler = new ProviderScheduler(8, 50);
+        long start = System.nanoTime();
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 14; i++) {
+            results.add(scheduler.submit(RequestKind.LISTINGS, () -> true));
+        }
+        for (Future<Boolean> result : results) {
+            result.get(10, TimeUnit.SECONDS);
+        }
+        // A burst of four, and then ten more at 20ms intervals.
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("took only " + elapsed + "ms", elapsed >= 180);
+        assertTrue(scheduler.getMaxWaitMillis() >= 180);
+    }
+
+    @Test
+    public void testWaitingForPermitTakesNoSlot() throws Exception {
+        scheduler = new ProviderScheduler(4, 2);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            results.add(scheduler.submit(RequestKind.LISTINGS, () -> true));
+        }
+        // The burst of four runs right away; the other two wait for permits, in the queue.
+        for (Future<Boolean> result : results.subList(0, 4)) {
+            assertTrue(result.get(10, TimeUnit.SECONDS));
+        }
+        // A finished request gives up its slot just after its Future completes.
+        long giveUp = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+        while ((scheduler.getRunningCount() > 0) && (System.nanoTime() < giveUp)) {
+            Thread.sleep(1);
+        }
+        assertEquals(0, scheduler.getRunningCount());
+        assertEquals(2, scheduler.getQueueDepth());
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(6, scheduler.getStartedCount());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testRejectAfterShutDown() {
+        scheduler = new ProviderScheduler(1, 0);
+        scheduler.shutDownNow();
+        scheduler.submit(RequestKind.SEARCH, () -> true);
+    }
+}
@@ -0,0 +1,128 @@
+package org.tvrenamer.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.tvrenamer.model.ParsedFilename;
+import org.tvrenamer.model.ShowName;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+public class ScanIndexTest {
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static BasicFileAttributes attributes(final Path file) throws Exception {
+        return Files.readAttributes(file, BasicFileAttributes.class);
+    }
+
+    @Test
+    public void testSurvivesRestart() throws Exception {
+        Path indexFile = tempFolder.getRoot().toPath().resolve("scanindex.bin");
+        Path video = tempFolder.newFile("index.show.s02e05.720p.avi").toPath();
+        Path unparsed = tempFolder.newFile("holiday video.avi").toPath();
+        ParsedFilename parsed = new ParsedFilename("index.show", "02", "05", "720p");
+
+        ScanIndex index = new ScanIndex(indexFile, 30);
+        assertNull(index.lookup(video, attributes(video)));
+        index.put(video, attributes(video), parsed);
+        index.put(unparsed, attributes(unparsed), null);
+        ShowName showName = ShowName.mapShowName("index.show");
+        showName.addShowOption("80348", "Index Show");
+        showName.selectShowOption();
+        index.save();
+
+        ScanIndex reloaded = new ScanIndex(indexFile, 30);
+        assertEquals(2, reloaded.size());
+        ScanIndex.Entry entry = reloaded.lookup(video, attributes(video));
+        assertNotNull(entry);
+        ParsedFilename reparsed = entry.getParsedFilename();
+        assertEquals("index.show", reparsed.filenameShow);
+        assertEquals("02", reparsed.seasonString);
+        assertEquals("05", reparsed.episodeString);
+        assertEquals("720p", reparsed.resolution);
+        assertEquals("80348", entry.getSeriesId());
+        assertEquals("Index Show", entry.getSeriesName());
+
+        entry = reloaded.lookup(unparsed, attributes(unparsed));
+        assertNotNull(entry);
+        assertNull(entry.getParsedFilename());
+        assertNull(entry.getSeriesId());
+    }
+
+    @Test
+    public void testChangedFileIsForgotten() throws Exception {
+        Path indexFile = tempFolder.getRoot().toPath().resolve("scanindex.bin");
+        Path video = tempFolder.newFile("changing.show.s01e01.avi").toPath();
+        ScanIndex index = new ScanIndex(indexFile, 30);
+        index.put(video, attributes(video),
+                  new ParsedFilename("changing.show", "01", "01", ""));
+
+        Files.setLastModifiedTime(video, FileTime.fromMillis(86400000L));
+        assertNull(index.lookup(video, attributes(video)));
+        assertEquals(0, index.size());
+
+        index.put(video, attributes(video),
+                  new ParsedFilename("changing.show", "01", "01", ""));
+        Files.write(video, new byte[] { 1, 2, 3 });
+        Files.setLastModifiedTime(video, FileTime.fromMillis(86400000L));
+        assertNull(index.lookup(video, attributes(video)));
+    }
+
+    /**
+     * Make sure the file stays small for a large library.  The files don't need
+     * to exist; we make up their attributes.
+     */
+    @Test
+    public void testCompactFormat() throws Exception {
+        final int nFiles = 50000;
+        final Path indexFile = tempFolder.getRoot().toPath().resolve("scanindex.bin");
+        final Path library = tempFolder.getRoot().toPath().resolve("library");
+        final BasicFileAttributes template = attributes(tempFolder.newFile("template.avi").toPath());
+
+        ScanIndex index = new ScanIndex(indexFile, 30);
+        for (int i = 0; i < nFiles; i++) {
+            final long size = 300000000L + i;
+            BasicFileAttributes fake = new BasicFileAttributes() {
+                @Override public FileTime lastModifiedTime() { return template.lastModifiedTime(); }
+                @Override public FileTime lastAccessTime() { return template.lastAccessTime(); }
+                @Override public FileTime creationTime() { return template.creationTime(); }
+                @Override public boolean isRegularFile() { return true; }
+                @Override public boolean isDirectory() { return false; }
+                @Override public boolean isSymbolicLink() { return false; }
+                @Override public boolean isOther() { return false; }
+                @Override public long size() { return size; }
+                @Override public Object fileKey() { return "(dev=803,ino=" + (1000000 + size) + ")"; }
+            };
+            String show = "Compact Show " + (i / 500);
+            int season = 1 + (i / 20) % 25;
+            int episode = 1 + i % 20;
+            Path file = library.resolve(show).resolve("Season " + season)
+                .resolve(show + " S" + season + "E" + episode + " " + i + ".mkv");
+            index.put(file, fake, new ParsedFilename(show, String.valueOf(season),
+                                                     String.valueOf(episode), "1080p"));
+        }
+        index.save();
+        long bytes = Files.size(indexFile);
+        assertEquals(nFiles, new ScanIndex(indexFile, 30).size());
+        assertTrue("index takes " + (bytes / nFiles) + " bytes per file",
+                   bytes < 25L * nFiles);
+    }
+
+    @Test
+    public void testUnreadableFileGivesEmptyIndex() throws Exception {
+        Path indexFile = tempFolder.newFile("scanindex.bin").toPath();
+        Files.write(indexFile, new byte[] { 1, 2, 3, 4 });
+        assertEquals(0, new ScanIndex(indexFile, 30).size());
+    }
+}
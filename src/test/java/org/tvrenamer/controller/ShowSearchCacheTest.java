@@ -0,0 +1,144 @@
+package org.tvrenamer.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.tvrenamer.controller.ShowSearchCache.CachedSearch;
+import org.tvrenamer.controller.ShowSearchCache.Failure;
+import org.tvrenamer.model.ShowOption;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class ShowSearchCacheTest {
+    private static final long ONE_HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private ShowSearchCache createCache() {
+        return createCache(ONE_HOUR, ONE_HOUR);
+    }
+
+    private ShowSearchCache createCache(long noOptionsTtl, long timeoutTtl) {
+        return createCache(noOptionsTtl, timeoutTtl, ONE_HOUR);
+    }
+
+    private ShowSearchCache createCache(long noOptionsTtl, long timeoutTtl, long flushDelay) {
+        return new ShowSearchCache(cacheFile(), noOptionsTtl, timeoutTtl, flushDelay);
+    }
+
+    private Path cacheFile() {
+        return tempFolder.getRoot().toPath().resolve("searches.xml");
+    }
+
+    @Test
+    public void testPutAndReload() {
+        ShowOption us = ShowOption.getShowOption("73244", "The Office (US)");
+        ShowOption uk = ShowOption.getShowOption("78107", "The Office (UK)");
+        List<ShowOption> options = Arrays.asList(uk, us);
+
+        ShowSearchCache cache = createCache();
+        assertNull(cache.lookup("the office"));
+        cache.put("the office", options, us);
+        cache.save();
+
+        // A separate instance, to make sure the search really is on disk.
+        CachedSearch cached = createCache().lookup("the office");
+        assertNotNull(cached);
+        assertEquals("the office", cached.getQueryString());
+        assertEquals("73244", cached.getChosenId());
+        assertEquals(2, cached.getOptions().size());
+        assertEquals("78107", cached.getOptions().get(0).getId());
+        assertEquals("The Office (UK)", cached.getOptions().get(0).getName());
+        assertEquals("The Office (US)", cached.getOptions().get(1).getName());
+    }
+
+    @Test
+    public void testEvict() {
+        ShowOption option = ShowOption.getShowOption("73732", "Quintuplets");
+
+        ShowSearchCache cache = createCache();
+        cache.put("quintuplets", Arrays.asList(option), option);
+        assertTrue(cache.evict("quintuplets"));
+        assertFalse(cache.evict("quintuplets"));
+        cache.save();
+
+        assertNull(createCache().lookup("quintuplets"));
+    }
+
+    @Test
+    public void testFailures() {
+        ShowSearchCache cache = createCache();
+        cache.putFailure("sample", Failure.NO_OPTIONS);
+        cache.putFailure("slow show", Failure.TIMEOUT);
+        assertFalse(Files.exists(cacheFile()));
+        cache.save();
+
+        ShowSearchCache reloaded = createCache();
+        CachedSearch noOptions = reloaded.lookup("sample");
+        assertNotNull(noOptions);
+        assertTrue(noOptions.isFailure());
+        assertEquals(Failure.NO_OPTIONS, noOptions.getFailure());
+        assertTrue(noOptions.getOptions().isEmpty());
+        assertEquals(Failure.TIMEOUT, reloaded.lookup("slow show").getFailure());
+
+        assertTrue(reloaded.evict("sample"));
+        assertNull(reloaded.lookup("sample"));
+    }
+
+    @Test
+    public void testSaveIsDeferred() throws InterruptedException {
+        ShowOption option = ShowOption.getShowOption("73732", "Quintuplets");
+
+        ShowSearchCache cache = createCache();
+        for (int i = 0; i < 100; i++) {
+            cache.put("quintuplets " + i, Arrays.asList(option), option);
+        }
+        assertFalse(Files.exists(cacheFile()));
+        cache.save();
+        assertNotNull(createCache().lookup("quintuplets 99"));
+
+        // With a short delay, the background timer writes the file soon enough.
+        ShowSearchCache flushing = createCache(ONE_HOUR, ONE_HOUR, 10);
+        flushing.put("flushed", Arrays.asList(option), option);
+        long giveUp = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while ((createCache().lookup("flushed") == null)
+               && (System.currentTimeMillis() < giveUp))
+        {
+            Thread.sleep(20);
+        }
+        assertNotNull(createCache().lookup("flushed"));
+    }
+
+    @Test
+    public void testFailureExpiry() {
+        ShowOption option = ShowOption.getShowOption("73732", "Quintuplets");
+
+        // Timeouts expire immediately, but "no options" results last an hour.
+        ShowSearchCache cache = createCache(ONE_HOUR, 0);
+        cache.putFailure("sample", Failure.NO_OPTIONS);
+        cache.putFailure("slow show", Failure.TIMEOUT);
+        cache.put("quintuplets", Arrays.asList(option), option);
+        cache.save();
+
+        assertNotNull(cache.lookup("sample"));
+        assertNull(cache.lookup("slow show"));
+        assertNotNull(cache.lookup("quintuplets"));
+
+        // Successful results never expire.
+        ShowSearchCache expiring = createCache(0, 0);
+        assertNull(expiring.lookup("sample"));
+        assertNotNull(expiring.lookup("quintuplets"));
+    }
+}
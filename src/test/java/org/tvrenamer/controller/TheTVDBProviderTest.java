@@ -20,6 +20,7 @@ package org.tvrenamer.controller;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -29,6 +30,7 @@ import org.junit.Test;
 
 import org.tvrenamer.model.DiscontinuedApiException;
 import org.tvrenamer.model.Episode;
+import org.tvrenamer.model.EpisodeInfo;
 import org.tvrenamer.model.EpisodePlacement;
 import org.tvrenamer.model.EpisodeTestData;
 import org.tvrenamer.model.FailedShow;
@@ -39,6 +41,7 @@ import org.tvrenamer.model.ShowOption;
 import org.tvrenamer.model.ShowStore;
 import org.tvrenamer.model.TVRenamerIOException;
 
+import java.io.StringReader;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -239,6 +242,35 @@ public class TheTVDBProviderTest {
         testSeriesNameAndEpisode(epdata, true);
     }
 
+    /**
+     * Check that the streaming listings reader finds the same values that the XPath
+     * expressions "/Data/Episode" and, for example, "EpisodeName" would have found.
+     * Does not use the network.
+     */
+    @Test
+    public void testReadEpisodeInfos() throws Exception {
+        String listings = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+            + "<Data><Series><id>73732</id><SeriesName>Quintuplets</SeriesName></Series>"
+            + "<Episode><id>1</id><SeasonNumber>1</SeasonNumber>"
+            + "<EpisodeNumber>1</EpisodeNumber><EpisodeName>Pilot</EpisodeName>"
+            + "<FirstAired>2004-06-16</FirstAired><DVD_season></DVD_season></Episode>"
+            + "<Episode><id>2</id><SeasonNumber>1</SeasonNumber>"
+            + "<EpisodeNumber>2</EpisodeNumber><EpisodeName>Law &amp; <![CDATA[Order]]>"
+            + "</EpisodeName><EpisodeName>ignored</EpisodeName></Episode>"
+            + "</Data>";
+        List<EpisodeInfo> infos = TheTVDBProvider.readEpisodeInfos(new StringReader(listings));
+
+        assertEquals(2, infos.size());
+        assertEquals("1", infos.get(0).episodeId);
+        assertEquals("Pilot", infos.get(0).episodeName);
+        assertEquals("2004-06-16", infos.get(0).firstAired);
+        assertEquals("", infos.get(0).dvdSeason);
+        assertNull(infos.get(0).dvdEpisodeNumber);
+        assertEquals("2", infos.get(1).episodeNumber);
+        assertEquals("Law & Order", infos.get(1).episodeName);
+        assertNull(infos.get(1).firstAired);
+    }
+
     /**
      * Remember the show, "Quintuplets"?  No?  Good.  The less popular a show is,
      * it figures, the less likely it is for anyone to be editing it.  It's not
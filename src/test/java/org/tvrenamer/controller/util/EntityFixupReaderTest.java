@@ -0,0 +1,91 @@
+package org.tvrenamer.controller.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Random;
+
+public class EntityFixupReaderTest {
+    /**
+     * A reader which gives back at most the given number of characters at a time,
+     * the way a network stream might.
+     */
+    private static class TrickleReader extends FilterReader {
+        private final int most;
+
+        TrickleReader(final Reader in, final int most) {
+            super(in);
+            this.most = most;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            return super.read(cbuf, off, Math.min(len, most));
+        }
+    }
+
+    private static String readAll(final Reader reader, final int chunk) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[chunk];
+        int count;
+        while ((count = reader.read(buffer, 0, chunk)) >= 0) {
+            text.append(buffer, 0, count);
+        }
+        return text.toString();
+    }
+
+    private static String fixup(final String input, final int trickle, final int chunk)
+        throws IOException
+    {
+        try (Reader reader = new EntityFixupReader(new TrickleReader(new StringReader(input),
+                                                                     trickle)))
+        {
+            return readAll(reader, chunk);
+        }
+    }
+
+    @Test
+    public void testFixup() throws IOException {
+        assertEquals("<?xml?><a>Q &amp; A</a>", fixup("<?xml?><a>Q & A</a>", 100, 100));
+        assertEquals("<?xml?><a>R&amp;D &&amp; </a>", fixup("<?xml?><a>R&amp;D && </a>", 1, 1));
+        assertEquals("Q%20&amp;%20A", fixup("Q & A", 100, 100));
+        assertEquals("<?xm%20", fixup("<?xm ", 100, 100));
+        assertEquals("&", fixup("&", 1, 1));
+        assertEquals("", fixup("", 1, 1));
+    }
+
+    @Test
+    public void testAgreesWithEncodeSpecialCharacters() throws IOException {
+        String[] parts = { "<?xml", " ", "&", "& ", "a", "<b>", "&amp;", "\n" };
+        Random random = new Random(23);
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder input = new StringBuilder();
+            int nParts = random.nextInt(12);
+            for (int p = 0; p < nParts; p++) {
+                input.append(parts[random.nextInt(parts.length)]);
+            }
+            String text = input.toString();
+            int trickle = 1 + random.nextInt(4);
+            int chunk = 1 + random.nextInt(6);
+            assertEquals("\"" + text + "\"", StringUtils.encodeSpecialCharacters(text),
+                         fixup(text, trickle, chunk));
+        }
+
+        // Larger than the reader's own buffers
+        StringBuilder large = new StringBuilder("<?xml version=\"1.0\"?>\n<Data>");
+        while (large.length() < 100000) {
+            large.append("<Episode><EpisodeName>Q & A ").append(large.length())
+                .append("</EpisodeName></Episode>\n");
+        }
+        large.append("</Data>&");
+        assertEquals(StringUtils.encodeSpecialCharacters(large.toString()),
+                     fixup(large.toString(), 1000, 4096));
+        String notXml = large.substring(5);
+        assertEquals(StringUtils.encodeSpecialCharacters(notXml), fixup(notXml, 1000, 4096));
+    }
+}
@@ -0,0 +1,36 @@
+package org.tvrenamer.controller.util;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ExtensionFilterTest {
+
+    @Test
+    public void testSkippedOnly() {
+        ExtensionFilter filter = new ExtensionFilter(Collections.emptyList(),
+                                                     Arrays.asList("nfo", ".srt", " PART "));
+        assertTrue(filter.accepts("show.s01e01.avi"));
+        assertTrue(filter.accepts("show.s01e01.strange"));
+        assertTrue(filter.accepts("show s01e01"));
+        assertFalse(filter.accepts("show.s01e01.nfo"));
+        assertFalse(filter.accepts("show.s01e01.SRT"));
+        assertFalse(filter.accepts("show.s01e01.mkv.part"));
+    }
+
+    @Test
+    public void testMediaAndSkipped() {
+        ExtensionFilter filter = new ExtensionFilter(Arrays.asList("mkv", "AVI", "mp4"),
+                                                     Arrays.asList("mp4"));
+        assertTrue(filter.accepts("show.s01e01.mkv"));
+        assertTrue(filter.accepts("show.s01e01.avi"));
+        assertFalse(filter.accepts("show.s01e01.mp4"));
+        assertFalse(filter.accepts("show.s01e01.nfo"));
+        assertFalse(filter.accepts("show s01e01"));
+        assertFalse(filter.accepts("show.s01e01.mkv.jpg"));
+    }
+}
@@ -0,0 +1,111 @@
+package org.tvrenamer.controller.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class FolderWatcherTest {
+    private static final long QUIET_MILLIS = 300;
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private final BlockingQueue<Path> arrived = new LinkedBlockingQueue<>();
+    private FolderWatcher watcher;
+
+    @After
+    public void closeWatcher() {
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
+    private void startWatching(final Path root, final boolean recursive) throws Exception {
+        watcher = new FolderWatcher(root, recursive, QUIET_MILLIS,
+                                    (Map<Path, BasicFileAttributes> files) ->
+                                    arrived.addAll(files.keySet()));
+        watcher.start();
+        // Give the watcher time to register the tree before we start changing it.
+        Thread.sleep(QUIET_MILLIS);
+    }
+
+    private Path nextArrival() throws InterruptedException {
+        return arrived.poll(20 * QUIET_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void testNewFilesOnly() throws Exception {
+        Path root = tempFolder.newFolder("downloads").toPath();
+        Files.write(root.resolve("old.show.s01e01.avi"), new byte[1]);
+        startWatching(root, true);
+
+        Path newFile = Files.write(root.resolve("new.show.s01e01.avi"), new byte[1]);
+        Files.write(root.resolve(".hidden.avi"), new byte[1]);
+        assertEquals(newFile, nextArrival());
+        assertNull(arrived.poll(3 * QUIET_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testWaitsForFileToStopGrowing() throws Exception {
+        Path root = tempFolder.newFolder("downloads").toPath();
+        startWatching(root, true);
+
+        Path growing = root.resolve("growing.show.s01e01.avi");
+        long start = System.nanoTime();
+        Files.write(growing, new byte[1]);
+        for (int i = 0; i < 6; i++) {
+            Thread.sleep(QUIET_MILLIS / 3);
+            Files.write(growing, new byte[1], StandardOpenOption.APPEND);
+        }
+        assertEquals(growing, nextArrival());
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("reported after only " + elapsed + "ms", elapsed >= 2 * QUIET_MILLIS);
+        assertEquals(7, Files.size(growing));
+    }
+
+    @Test
+    public void testNewSubdirectory() throws Exception {
+        Path root = tempFolder.newFolder("downloads").toPath();
+        Files.createDirectories(root.resolve("Existing Show").resolve("Season 1"));
+        startWatching(root, true);
+        assertEquals(3, watcher.getWatchedCount());
+
+        Path deep = Files.write(root.resolve("Existing Show").resolve("Season 1")
+                                .resolve("existing.show.s01e02.avi"), new byte[1]);
+        assertEquals(deep, nextArrival());
+
+        // A folder moved in whole: its file was there before we could watch it.
+        Path staging = tempFolder.newFolder("staging").toPath();
+        Files.write(staging.resolve("moved.show.s02e01.avi"), new byte[1]);
+        Path moved = Files.move(staging, root.resolve("Moved Show"));
+        assertEquals(moved.resolve("moved.show.s02e01.avi"), nextArrival());
+    }
+
+    @Test
+    public void testNotRecursive() throws Exception {
+        Path root = tempFolder.newFolder("downloads").toPath();
+        Path season = Files.createDirectories(root.resolve("Season 1"));
+        startWatching(root, false);
+        assertEquals(1, watcher.getWatchedCount());
+
+        Files.write(season.resolve("show.s01e01.avi"), new byte[1]);
+        Path top = Files.write(root.resolve("show.s01e02.avi"), new byte[1]);
+        assertEquals(top, nextArrival());
+        assertFalse(arrived.contains(season.resolve("show.s01e01.avi")));
+    }
+}
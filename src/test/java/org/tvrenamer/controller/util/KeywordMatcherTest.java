@@ -0,0 +1,123 @@
+package org.tvrenamer.controller.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class KeywordMatcherTest {
+
+    /**
+     * The way EpisodeDb used to find the reason to ignore a file.
+     */
+    private static String containsFirstMatch(final List<String> keywords, final String text) {
+        for (String keyword : keywords) {
+            if (text.contains(keyword)) {
+                return keyword;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testFirstKeywordInListOrderWins() {
+        KeywordMatcher matcher = new KeywordMatcher(Arrays.asList("sample", "amp", "extras"));
+        assertEquals("sample", matcher.firstMatch("/tv/Show/show.s01e01.sample.avi"));
+        assertEquals("amp", matcher.firstMatch("/tv/Show/show.s01e01.ampersand.avi"));
+        assertEquals("sample", matcher.firstMatch("/tv/extras/show.sample.avi"));
+        assertEquals("extras", matcher.firstMatch("/tv/extras/show.s01e01.avi"));
+        assertNull(matcher.firstMatch("/tv/Show/show.s01e01.avi"));
+        assertNull(matcher.firstMatch(""));
+    }
+
+    @Test
+    public void testOverlappingKeywords() {
+        KeywordMatcher matcher = new KeywordMatcher(Arrays.asList("abcd", "bc", "cde"));
+        assertEquals("bc", matcher.firstMatch("xabcx"));
+        assertEquals("abcd", matcher.firstMatch("xabcdx"));
+        assertEquals("abcd", matcher.firstMatch("abcde"));
+        assertEquals("cde", matcher.firstMatch("xcdex"));
+    }
+
+    @Test
+    public void testCaseAndUnicode() {
+        KeywordMatcher matcher = new KeywordMatcher(Arrays.asList("Sample", "\u00e9t\u00e9"));
+        assertNull(matcher.firstMatch("show.sample.avi"));
+        assertEquals("Sample", matcher.firstMatch("show.Sample.avi"));
+        assertEquals("\u00e9t\u00e9", matcher.firstMatch("l'\u00e9t\u00e9.s01e01.mkv"));
+        assertNull(matcher.firstMatch("\u4e2d\u6587.s01e01.mkv"));
+    }
+
+    @Test
+    public void testEmptyLists() {
+        assertNull(new KeywordMatcher(Collections.emptyList()).firstMatch("anything"));
+        // String.contains("") is always true, so an empty keyword matches everything.
+        assertEquals("", new KeywordMatcher(Arrays.asList("sample", "")).firstMatch("x"));
+    }
+
+    @Test
+    public void testAgreesWithContains() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            List<String> keywords = new ArrayList<>();
+            int nKeywords = 1 + random.nextInt(8);
+            for (int k = 0; k < nKeywords; k++) {
+                keywords.add(randomString(random, 1 + random.nextInt(4), "abc"));
+            }
+            KeywordMatcher matcher = new KeywordMatcher(keywords);
+            for (int t = 0; t < 50; t++) {
+                String text = randomString(random, random.nextInt(30), "abcd");
+                assertEquals(keywords + " in " + text,
+                             containsFirstMatch(keywords, text), matcher.firstMatch(text));
+            }
+        }
+    }
+
+    private static String randomString(final Random random, final int length,
+                                       final String alphabet)
+    {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Many keywords, something like release group tags, against paths like the ones
+     * in a real library.
+     */
+    @Test
+    public void testManyKeywords() {
+        Random random = new Random(7);
+        List<String> allKeywords = new ArrayList<>();
+        allKeywords.add("sample");
+        allKeywords.add("extras");
+        allKeywords.add("trailer");
+        while (allKeywords.size() < 200) {
+            allKeywords.add("-" + randomString(random, 3 + random.nextInt(5),
+                                               "ABCDEFGHIJKLMNOPQRSTUVWXYZ"));
+        }
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            paths.add("/media/library/Some Show " + (i % 300) + "/Season " + (1 + i % 9)
+                      + "/some.show." + (i % 300) + ".s0" + (1 + i % 9) + "e"
+                      + (10 + i % 20) + ".720p.hdtv.x264-" + allKeywords.get(i % 200)
+                      .substring(1) + ".mkv");
+        }
+
+        for (int nKeywords : new int[] { 1, 10, 200 }) {
+            List<String> keywords = allKeywords.subList(0, nKeywords);
+            KeywordMatcher matcher = new KeywordMatcher(keywords);
+            for (String path : paths) {
+                assertEquals(path, containsFirstMatch(keywords, path), matcher.firstMatch(path));
+            }
+        }
+    }
+}
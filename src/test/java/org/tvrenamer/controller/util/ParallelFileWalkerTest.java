@@ -0,0 +1,111 @@
+package org.tvrenamer.controller.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+public class ParallelFileWalkerTest {
+    private static final Logger logger = Logger.getLogger(ParallelFileWalkerTest.class.getName());
+
+    private static final int N_SHOWS = 20;
+    private static final int N_SEASONS = 5;
+    private static final int N_EPISODES = 24;
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    /**
+     * Create a tree shaped like a TV library: show/season/episode.
+     *
+     * @return the number of (visible) files created
+     */
+    private int createLibrary(final Path root) throws Exception {
+        int count = 0;
+        for (int show = 0; show < N_SHOWS; show++) {
+            Path showDir = root.resolve("Show " + show);
+            for (int season = 1; season <= N_SEASONS; season++) {
+                Path seasonDir = Files.createDirectories(showDir.resolve("Season " + season));
+                for (int episode = 1; episode <= N_EPISODES; episode++) {
+                    String name = "show." + show + ".s0" + season + "e" + episode + ".avi";
+                    Files.write(seasonDir.resolve(name), new byte[] { (byte) episode });
+                    count++;
+                }
+                // Hidden files, such as the ones macOS leaves around, are skipped.
+                Files.write(seasonDir.resolve(".DS_Store"), new byte[0]);
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testWalkFindsEveryFileOnce() throws Exception {
+        Path root = tempFolder.newFolder("library").toPath();
+        int expected = createLibrary(root);
+        Files.createDirectories(root.resolve(".hidden").resolve("Season 1"));
+        Files.write(root.resolve(".hidden").resolve("Season 1").resolve("s01e01.avi"),
+                    new byte[0]);
+
+        Map<Path, BasicFileAttributes> found = new ConcurrentHashMap<>();
+        Map<Path, Boolean> duplicates = new ConcurrentHashMap<>();
+        ParallelFileWalker walker = new ParallelFileWalker((file, attributes) -> {
+            if (found.put(file, attributes) != null) {
+                duplicates.put(file, true);
+            }
+        });
+        walker.walk(root);
+
+        assertEquals(expected, found.size());
+        assertTrue("visited twice: " + duplicates.keySet(), duplicates.isEmpty());
+        assertEquals(expected, walker.getFileCount());
+        // Each show and season directory, plus the root.
+        assertEquals(N_SHOWS * (N_SEASONS + 1) + 1, walker.getDirectoryCount());
+        for (Map.Entry<Path, BasicFileAttributes> entry : found.entrySet()) {
+            assertTrue(entry.getValue().isRegularFile());
+            assertEquals(1, entry.getValue().size());
+        }
+        logger.info("walked synthetic library: " + walker);
+    }
+
+    @Test
+    public void testWalkSingleFile() throws Exception {
+        Path file = tempFolder.newFile("show.s01e01.avi").toPath();
+        Map<Path, BasicFileAttributes> found = new ConcurrentHashMap<>();
+        new ParallelFileWalker(found::put).walk(file);
+        assertEquals(1, found.size());
+        assertNotNull(found.get(file));
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        Path root = tempFolder.newFolder("library").toPath();
+        createLibrary(root);
+        ParallelFileWalker[] walker = new ParallelFileWalker[1];
+        walker[0] = new ParallelFileWalker((file, attributes) -> walker[0].cancel());
+        walker[0].walk(root);
+        assertTrue(walker[0].isCancelled());
+        assertTrue(walker[0].getFileCount() < N_SHOWS * N_SEASONS * N_EPISODES);
+    }
+
+    @Test
+    public void testReadVisibleAttributes() throws Exception {
+        Path visible = tempFolder.newFile("visible.avi").toPath();
+        assertNotNull(ParallelFileWalker.readVisibleAttributes(visible));
+        assertNull(ParallelFileWalker.readVisibleAttributes(visible.resolveSibling("missing.avi")));
+        if (!System.getProperty("os.name").startsWith("Windows")) {
+            Path hidden = tempFolder.newFile(".hidden.avi").toPath();
+            assertNull(ParallelFileWalker.readVisibleAttributes(hidden));
+        }
+    }
+}
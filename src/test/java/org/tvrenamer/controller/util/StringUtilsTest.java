@@ -393,4 +393,55 @@ public class StringUtilsTest {
         assertTrimSafe("Dr. Foo's_Man-Pig_");
         assertTrimSafe("  Dr. Foo's_Man-Pig_");
     }
+
+    /**
+     * Corners of replacePunctuation: line terminators at the end, where "$" matches
+     * before them; dots which are or aren't part of an acronym; and characters outside
+     * the Basic Multilingual Plane, which take two chars.  The expected values are what
+     * the original regular expressions produced.
+     */
+    @Test
+    public void testReplacePunctuationCorners() {
+        assertEquals("", replacePunctuation(""));
+        assertEquals("", replacePunctuation("'"));
+        assertEquals("", replacePunctuation("."));
+        assertEquals("a", replacePunctuation("a."));
+        assertEquals("a", replacePunctuation(".a"));
+        assertEquals("ab", replacePunctuation("a.b"));
+        assertEquals("ab", replacePunctuation("a.b."));
+        assertEquals("ab", replacePunctuation("a.b\n"));
+        assertEquals("ab", replacePunctuation("a.b\r\n"));
+        assertEquals("a b", replacePunctuation("a.b\n\n"));
+        assertEquals("x ab\u2029", replacePunctuation("x a.b\u2029"));
+        assertEquals("abc", replacePunctuation("a.b.c"));
+        assertEquals("abc", replacePunctuation(" a.b.c."));
+        assertEquals("ab", replacePunctuation("..a.b"));
+        assertEquals("1 ab", replacePunctuation("1.a.b"));
+        assertEquals("a 1 b", replacePunctuation("a.1.b"));
+        assertEquals("a b c", replacePunctuation("a-b-c"));
+        assertEquals("ab C", replacePunctuation("a-b-C"));
+        assertEquals("a B1 C", replacePunctuation("aB1C"));
+        assertEquals("a 1 B", replacePunctuation("a1B"));
+        assertEquals("its a b", replacePunctuation("it's-a-b"));
+        assertEquals("", replacePunctuation("   "));
+        assertEquals("", replacePunctuation(" - "));
+        assertEquals("SHIELD", replacePunctuation("S.H.I.E.L.D."));
+        assertEquals("Mr Robot", replacePunctuation("Mr.  Robot  "));
+        assertEquals("\ud83d\ude00ab", replacePunctuation("\ud83d\ude00.a.b"));
+        assertEquals("a\ud83d\ude00 b", replacePunctuation("a.\ud83d\ude00.b"));
+        assertEquals("\ud83d\ude00 a", replacePunctuation(" \ud83d\ude00.a"));
+        assertEquals("x\ud83d\ude00 y", replacePunctuation("x.\ud83d\ude00.y"));
+    }
+
+    @Test
+    public void testMakeQueryStringIsRemembered() {
+        String queryString = makeQueryString("The.Memo.Show.");
+        assertEquals("the memo show", queryString);
+        assertEquals(queryString, makeQueryString("The.Memo.Show."));
+        // More distinct shows than are remembered
+        for (int i = 0; i < 10000; i++) {
+            assertEquals("show " + i, makeQueryString("Show." + i));
+        }
+        assertEquals("the memo show", makeQueryString("The.Memo.Show."));
+    }
 }
@@ -0,0 +1,135 @@
+package org.tvrenamer.controller.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.tvrenamer.controller.util.XPathUtilities.*;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathFactory;
+
+public class XPathUtilitiesTest {
+
+    // The JDK's XPath evaluation gets slower as the document grows, so a listing the
+    // size of a long-running show makes the tests take far too long; use a short one.
+    private static final int EPISODE_COUNT = 200;
+    private static final String[] EPISODE_FIELDS = {
+        "id", "SeasonNumber", "EpisodeNumber", "EpisodeName",
+        "FirstAired", "DVD_season", "DVD_episodenumber"
+    };
+
+    private static Document listings;
+
+    @BeforeClass
+    public static void createListings() throws Exception {
+        listings = parseListings();
+    }
+
+    private static Document parseListings() throws Exception {
+        StringBuilder xml = new StringBuilder("<Data>");
+        for (int i = 0; i < EPISODE_COUNT; i++) {
+            xml.append("<Episode><id>").append(1000 + i).append("</id>")
+                .append("<SeasonNumber>").append(i / 20).append("</SeasonNumber>")
+                .append("<EpisodeNumber>").append(i % 20).append("</EpisodeNumber>")
+                .append("<EpisodeName>Episode ").append(i).append("</EpisodeName>")
+                .append("<FirstAired>2001-01-01</FirstAired>")
+                .append("<DVD_season>").append(i / 20).append("</DVD_season>")
+                .append("<DVD_episodenumber>").append(i % 20).append("</DVD_episodenumber>")
+                .append("</Episode>");
+        }
+        xml.append("</Data>");
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder()
+            .parse(new InputSource(new StringReader(xml.toString())));
+    }
+
+    private static int readAllEpisodes(final Document doc) throws Exception {
+        NodeList episodes = nodeListValue("/Data/Episode", doc);
+        int found = 0;
+        for (int i = 0; i < episodes.getLength(); i++) {
+            for (String field : EPISODE_FIELDS) {
+                if (nodeTextValue(field, episodes.item(i)) != null) {
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    @Test
+    public void testNodeValues() throws Exception {
+        NodeList episodes = nodeListValue("/Data/Episode", listings);
+        assertEquals(EPISODE_COUNT, episodes.getLength());
+        assertEquals("1003", nodeTextValue("id", episodes.item(3)));
+        assertEquals("Episode 45", nodeTextValue("EpisodeName", episodes.item(45)));
+        assertNull(nodeTextValue("absolute_number", episodes.item(45)));
+    }
+
+    @Test
+    public void testExpressionCompiledOnce() throws Exception {
+        assertSame(compiled("SeasonNumber"), compiled("SeasonNumber"));
+    }
+
+    @Test
+    public void testConcurrentEvaluation() throws Exception {
+        final int nThreads = 4;
+        ExecutorService pool = Executors.newFixedThreadPool(nThreads);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < nThreads; i++) {
+                // The DOM itself is not thread-safe, even for reading, so each
+                // thread gets its own document; but they share the expressions.
+                results.add(pool.submit(() -> readAllEpisodes(parseListings())));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals(EPISODE_COUNT * EPISODE_FIELDS.length,
+                             (int) result.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Processing a listing with the cached expressions should find exactly what
+     * compiling every expression every time, as we used to do, finds.
+     */
+    @Test
+    public void testAgreesWithUncachedCompilation() throws Exception {
+        int cachedFound = readAllEpisodes(listings);
+        int uncachedFound = readAllEpisodesUncached();
+        assertEquals(EPISODE_COUNT * EPISODE_FIELDS.length, uncachedFound);
+        assertEquals(uncachedFound, cachedFound);
+    }
+
+    private static int readAllEpisodesUncached() throws Exception {
+        XPathFactory factory = XPathFactory.newInstance();
+        XPathExpression listExpr = factory.newXPath().compile("/Data/Episode");
+        NodeList episodes = (NodeList) listExpr.evaluate(listings, XPathConstants.NODESET);
+        int found = 0;
+        for (int i = 0; i < episodes.getLength(); i++) {
+            for (String field : EPISODE_FIELDS) {
+                XPathExpression expr = factory.newXPath().compile(field);
+                if (expr.evaluate(episodes.item(i), XPathConstants.NODE) != null) {
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+}
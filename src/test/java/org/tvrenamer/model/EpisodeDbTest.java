@@ -0,0 +1,235 @@
+package org.tvrenamer.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.tvrenamer.model.util.Constants.SCAN_INDEX_RETENTION_DAYS;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.tvrenamer.controller.AddEpisodeListener;
+import org.tvrenamer.controller.ScanIndex;
+import org.tvrenamer.controller.ScanProgressListener;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class EpisodeDbTest {
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static class BatchRecorder implements AddEpisodeListener {
+        final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void addEpisodes(Queue<FileEpisode> episodes) {
+            batchSizes.add(episodes.size());
+        }
+
+        @Override
+        public void refreshDestinations() {
+        }
+
+        int total() {
+            synchronized (batchSizes) {
+                return batchSizes.stream().mapToInt(Integer::intValue).sum();
+            }
+        }
+    }
+
+    /**
+     * An EpisodeDb with the default preferences, and a scan index of its own, so
+     * that nothing in the user's configuration affects the test, or is affected by it.
+     */
+    private EpisodeDb createEpisodeDb() {
+        ScanIndex index = new ScanIndex(tempFolder.getRoot().toPath().resolve("scanindex.bin"),
+                                        SCAN_INDEX_RETENTION_DAYS);
+        return new EpisodeDb(new UserPreferences(), () -> index);
+    }
+
+    private Path createFolder(final int nFiles) throws Exception {
+        Path folder = tempFolder.newFolder("The Batch Show").toPath();
+        for (int i = 0; i < nFiles; i++) {
+            Path season = Files.createDirectories(folder.resolve("Season " + (1 + i / 50)));
+            Files.write(season.resolve(String.format("batch.show.s%02de%02d.avi",
+                                                     1 + i / 50, 1 + i % 50)),
+                        new byte[0]);
+        }
+        return folder;
+    }
+
+    @Test
+    public void testPublishInBatches() throws Exception {
+        Path folder = createFolder(250);
+        EpisodeDb episodeDb = createEpisodeDb();
+        BatchRecorder recorder = new BatchRecorder();
+        episodeDb.subscribe(recorder);
+        episodeDb.setPublishLimits(100, TimeUnit.MINUTES.toMillis(1));
+
+        Future<?> scan = episodeDb.addFolderToQueue(folder.toString());
+        assertNotNull(scan);
+        scan.get(30, TimeUnit.SECONDS);
+
+        assertEquals(250, recorder.total());
+        assertEquals("batch sizes " + recorder.batchSizes, 3, recorder.batchSizes.size());
+        for (int size : recorder.batchSizes) {
+            assertTrue("batch of " + size, size <= 100);
+        }
+    }
+
+    @Test
+    public void testAddingAgainPublishesNothingNew() throws Exception {
+        Path folder = createFolder(20);
+        EpisodeDb episodeDb = createEpisodeDb();
+        BatchRecorder recorder = new BatchRecorder();
+        episodeDb.subscribe(recorder);
+
+        episodeDb.addFolderToQueue(folder.toString()).get(30, TimeUnit.SECONDS);
+        episodeDb.addFolderToQueue(folder.toString()).get(30, TimeUnit.SECONDS);
+        assertEquals(20, recorder.total());
+        assertNotNull(episodeDb.get(folder.resolve("Season 1")
+                                    .resolve("batch.show.s01e01.avi").toString()));
+    }
+
+    @Test
+    public void testCancelScan() throws Exception {
+        Path folder = createFolder(500);
+        EpisodeDb episodeDb = createEpisodeDb();
+        episodeDb.setPublishLimits(10, TimeUnit.MINUTES.toMillis(1));
+        BatchRecorder recorder = new BatchRecorder() {
+            @Override
+            public void addEpisodes(Queue<FileEpisode> episodes) {
+                super.addEpisodes(episodes);
+                episodeDb.cancelScans();
+            }
+        };
+        episodeDb.subscribe(recorder);
+
+        final AtomicBoolean cancelled = new AtomicBoolean(false);
+        final AtomicLong finalCount = new AtomicLong(-1);
+        episodeDb.addFolderToQueue(folder.toString(), new ScanProgressListener() {
+            @Override
+            public void scanProgress(String description, long filesFound) {
+            }
+
+            @Override
+            public void scanFinished(String description, long filesFound, boolean wasCancelled) {
+                cancelled.set(wasCancelled);
+                finalCount.set(filesFound);
+            }
+        }).get(30, TimeUnit.SECONDS);
+
+        assertTrue(cancelled.get());
+        assertEquals(finalCount.get(), recorder.total());
+        assertTrue("published " + recorder.total(), recorder.total() < 500);
+    }
+
+    @Test
+    public void testSkipByExtension() throws Exception {
+        Path folder = createFolder(10);
+        Path season = folder.resolve("Season 1");
+        Files.write(season.resolve("batch.show.s01e01.nfo"), new byte[0]);
+        Files.write(season.resolve("batch.show.s01e01.srt"), new byte[0]);
+        Files.write(season.resolve("batch.show.s01e02.mkv.part"), new byte[0]);
+        Files.write(season.resolve("folder.jpg"), new byte[0]);
+        EpisodeDb episodeDb = createEpisodeDb();
+        BatchRecorder recorder = new BatchRecorder();
+        episodeDb.subscribe(recorder);
+
+        long skippedBefore = episodeDb.getSkippedCount();
+        episodeDb.addFolderToQueue(folder.toString()).get(30, TimeUnit.SECONDS);
+        assertEquals(10, recorder.total());
+        assertEquals(4, episodeDb.getSkippedCount() - skippedBefore);
+        assertNull(episodeDb.get(season.resolve("batch.show.s01e01.nfo").toString()));
+    }
+
+    @Test
+    public void testCurrentLocationsOf() throws Exception {
+        Path folder = createFolder(3);
+        Path season = folder.resolve("Season 1");
+        Path unchanged = season.resolve("batch.show.s01e01.avi");
+        Path moved = season.resolve("batch.show.s01e02.avi");
+        Path deleted = season.resolve("batch.show.s01e03.avi");
+        EpisodeDb episodeDb = createEpisodeDb();
+        episodeDb.addFolderToQueue(folder.toString()).get(30, TimeUnit.SECONDS);
+
+        Path movedTo = Files.move(moved, season.resolve("Batch Show S01E02.avi"));
+        episodeDb.get(moved.toString()).setPath(movedTo);
+        Files.delete(deleted);
+
+        Map<String, String> locations = episodeDb.currentLocationsOf(
+            Arrays.asList(unchanged.toString(), moved.toString(), deleted.toString()));
+        assertEquals(3, locations.size());
+        assertEquals(unchanged.toString(), locations.get(unchanged.toString()));
+        assertEquals(movedTo.toString(), locations.get(moved.toString()));
+        assertTrue(locations.containsKey(deleted.toString()));
+        assertNull(locations.get(deleted.toString()));
+
+        assertNotNull(episodeDb.get(movedTo.toString()));
+        assertNull(episodeDb.get(moved.toString()));
+        assertNull(episodeDb.get(deleted.toString()));
+        assertEquals(movedTo.toString(), episodeDb.currentLocationOf(movedTo.toString()));
+    }
+
+    private static void waitForTotal(final BatchRecorder recorder, final int total)
+        throws InterruptedException
+    {
+        long giveUp = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while ((recorder.total() < total) && (System.currentTimeMillis() < giveUp)) {
+            Thread.sleep(20);
+        }
+        assertEquals(total, recorder.total());
+    }
+
+    @Test
+    public void testMovedFilesDoNotArriveAgain() throws Exception {
+        Path folder = createFolder(2);
+        Path season = folder.resolve("Season 1");
+        EpisodeDb episodeDb = createEpisodeDb();
+        BatchRecorder recorder = new BatchRecorder();
+        episodeDb.subscribe(recorder);
+        episodeDb.setWatchQuietMillis(100);
+        episodeDb.addFolderToQueue(folder.toString()).get(30, TimeUnit.SECONDS);
+        assertTrue(episodeDb.watchFolder(folder.toString()));
+        // Give the watcher time to register the tree before we start changing it.
+        Thread.sleep(500);
+        try {
+            Files.write(season.resolve("batch.show.s01e03.avi"), new byte[0]);
+            waitForTotal(recorder, 3);
+
+            // Rename one file and keep its row; rename another, and remove its row,
+            // as when the user has chosen to delete rows after moving.
+            Path kept = season.resolve("batch.show.s01e01.avi");
+            Path keptTo = Files.move(kept, season.resolve("Batch Show S01E01.avi"));
+            episodeDb.get(kept.toString()).setPath(keptTo);
+            Path removed = season.resolve("batch.show.s01e02.avi");
+            Path removedTo = Files.move(removed, season.resolve("Batch Show S01E02.avi"));
+            episodeDb.get(removed.toString()).setPath(removedTo);
+            episodeDb.remove(removed.toString());
+
+            Files.write(season.resolve("batch.show.s01e04.avi"), new byte[0]);
+            waitForTotal(recorder, 4);
+            Thread.sleep(500);
+            assertEquals(4, recorder.total());
+            assertNull(episodeDb.get(keptTo.toString()));
+            assertNull(episodeDb.get(removedTo.toString()));
+            assertEquals(keptTo.toString(), episodeDb.currentLocationOf(kept.toString()));
+        } finally {
+            episodeDb.stopWatching();
+        }
+    }
+}
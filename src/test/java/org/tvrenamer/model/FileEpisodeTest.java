@@ -1,6 +1,7 @@
 package org.tvrenamer.model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 import static org.tvrenamer.model.util.Constants.*;
 
@@ -17,6 +18,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
@@ -1076,6 +1078,79 @@ public class FileEpisodeTest {
         teardown(testFiles);
     }
 
+    /**
+     * Many files from a few shows, matched to their episodes.  The strings which are
+     * the same for many files should be shared, not copied for each one.  The files
+     * don't need to exist; we make up their attributes.
+     */
+    @Test
+    public void testRepeatedStringsAreShared() throws Exception {
+        final int nShows = 50;
+        final int nFiles = 2000;
+        prefs.setRenameSelected(true);
+        prefs.setMoveSelected(false);
+        prefs.setRenameReplacementString("%S S%0sE%0e %t");
+
+        final BasicFileAttributes template
+            = Files.readAttributes(TMP_DIR, BasicFileAttributes.class);
+        final BasicFileAttributes attributes = new BasicFileAttributes() {
+            @Override public FileTime lastModifiedTime() { return template.lastModifiedTime(); }
+            @Override public FileTime lastAccessTime() { return template.lastAccessTime(); }
+            @Override public FileTime creationTime() { return template.creationTime(); }
+            @Override public boolean isRegularFile() { return true; }
+            @Override public boolean isDirectory() { return false; }
+            @Override public boolean isSymbolicLink() { return false; }
+            @Override public boolean isOther() { return false; }
+            @Override public long size() { return 350000000L; }
+            @Override public Object fileKey() { return null; }
+        };
+        final Show[] shows = new Show[nShows];
+        for (int i = 0; i < nShows; i++) {
+            shows[i] = new Show(String.valueOf(90000 + i), "Footprint Show " + i);
+            for (int season = 1; season <= 10; season++) {
+                for (int episode = 1; episode <= 40; episode++) {
+                    shows[i].addOneEpisode(new EpisodeInfo.Builder()
+                                           .episodeId(i + "-" + season + "-" + episode)
+                                           .seasonNumber(String.valueOf(season))
+                                           .episodeNumber(String.valueOf(episode))
+                                           .episodeName("Episode Number " + episode)
+                                           .build());
+                }
+            }
+            shows[i].indexEpisodesBySeason();
+        }
+
+        final List<FileEpisode> episodes = new ArrayList<>(nFiles);
+        for (int i = 0; i < nFiles; i++) {
+            int show = i % nShows;
+            int season = 1 + (i / nShows) % 10;
+            int episode = 1 + (i / (nShows * 10)) % 40;
+            // Build each string separately, the way the parser would.
+            String filenameShow = new StringBuilder("footprint.show.").append(show).toString();
+            Path path = OUR_TEMP_DIR.resolve("Footprint Show " + show)
+                .resolve("Season " + season)
+                .resolve(filenameShow + ".s" + season + "e" + episode + ".720p.hdtv.mkv");
+            FileEpisode ep = new FileEpisode(path, attributes,
+                                             new ParsedFilename(filenameShow,
+                                                                String.valueOf(season),
+                                                                String.valueOf(episode),
+                                                                new String("720p")));
+            ep.setEpisodeShow(shows[show]);
+            ep.listingsComplete();
+            episodes.add(ep);
+        }
+        final FileEpisode first = episodes.get(nShows - 1);
+        final FileEpisode last = episodes.get(nFiles - 1);
+        assertSame(first.getFilenameShow(), last.getFilenameShow());
+        assertSame(first.getFilenameResolution(), last.getFilenameResolution());
+        assertSame(first.getFilenameSuffix(), last.getFilenameSuffix());
+
+        assertEquals(1, last.optionCount());
+        assertEquals("Footprint Show 49 S10E04 Episode Number 4",
+                     last.getDestinationBasename());
+        teardown(new ArrayList<>());
+    }
+
     /**
      * The tests are actually expected to clean up after themselves properly.
      * The <code>teardown</code> method is used for that, and checks things
@@ -0,0 +1,76 @@
+package org.tvrenamer.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+public class ReplacementTemplateTest {
+    private static final EpisodePlacement PLACEMENT = new EpisodePlacement(3, 7);
+    private static final LocalDate AIR_DATE = LocalDate.of(2009, 4, 2);
+
+    private static void assertSameAsReplacing(final String template, final String showName,
+                                              final String episodeTitle, final String resolution,
+                                              final LocalDate airDate)
+    {
+        assertEquals("template \"" + template + "\", show \"" + showName
+                     + "\", title \"" + episodeTitle + "\"",
+                     ReplacementTemplate.renderByReplacing(template, showName, episodeTitle,
+                                                           PLACEMENT, resolution, airDate),
+                     ReplacementTemplate.compile(template)
+                     .render(showName, episodeTitle, PLACEMENT, resolution, airDate));
+    }
+
+    @Test
+    public void testRender() {
+        ReplacementTemplate template = ReplacementTemplate.compile("%S [%sx%0e] %t");
+        assertEquals("The Office [3x07] Fun Run",
+                     template.render("The Office", "Fun Run", PLACEMENT, "720p", AIR_DATE));
+        template = ReplacementTemplate.compile("%S.S%0sE%e.%T.%r (%yyyy-%0m-%0d, %d/%m/%yy)");
+        assertEquals("Show.S03E7.Fun.Run.720p (2009-04-02, 2/4/09)",
+                     template.render("Show", "Fun Run", PLACEMENT, "720p", AIR_DATE));
+        assertEquals("Show.S03E7.Fun.Run.720p (--, //)",
+                     template.render("Show", "Fun Run", PLACEMENT, "720p", null));
+        assertTrue(template.isCompiledFrom("%S.S%0sE%e.%T.%r (%yyyy-%0m-%0d, %d/%m/%yy)"));
+        assertFalse(template.isCompiledFrom("%S"));
+    }
+
+    @Test
+    public void testValuesWhichLookLikeTokens() {
+        // Chaining replaceAll substitutes tokens in the values, too; we keep doing that.
+        assertSameAsReplacing("%S - %t", "100%t Pure", "Juice", "720p", AIR_DATE);
+        assertSameAsReplacing("%S - %t", "Show", "Best of %yyyy", "720p", AIR_DATE);
+        assertSameAsReplacing("%t %S", "Show %t", "Title", "720p", null);
+        assertSameAsReplacing("%%S", "show", "Title", "720p", AIR_DATE);
+        assertSameAsReplacing("%%St", "tshow", "Title", "720p", AIR_DATE);
+        assertSameAsReplacing("100% %S", "Show", "Title", "720p", AIR_DATE);
+        assertSameAsReplacing("%S $1 \\n", "Show $2 \\", "Title $0", "720p", AIR_DATE);
+        assertSameAsReplacing("%yyyyy %yyy %0%s", "Show", "Title", "", AIR_DATE);
+    }
+
+    @Test
+    public void testAgreesWithReplacing() {
+        String[] parts = {
+            "%S", "%s", "%0s", "%e", "%0e", "%t", "%T", "%r", "%yyyy", "%yy", "%m", "%0m",
+            "%d", "%0d", "%", "%y", "%0", " ", "-", ".", "S", "t", "y", "0", "$", "\\"
+        };
+        String[] values = { "Show", "The Show", "A % B", "%t", "Q&A", "$1", "%" };
+        Random random = new Random(22);
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder template = new StringBuilder();
+            int nParts = random.nextInt(8);
+            for (int p = 0; p < nParts; p++) {
+                template.append(parts[random.nextInt(parts.length)]);
+            }
+            assertSameAsReplacing(template.toString(),
+                                  values[random.nextInt(values.length)],
+                                  values[random.nextInt(values.length)],
+                                  random.nextBoolean() ? "720p" : "",
+                                  random.nextBoolean() ? AIR_DATE : null);
+        }
+    }
+}
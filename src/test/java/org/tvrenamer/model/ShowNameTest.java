@@ -0,0 +1,159 @@
+package org.tvrenamer.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.tvrenamer.controller.ShowInformationListener;
+import org.tvrenamer.controller.ShowSearchCache;
+import org.tvrenamer.controller.TheTVDBProvider;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ShowNameTest {
+
+    // Several spellings of each of a few shows, as they might appear in filenames.
+    // Each row has a single query string.
+    private static final String[][] SPELLINGS = {
+        { "Stress Show One", "stress.show.one", "Stress_Show_One", "STRESS SHOW ONE" },
+        { "Stress Show Two", "stress.show.two", "Stress-Show-Two" },
+        { "Stress Show Three", "stress show three" },
+        { "Stress Show Four" }
+    };
+    private static final int N_FILES = 3000;
+    private static final int N_THREADS = 16;
+    private static final long ONE_HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static class CountingListener implements ShowInformationListener {
+        final AtomicInteger notified;
+
+        CountingListener(AtomicInteger notified) {
+            this.notified = notified;
+        }
+
+        @Override
+        public void downloadSucceeded(Show show) {
+            notified.incrementAndGet();
+        }
+
+        @Override
+        public void downloadFailed(FailedShow failedShow) {
+            notified.incrementAndGet();
+        }
+
+        @Override
+        public void apiHasBeenDeprecated() {
+            notified.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void testMapShowNameIsStable() {
+        ShowName first = ShowName.mapShowName("Stable Show");
+        assertSame(first, ShowName.mapShowName("Stable Show"));
+        assertSame(first, ShowName.lookupShowName("Stable Show"));
+        assertEquals("stable show", ShowName.mapShowName("stable.show").getQueryString());
+    }
+
+    @Test
+    public void testListenerAddedAfterResolution() {
+        ShowName showName = ShowName.mapShowName("Late Listener Show");
+        assertTrue(showName.claimQuery());
+        showName.nameResolved(new Show("late-1", "Late Listener Show"));
+
+        AtomicInteger notified = new AtomicInteger();
+        ShowName.mapShowName("late.listener.show")
+            .addShowInformationListener(new CountingListener(notified));
+        assertEquals(1, notified.get());
+    }
+
+    /**
+     * Answers searches a little later, like the provider would, and counts them.
+     */
+    private static class CountingSearcher implements ShowStore.ShowSearcher {
+        final Map<String, AtomicInteger> searches = new ConcurrentHashMap<>();
+
+        @Override
+        public void getShowOptions(ShowName showName) {
+            searches.computeIfAbsent(showName.getQueryString(), q -> new AtomicInteger())
+                .incrementAndGet();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            showName.addShowOption("stub " + showName.getQueryString(),
+                                   showName.getQueryString());
+        }
+    }
+
+    /**
+     * Many threads add many files at once, with only a few distinct shows between
+     * them, as happens when the user drops a large folder on the window.  Look up
+     * each file's show through ShowStore, and make sure that exactly one search is
+     * done for each query string, and that every file hears the answer exactly once.
+     */
+    @Test
+    public void testSingleSearchPerQueryString() throws Exception {
+        final CountingSearcher searcher = new CountingSearcher();
+        final AtomicInteger notified = new AtomicInteger();
+        final long dedupedBefore = ShowName.getDeduplicatedQueryCount();
+        Path cacheFile = tempFolder.getRoot().toPath().resolve("searches.xml");
+        ShowStore.useSearcher(searcher,
+                              new ShowSearchCache(cacheFile, ONE_HOUR, ONE_HOUR, ONE_HOUR));
+
+        ExecutorService pool = Executors.newFixedThreadPool(N_THREADS);
+        final CountDownLatch startingGun = new CountDownLatch(1);
+        try {
+            List<Future<?>> adds = new ArrayList<>();
+            for (int t = 0; t < N_THREADS; t++) {
+                final int thread = t;
+                adds.add(pool.submit(() -> {
+                    startingGun.await();
+                    for (int i = thread; i < N_FILES; i += N_THREADS) {
+                        String[] show = SPELLINGS[i % SPELLINGS.length];
+                        String filenameShow = show[(i / SPELLINGS.length) % show.length];
+                        ShowStore.mapStringToShow(filenameShow, new CountingListener(notified));
+                    }
+                    return null;
+                }));
+            }
+            startingGun.countDown();
+            for (Future<?> add : adds) {
+                add.get(30, TimeUnit.SECONDS);
+            }
+            long giveUp = System.currentTimeMillis() + 30000;
+            while ((notified.get() < N_FILES) && (System.currentTimeMillis() < giveUp)) {
+                Thread.sleep(10);
+            }
+        } finally {
+            pool.shutdownNow();
+            ShowStore.useSearcher(TheTVDBProvider::getShowOptions, ShowSearchCache.getInstance());
+        }
+
+        assertEquals(SPELLINGS.length, searcher.searches.size());
+        for (Map.Entry<String, AtomicInteger> entry : searcher.searches.entrySet()) {
+            assertEquals("searches for " + entry.getKey(), 1, entry.getValue().get());
+        }
+        assertEquals(N_FILES, notified.get());
+        // Files which arrived while their show's search was going on.
+        assertTrue(ShowName.getDeduplicatedQueryCount() > dedupedBefore);
+    }
+}
@@ -0,0 +1,125 @@
+package org.tvrenamer.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class ShowTest {
+
+    private static EpisodeInfo info(final String id, final String title,
+                                    final int season, final int episode,
+                                    final int dvdSeason, final int dvdEpisode)
+    {
+        return new EpisodeInfo.Builder()
+            .episodeId(id)
+            .episodeName(title)
+            .seasonNumber(String.valueOf(season))
+            .episodeNumber(String.valueOf(episode))
+            .dvdSeason((dvdSeason < 0) ? "" : String.valueOf(dvdSeason))
+            .dvdEpisodeNumber((dvdEpisode < 0) ? "" : String.valueOf(dvdEpisode))
+            .firstAired("2002-03-10")
+            .build();
+    }
+
+    private static String title(final Episode episode) {
+        return (episode == null) ? null : episode.getTitle();
+    }
+
+    private static String titles(final List<Episode> episodes) {
+        if (episodes == null) {
+            return null;
+        }
+        StringBuilder titles = new StringBuilder();
+        for (Episode episode : episodes) {
+            titles.append(episode.getTitle()).append(';');
+        }
+        return titles.toString();
+    }
+
+    /**
+     * The example from the comment in EpisodeOptions.
+     */
+    @Test
+    public void testDvdAndAirOrderings() {
+        Show show = new Show("-3101", "Ordering Show");
+        show.addEpisodeInfos(new EpisodeInfo[] {
+            info("3101", "A Leela of Her Own", 4, 10, 3, 16),
+            info("3102", "The Why of Fry", 5, 8, 4, 10),
+            info("3103", "No DVD", 1, 1, -1, -1)
+        });
+
+        assertEquals("The Why of Fry", title(show.getEpisode(new EpisodePlacement(4, 10))));
+        assertEquals("The Why of Fry;A Leela of Her Own;",
+                     titles(show.getEpisodes(new EpisodePlacement(4, 10))));
+        assertEquals("A Leela of Her Own", title(show.getEpisode(new EpisodePlacement(3, 16))));
+        assertEquals("The Why of Fry", title(show.getEpisode(new EpisodePlacement(5, 8))));
+        assertEquals("No DVD", title(show.getEpisode(new EpisodePlacement(1, 1))));
+
+        show.setPreferDvd(false);
+        assertEquals("A Leela of Her Own", title(show.getEpisode(new EpisodePlacement(4, 10))));
+        assertEquals("A Leela of Her Own;The Why of Fry;",
+                     titles(show.getEpisodes(new EpisodePlacement(4, 10))));
+        assertEquals("A Leela of Her Own", title(show.getEpisode(new EpisodePlacement(3, 16))));
+
+        assertNull(show.getEpisode(new EpisodePlacement(4, 11)));
+        assertNull(show.getEpisodes(new EpisodePlacement(4, 11)));
+        assertNull(show.getEpisode(new EpisodePlacement(9, 1)));
+        assertNull(show.getEpisodes(new EpisodePlacement(9, 1)));
+    }
+
+    @Test
+    public void testSamePlacementTwice() {
+        Show show = new Show("-3201", "Duplicate Show");
+        show.addEpisodeInfos(new EpisodeInfo[] {
+            info("3201", "Part One", 2, 3, 2, 3),
+            info("3202", "Part Two", 2, 3, -1, -1)
+        });
+        List<Episode> found = show.getEpisodes(new EpisodePlacement(2, 3));
+        assertEquals(2, found.size());
+        assertEquals("Part One", title(found.get(0)));
+        assertTrue(Arrays.asList("Part One", "Part Two").contains(title(found.get(1))));
+    }
+
+    /**
+     * A show with a thousand episodes, some of which are in a different place on
+     * DVD.  Every episode should be found at both its placements.
+     */
+    @Test
+    public void testLongRunningShow() {
+        final int nSeasons = 20;
+        final int perSeason = 50;
+        Show show = new Show("-3301", "Long Running Show");
+        EpisodeInfo[] infos = new EpisodeInfo[nSeasons * perSeason];
+        for (int i = 0; i < infos.length; i++) {
+            int season = 1 + i / perSeason;
+            int episode = 1 + i % perSeason;
+            // Some episodes are in a different place on DVD.
+            int dvdEpisode = (episode % 7 == 0) ? (perSeason + 1 - episode) : episode;
+            infos[i] = info(String.valueOf(330000 + i), "Episode " + i,
+                            season, episode, season, dvdEpisode);
+        }
+        show.addEpisodeInfos(infos);
+
+        for (int i = 0; i < infos.length; i++) {
+            int season = 1 + i / perSeason;
+            int episode = 1 + i % perSeason;
+            int dvdEpisode = (episode % 7 == 0) ? (perSeason + 1 - episode) : episode;
+            String expected = "Episode " + i + ";";
+            EpisodePlacement aired = new EpisodePlacement(season, episode);
+            EpisodePlacement dvd = new EpisodePlacement(season, dvdEpisode);
+
+            assertTrue(titles(show.getEpisodes(aired)).contains(expected));
+            assertTrue(titles(show.getEpisodes(dvd)).contains(expected));
+            assertSame(show.getEpisode(aired), show.getEpisodes(aired).get(0));
+            assertSame(show.getEpisode(dvd), show.getEpisodes(dvd).get(0));
+        }
+        assertNull(show.getEpisode(new EpisodePlacement(nSeasons + 1, 1)));
+        assertNull(show.getEpisode(new EpisodePlacement(1, perSeason + 1)));
+    }
+}